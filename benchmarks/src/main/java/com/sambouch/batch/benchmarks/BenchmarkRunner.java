@@ -0,0 +1,55 @@
+package com.sambouch.batch.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the listener benchmarks once per thread count (1, 2, 4 ... up to the number of
+ * available processors) with the GC profiler enabled, so that a single run reports
+ * ns/op and allocation rate ({@code gc.alloc.rate.norm}) for every contention level.
+ *
+ * <p>Any regular JMH command line option is honoured and applied to every run, e.g.
+ * {@code java -jar benchmarks.jar chunk -p registry=prometheus}. Passing {@code -t}
+ * disables the sweep and runs only the given thread count.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        List<Integer> threadCounts = new ArrayList<>();
+        if (commandLine.getThreads().hasValue()) {
+            threadCounts.add(commandLine.getThreads().get());
+        } else {
+            int max = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads < max; threads *= 2) {
+                threadCounts.add(threads);
+            }
+            threadCounts.add(max);
+        }
+
+        for (int threads : threadCounts) {
+            OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(commandLine);
+            if (commandLine.getIncludes().isEmpty()) {
+                builder.include(PerformanceMonitoringListenerBenchmark.class.getSimpleName());
+            }
+            Options options = builder
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
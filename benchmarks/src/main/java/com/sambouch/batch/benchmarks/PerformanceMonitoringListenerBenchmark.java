@@ -0,0 +1,168 @@
+package com.sambouch.batch.benchmarks;
+
+import com.sambouch.batch.common.listeners.PerformanceMonitoringListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures what {@link PerformanceMonitoringListener} costs per callback.
+ *
+ * <p>The listener and its registry are shared by all benchmark threads, as in an
+ * application where one listener instance is registered on every step. Running the
+ * same benchmark with an increasing thread count ({@code -t}, or {@link BenchmarkRunner})
+ * shows the contention on the shared registry; {@code distinctNames} shows the cost of
+ * the registry growing with the number of job/step names.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerformanceMonitoringListenerBenchmark {
+
+    private static final AtomicLong EXECUTION_IDS = new AtomicLong();
+
+    @State(Scope.Benchmark)
+    public static class ListenerState {
+
+        @Param({"simple", "prometheus", "composite"})
+        public String registry;
+
+        @Param({"1", "10", "100"})
+        public int distinctNames;
+
+        MeterRegistry meterRegistry;
+        PerformanceMonitoringListener listener;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            meterRegistry = switch (registry) {
+                case "simple" -> new SimpleMeterRegistry();
+                case "prometheus" -> new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+                case "composite" -> new CompositeMeterRegistry()
+                        .add(new SimpleMeterRegistry())
+                        .add(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+                default -> throw new IllegalArgumentException("Unknown registry: " + registry);
+            };
+            listener = new PerformanceMonitoringListener(meterRegistry);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            meterRegistry.close();
+        }
+    }
+
+    /**
+     * Per-thread executions, one per distinct job/step name. Each thread owns its step
+     * executions, as the worker threads of a multi-threaded or partitioned step do.
+     */
+    @State(Scope.Thread)
+    public static class ExecutionState {
+
+        JobExecution[] jobExecutions;
+        StepExecution[] stepExecutions;
+        ChunkContext[] chunkContexts;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ListenerState state) {
+            int size = state.distinctNames;
+            jobExecutions = new JobExecution[size];
+            stepExecutions = new StepExecution[size];
+            chunkContexts = new ChunkContext[size];
+
+            for (int i = 0; i < size; i++) {
+                JobInstance jobInstance = new JobInstance(EXECUTION_IDS.incrementAndGet(), "job" + i);
+                JobExecution jobExecution = new JobExecution(jobInstance, EXECUTION_IDS.incrementAndGet(), new JobParameters());
+                jobExecution.setStatus(BatchStatus.COMPLETED);
+                jobExecution.setStartTime(LocalDateTime.now());
+
+                StepExecution stepExecution = new StepExecution("step" + i, jobExecution);
+                stepExecution.setId(EXECUTION_IDS.incrementAndGet());
+                stepExecution.setStartTime(LocalDateTime.now());
+                stepExecution.setExitStatus(ExitStatus.COMPLETED);
+                stepExecution.setReadCount(1_000);
+                stepExecution.setWriteCount(1_000);
+                jobExecution.addStepExecutions(List.of(stepExecution));
+
+                jobExecutions[i] = jobExecution;
+                stepExecutions[i] = stepExecution;
+                chunkContexts[i] = new ChunkContext(new StepContext(stepExecution));
+
+                // Steps are "running" for the whole trial so chunks hit the warm path
+                state.listener.beforeStep(stepExecution);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown(ListenerState state) {
+            for (StepExecution stepExecution : stepExecutions) {
+                state.listener.afterStep(stepExecution);
+            }
+        }
+
+        int nextIndex() {
+            int index = next;
+            next = index + 1 == stepExecutions.length ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public void chunk(ListenerState state, ExecutionState executions) {
+        ChunkContext chunkContext = executions.chunkContexts[executions.nextIndex()];
+        state.listener.beforeChunk(chunkContext);
+        state.listener.afterChunk(chunkContext);
+    }
+
+    @Benchmark
+    public void chunkError(ListenerState state, ExecutionState executions) {
+        ChunkContext chunkContext = executions.chunkContexts[executions.nextIndex()];
+        state.listener.beforeChunk(chunkContext);
+        state.listener.afterChunkError(chunkContext);
+    }
+
+    @Benchmark
+    public void step(ListenerState state, ExecutionState executions) {
+        StepExecution stepExecution = executions.stepExecutions[executions.nextIndex()];
+        state.listener.afterStep(stepExecution);
+        state.listener.beforeStep(stepExecution);
+    }
+
+    @Benchmark
+    public void job(ListenerState state, ExecutionState executions) {
+        JobExecution jobExecution = executions.jobExecutions[executions.nextIndex()];
+        state.listener.beforeJob(jobExecution);
+        state.listener.afterJob(jobExecution);
+    }
+}
@@ -0,0 +1,389 @@
+package com.sambouch.batch.common.advisor;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the dominant cost of chunk-oriented steps and advises a chunk size.
+ *
+ * <p>Each chunk is split with three timestamps: the first {@code beforeWrite} ends the
+ * read / process phase, the last {@code afterWrite} ends the write phase, and the rest
+ * up to {@code afterChunk} is the commit overhead (contribution, stream and repository
+ * updates, transaction commit). Chunks ending in {@code afterChunkError} are counted as
+ * retry cost. No item-level callback is used.</p>
+ *
+ * <p>The timestamps of a chunk are kept on its {@link ChunkContext}. Write callbacks
+ * carry no context, so they find the chunk through the thread running it, for the time
+ * of the chunk only.</p>
+ *
+ * <p>In {@code afterStep}, the commit overhead per chunk and the read / process / write
+ * time per item give the chunk size at which commits cost at most
+ * {@code targetCommitShare} of the chunk time. When rolled back chunks dominate, a
+ * smaller chunk size is advised instead, as each rollback replays the whole chunk.
+ * The report is logged, exposed through {@link #reports()} and recorded as gauges of the
+ * last execution, tagged by {@code job.name} and {@code step.name}:</p>
+ *
+ * <ul>
+ *   <li>{@code batch.step.cost.share}: fraction of the step time per {@code cost}
+ *       ({@code read_process}, {@code write}, {@code commit}, {@code retries})</li>
+ *   <li>{@code batch.step.chunk.size}: average items per chunk</li>
+ *   <li>{@code batch.step.chunk.size.recommended}: advised chunk size</li>
+ *   <li>{@code batch.step.expected.saving}: fraction of the step time the advised size would save</li>
+ * </ul>
+ */
+public class StepCostAdvisor implements StepExecutionListener, ChunkListener, ItemWriteListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(StepCostAdvisor.class);
+
+    private static final String CHUNK_TIMES_ATTRIBUTE = StepCostAdvisor.class.getName() + ".CHUNK_TIMES";
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+    private final double targetCommitShare;
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final int minChunks;
+    private final double logThreshold;
+
+    // Costs of the running steps, by step execution id
+    private final Map<Long, StepCosts> runningSteps = new ConcurrentHashMap<>();
+
+    // Last report, by job and step tags
+    private final Map<Tags, LastReport> lastReports = new ConcurrentHashMap<>();
+
+    // Running chunks, by thread, for the write callbacks
+    private final Map<Thread, ChunkTimes> runningChunks = new ConcurrentHashMap<>();
+
+    /**
+     * @param targetCommitShare fraction of the chunk time the commit overhead should not exceed
+     * @param minChunkSize      lower bound of the advised chunk size
+     * @param maxChunkSize      upper bound of the advised chunk size
+     * @param minChunks         number of chunks under which a step is not analyzed
+     * @param logThreshold      expected saving (fraction of the step time) from which the
+     *                          report is logged at INFO rather than DEBUG
+     */
+    public StepCostAdvisor(MeterRegistry meterRegistry, StepNameNormalizer stepNames, double targetCommitShare,
+                           int minChunkSize, int maxChunkSize, int minChunks, double logThreshold) {
+        if (targetCommitShare <= 0 || targetCommitShare >= 1) {
+            throw new IllegalArgumentException("Target commit share must be in (0, 1): " + targetCommitShare);
+        }
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+        this.targetCommitShare = targetCommitShare;
+        this.minChunkSize = Math.max(1, minChunkSize);
+        this.maxChunkSize = Math.max(this.minChunkSize, maxChunkSize);
+        this.minChunks = minChunks;
+        this.logThreshold = logThreshold;
+    }
+
+    /**
+     * @return the report of the last execution of each step
+     */
+    public Collection<StepCostReport> reports() {
+        List<StepCostReport> reports = new ArrayList<>(lastReports.size());
+        for (LastReport last : lastReports.values()) {
+            reports.add(last.report);
+        }
+        return reports;
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            runningSteps.put(stepExecution.getId(), new StepCosts(stepExecution.getStepName(), System.nanoTime()));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        analyze(stepExecution);
+        return null;
+    }
+
+    /**
+     * Analyzes the costs of a completed step, records the gauges and logs the report.
+     *
+     * @return the report, or {@code null} if the step start was not seen or it ran
+     * fewer than {@code minChunks} chunks
+     */
+    public StepCostReport analyze(StepExecution stepExecution) {
+        StepCosts costs = stepExecution.getId() != null ? runningSteps.remove(stepExecution.getId()) : null;
+        if (costs == null || !costs.stepName.equals(stepExecution.getStepName())
+                || costs.chunks.sum() < Math.max(1, minChunks)) {
+            return null;
+        }
+        StepCostReport report = report(stepExecution, costs, System.nanoTime() - costs.startNanos);
+        record(report);
+        if (report.expectedSavingRatio() >= logThreshold && !report.expectedSaving().isZero()) {
+            log.info("💡 Step {}: {}", report.stepName(), report.summary());
+        } else {
+            log.debug("Step {}: {}", report.stepName(), report.summary());
+        }
+        return report;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        StepCosts costs = stepExecution.getId() != null ? runningSteps.get(stepExecution.getId()) : null;
+        if (costs != null && costs.stepName.equals(stepExecution.getStepName())) {
+            ChunkTimes times = new ChunkTimes(costs, System.nanoTime());
+            context.setAttribute(CHUNK_TIMES_ATTRIBUTE, times);
+            runningChunks.put(Thread.currentThread(), times);
+        }
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        ChunkTimes times = chunkEnded(context);
+        if (times != null) {
+            times.completed(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        ChunkTimes times = chunkEnded(context);
+        if (times != null) {
+            times.failed(System.nanoTime());
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // WRITE LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        ChunkTimes times = runningChunks.get(Thread.currentThread());
+        if (times != null) {
+            times.beforeWrite(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        writeEnded();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, Chunk<?> items) {
+        writeEnded();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private StepCostReport report(StepExecution stepExecution, StepCosts costs, long stepNanos) {
+        long chunks = costs.chunks.sum();
+        long items = stepExecution.getWriteCount() > 0 ? stepExecution.getWriteCount() : stepExecution.getReadCount();
+        long readProcessNanos = costs.readProcessNanos.sum();
+        long writeNanos = costs.writeNanos.sum();
+        long commitNanos = costs.commitNanos.sum();
+        long retryNanos = costs.retryNanos.sum();
+        long otherNanos = Math.max(0, stepNanos - readProcessNanos - writeNanos - commitNanos - retryNanos);
+
+        StepCostReport.Cost dominant = StepCostReport.Cost.READ_PROCESS;
+        long dominantNanos = readProcessNanos;
+        if (writeNanos > dominantNanos) {
+            dominant = StepCostReport.Cost.WRITE;
+            dominantNanos = writeNanos;
+        }
+        if (commitNanos > dominantNanos) {
+            dominant = StepCostReport.Cost.COMMIT;
+            dominantNanos = commitNanos;
+        }
+        if (retryNanos > dominantNanos) {
+            dominant = StepCostReport.Cost.RETRIES;
+        }
+
+        double chunkSize = (double) items / chunks;
+        int currentSize = (int) Math.max(1, Math.round(chunkSize));
+        double commitPerChunk = (double) commitNanos / chunks;
+        int recommended = currentSize;
+        double savingNanos = 0;
+        if (items > 0) {
+            if (dominant == StepCostReport.Cost.RETRIES) {
+                // A rollback replays the whole chunk: half the size, half the replayed work
+                recommended = clamp(currentSize / 2);
+                double extraCommits = (double) items / recommended - chunks;
+                savingNanos = retryNanos * (1 - (double) recommended / currentSize) - extraCommits * commitPerChunk;
+            } else {
+                double itemNanos = (double) (readProcessNanos + writeNanos) / items;
+                if (itemNanos > 0) {
+                    // Commit overhead / chunk time <= target
+                    int target = clamp((int) Math.min(Integer.MAX_VALUE,
+                            Math.ceil(commitPerChunk * (1 - targetCommitShare) / (targetCommitShare * itemNanos))));
+                    if (target > currentSize) {
+                        recommended = target;
+                        savingNanos = (chunks - (double) items / recommended) * commitPerChunk;
+                    }
+                }
+            }
+        }
+        if (savingNanos <= 0) {
+            recommended = currentSize;
+            savingNanos = 0;
+        }
+
+        return new StepCostReport(stepExecution.getJobExecution().getJobInstance().getJobName(),
+                stepExecution.getStepName(),
+                Duration.ofNanos(stepNanos), chunks, items,
+                Duration.ofNanos(readProcessNanos), Duration.ofNanos(writeNanos), Duration.ofNanos(commitNanos),
+                Duration.ofNanos(retryNanos), Duration.ofNanos(otherNanos), stepExecution.getRollbackCount(),
+                dominant, recommended, Duration.ofNanos((long) savingNanos));
+    }
+
+    private int clamp(int chunkSize) {
+        return Math.min(maxChunkSize, Math.max(minChunkSize, chunkSize));
+    }
+
+    private void record(StepCostReport report) {
+        Tags tags = stepNames.tags(report.jobName(), report.stepName());
+        lastReports.compute(tags, (key, last) -> {
+            if (last == null) {
+                return new LastReport(key, report);
+            }
+            last.report = report;
+            return last;
+        });
+    }
+
+    /**
+     * Costs accumulated by the chunks of a running step, possibly from several threads.
+     */
+    private static final class StepCosts {
+
+        private final String stepName;
+        private final long startNanos;
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder readProcessNanos = new LongAdder();
+        private final LongAdder writeNanos = new LongAdder();
+        private final LongAdder commitNanos = new LongAdder();
+        private final LongAdder retryNanos = new LongAdder();
+
+        StepCosts(String stepName, long startNanos) {
+            this.stepName = stepName;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private ChunkTimes chunkEnded(ChunkContext context) {
+        runningChunks.remove(Thread.currentThread());
+        return (ChunkTimes) context.removeAttribute(CHUNK_TIMES_ATTRIBUTE);
+    }
+
+    private void writeEnded() {
+        ChunkTimes times = runningChunks.get(Thread.currentThread());
+        if (times != null) {
+            times.afterWrite(System.nanoTime());
+        }
+    }
+
+    /**
+     * Timestamps of a running chunk. Its callbacks all run on the thread of the chunk.
+     */
+    private static final class ChunkTimes {
+
+        private final StepCosts costs;
+        private final long start;
+        private long firstWriteStart;
+        private long writeStart;
+        private long writeNanos;
+        private long lastWriteEnd;
+
+        ChunkTimes(StepCosts costs, long start) {
+            this.costs = costs;
+            this.start = start;
+        }
+
+        void beforeWrite(long now) {
+            if (firstWriteStart == 0) {
+                firstWriteStart = now;
+            }
+            writeStart = now;
+        }
+
+        void afterWrite(long now) {
+            if (writeStart != 0) {
+                writeNanos += now - writeStart;
+                lastWriteEnd = now;
+                writeStart = 0;
+            }
+        }
+
+        void completed(long now) {
+            if (firstWriteStart == 0) {
+                // Nothing written (all items filtered): the chunk cannot be split
+                costs.readProcessNanos.add(now - start);
+            } else {
+                costs.readProcessNanos.add(firstWriteStart - start);
+                costs.writeNanos.add(writeNanos);
+                costs.commitNanos.add(now - lastWriteEnd);
+            }
+            costs.chunks.increment();
+        }
+
+        void failed(long now) {
+            costs.retryNanos.add(now - start);
+        }
+    }
+
+    /**
+     * Last report of a step, read by the gauges.
+     */
+    private final class LastReport {
+
+        private volatile StepCostReport report;
+
+        LastReport(Tags tags, StepCostReport report) {
+            this.report = report;
+            for (StepCostReport.Cost cost : StepCostReport.Cost.values()) {
+                Gauge.builder("batch.step.cost.share", this, last -> last.report.share(cost))
+                        .tags(tags)
+                        .tag("cost", cost.name().toLowerCase())
+                        .description("Fraction of the step time of the last execution spent in each cost")
+                        .register(meterRegistry);
+            }
+            Gauge.builder("batch.step.chunk.size", this, last -> last.report.chunkSize())
+                    .tags(tags)
+                    .description("Average items per chunk of the last execution")
+                    .register(meterRegistry);
+            Gauge.builder("batch.step.chunk.size.recommended", this, last -> last.report.recommendedChunkSize())
+                    .tags(tags)
+                    .description("Chunk size advised from the costs of the last execution")
+                    .register(meterRegistry);
+            Gauge.builder("batch.step.expected.saving", this, last -> last.report.expectedSavingRatio())
+                    .tags(tags)
+                    .description("Fraction of the step time the advised chunk size is expected to save")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.sambouch.batch.common.advisor;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/batchadvisor}) exposing the last
+ * {@link StepCostReport} of each step.
+ */
+@Endpoint(id = "batchadvisor")
+public class StepCostEndpoint {
+
+    private final StepCostAdvisor advisor;
+
+    public StepCostEndpoint(StepCostAdvisor advisor) {
+        this.advisor = advisor;
+    }
+
+    @ReadOperation
+    public List<StepCostDescriptor> reports() {
+        return advisor.reports().stream()
+                .sorted(Comparator.comparing(StepCostReport::jobName).thenComparing(StepCostReport::stepName))
+                .map(StepCostDescriptor::new)
+                .toList();
+    }
+
+    @ReadOperation
+    public List<StepCostDescriptor> jobReports(@Selector String jobName) {
+        return reports().stream()
+                .filter(descriptor -> descriptor.report().jobName().equals(jobName))
+                .toList();
+    }
+
+    /**
+     * A report with its summary and the share of each cost in the step time.
+     */
+    public record StepCostDescriptor(String summary, Map<StepCostReport.Cost, Double> shares, StepCostReport report) {
+
+        StepCostDescriptor(StepCostReport report) {
+            this(report.summary(), shares(report), report);
+        }
+
+        private static Map<StepCostReport.Cost, Double> shares(StepCostReport report) {
+            Map<StepCostReport.Cost, Double> shares = new EnumMap<>(StepCostReport.Cost.class);
+            for (StepCostReport.Cost cost : StepCostReport.Cost.values()) {
+                shares.put(cost, report.share(cost));
+            }
+            return shares;
+        }
+    }
+}
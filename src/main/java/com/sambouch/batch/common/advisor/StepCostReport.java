@@ -0,0 +1,111 @@
+package com.sambouch.batch.common.advisor;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Where the time of a chunk-oriented step went, and the chunk size advised for it.
+ *
+ * @param jobName              name of the job
+ * @param stepName             name of the step
+ * @param stepTime             duration of the step
+ * @param chunks               number of committed chunks
+ * @param items                items written (items read when nothing was written)
+ * @param readProcess          time spent reading and processing items, up to the first write of each chunk
+ * @param write                time spent in the writer
+ * @param commit               time from the end of the write to the end of the chunk: contribution,
+ *                             stream and repository updates, transaction commit
+ * @param retries              time of the chunks rolled back
+ * @param other                rest of the step time (open / close of streams, step listeners)
+ * @param rollbacks            number of rollbacks
+ * @param dominantCost         largest of the read / process, write, commit and retry costs
+ * @param recommendedChunkSize advised commit interval, the current one when no change is expected to help
+ * @param expectedSaving       step time expected to be saved with the advised commit interval
+ */
+public record StepCostReport(String jobName,
+                             String stepName,
+                             Duration stepTime,
+                             long chunks,
+                             long items,
+                             Duration readProcess,
+                             Duration write,
+                             Duration commit,
+                             Duration retries,
+                             Duration other,
+                             long rollbacks,
+                             Cost dominantCost,
+                             int recommendedChunkSize,
+                             Duration expectedSaving) {
+
+    /**
+     * Costs a step's time is split into.
+     */
+    public enum Cost {
+        READ_PROCESS("reading and processing"),
+        WRITE("writer"),
+        COMMIT("commit overhead"),
+        RETRIES("rolled back chunks");
+
+        private final String label;
+
+        Cost(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * @return the average number of items per chunk
+     */
+    public double chunkSize() {
+        return chunks > 0 ? (double) items / chunks : 0;
+    }
+
+    /**
+     * @return the fraction of the step time spent in the given cost
+     */
+    public double share(Cost cost) {
+        return ratio(duration(cost));
+    }
+
+    /**
+     * @return the expected saving as a fraction of the step time
+     */
+    public double expectedSavingRatio() {
+        return ratio(expectedSaving);
+    }
+
+    /**
+     * @return the time spent in the given cost
+     */
+    public Duration duration(Cost cost) {
+        return switch (cost) {
+            case READ_PROCESS -> readProcess;
+            case WRITE -> write;
+            case COMMIT -> commit;
+            case RETRIES -> retries;
+        };
+    }
+
+    /**
+     * @return a one-line summary, e.g. "commit overhead is 38% of step time at chunk=10,
+     * chunk=100 would save about 33% (4.1 s)"
+     */
+    public String summary() {
+        String summary = String.format(Locale.ROOT, "%s is %.0f%% of step time at chunk=%.0f",
+                dominantCost.label(), share(dominantCost) * 100, chunkSize());
+        if (expectedSaving.isZero()) {
+            return String.format(Locale.ROOT, "%s, chunk size is adequate (commit overhead %.0f%%)",
+                    summary, share(Cost.COMMIT) * 100);
+        }
+        return String.format(Locale.ROOT, "%s, chunk=%d would save about %.0f%% (%.1f s)",
+                summary, recommendedChunkSize, expectedSavingRatio() * 100, expectedSaving.toMillis() / 1000.0);
+    }
+
+    private double ratio(Duration duration) {
+        return stepTime.isZero() ? 0 : (double) duration.toNanos() / stepTime.toNanos();
+    }
+}
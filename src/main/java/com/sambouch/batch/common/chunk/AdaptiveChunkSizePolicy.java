@@ -0,0 +1,334 @@
+package com.sambouch.batch.common.chunk;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Completion policy adjusting the commit interval of a chunk-oriented step at runtime.
+ *
+ * <p>Chunks are timed like {@code batch.chunk.duration}, from {@code beforeChunk} to
+ * {@code afterChunk} with the clock of the meter registry, so the policy must also be
+ * registered as a chunk listener of the step:</p>
+ *
+ * <pre>
+ * AdaptiveChunkSizePolicy policy = AdaptiveChunkSizePolicy.forTargetLatency(
+ *         meterRegistry, Duration.ofMillis(500), 10, 1000);
+ * new StepBuilder("importStep", jobRepository)
+ *         .&lt;In, Out&gt;chunk(policy, transactionManager)
+ *         .reader(reader)
+ *         .writer(writer)
+ *         .listener((ChunkListener) policy)
+ *         .build();
+ * </pre>
+ *
+ * <p>Every {@code evaluationChunks} committed chunks, the commit interval is
+ * re-evaluated:</p>
+ * <ul>
+ *   <li>{@link Goal#TARGET_LATENCY}: scaled by target / average chunk duration, by at
+ *       most a factor 2 per decision;</li>
+ *   <li>{@link Goal#THROUGHPUT}: hill climbing, moved by {@code stepFactor} in the same
+ *       direction while the items per second improve, in the other direction otherwise.</li>
+ * </ul>
+ * <p>A chunk error halves the commit interval at once (a rollback replays the whole
+ * chunk) and restarts the evaluation. The interval always stays within the bounds.</p>
+ *
+ * <p>Decisions are recorded, tagged by {@code job.name} and {@code step.name}, on the
+ * {@code batch.chunk.commit.interval} gauge and the {@code batch.chunk.commit.interval.decisions}
+ * counter ({@code decision}: {@code increase}, {@code decrease}, {@code hold} or
+ * {@code backoff}).</p>
+ *
+ * <p>One instance per step. The interval is kept across executions of the step, and
+ * shared by its threads in multi-threaded steps. The running chunk is kept on its
+ * {@link ChunkContext}; {@link #start(RepeatContext)}, which receives no chunk context,
+ * finds it through the thread running the chunk.</p>
+ */
+public class AdaptiveChunkSizePolicy extends CompletionPolicySupport implements ChunkListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveChunkSizePolicy.class);
+
+    /**
+     * What the commit interval is adjusted for.
+     */
+    public enum Goal {
+        TARGET_LATENCY,
+        THROUGHPUT
+    }
+
+    private static final double MAX_LATENCY_FACTOR = 2.0;
+
+    private static final String RUNNING_CHUNK_ATTRIBUTE = AdaptiveChunkSizePolicy.class.getName() + ".RUNNING_CHUNK";
+
+    private final MeterRegistry meterRegistry;
+    private final Goal goal;
+    private final long targetLatencyNanos;
+    private final int minSize;
+    private final int maxSize;
+    private final int evaluationChunks;
+    private final double stepFactor;
+
+    // Decision meters, by job and step tags
+    private final Map<Tags, DecisionMeters> decisionMeters = new ConcurrentHashMap<>();
+
+    // Running chunks, by thread, between beforeChunk and the end of the chunk
+    private final Map<Thread, RunningChunk> runningChunks = new ConcurrentHashMap<>();
+
+    // Read by the chunks without lock, written under the lock
+    private volatile int size;
+
+    // Guarded by this
+    private int windowChunks;
+    private long windowItems;
+    private long windowNanos;
+    private double lastThroughput = Double.NaN;
+    private int direction = 1;
+
+    /**
+     * @param goal             what the commit interval is adjusted for
+     * @param targetLatency    chunk duration to hold, used with {@link Goal#TARGET_LATENCY}
+     * @param initialSize      commit interval of the first chunks
+     * @param minSize          lower bound of the commit interval
+     * @param maxSize          upper bound of the commit interval
+     * @param evaluationChunks number of committed chunks between two decisions
+     * @param stepFactor       factor applied at each move of {@link Goal#THROUGHPUT}, above 1
+     */
+    public AdaptiveChunkSizePolicy(MeterRegistry meterRegistry, Goal goal, Duration targetLatency,
+                                   int initialSize, int minSize, int maxSize, int evaluationChunks,
+                                   double stepFactor) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid commit interval bounds: [" + minSize + ", " + maxSize + "]");
+        }
+        if (goal == Goal.TARGET_LATENCY && (targetLatency == null || targetLatency.isNegative() || targetLatency.isZero())) {
+            throw new IllegalArgumentException("A positive target latency is required: " + targetLatency);
+        }
+        if (stepFactor <= 1) {
+            throw new IllegalArgumentException("Step factor must be above 1: " + stepFactor);
+        }
+        this.meterRegistry = meterRegistry;
+        this.goal = goal;
+        this.targetLatencyNanos = targetLatency != null ? targetLatency.toNanos() : 0;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.evaluationChunks = Math.max(1, evaluationChunks);
+        this.stepFactor = stepFactor;
+        this.size = Math.min(maxSize, Math.max(minSize, initialSize));
+    }
+
+    /**
+     * Holds chunks at the target duration, starting from the lower bound.
+     */
+    public static AdaptiveChunkSizePolicy forTargetLatency(MeterRegistry meterRegistry, Duration targetLatency,
+                                                           int minSize, int maxSize) {
+        return new AdaptiveChunkSizePolicy(meterRegistry, Goal.TARGET_LATENCY, targetLatency,
+                minSize, minSize, maxSize, 3, 1.5);
+    }
+
+    /**
+     * Searches the commit interval with the best throughput, starting from the lower bound.
+     */
+    public static AdaptiveChunkSizePolicy forThroughput(MeterRegistry meterRegistry, int minSize, int maxSize) {
+        return new AdaptiveChunkSizePolicy(meterRegistry, Goal.THROUGHPUT, null,
+                minSize, minSize, maxSize, 3, 1.5);
+    }
+
+    /**
+     * @return the commit interval of the next chunks
+     */
+    public int getChunkSize() {
+        return size;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // COMPLETION POLICY
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        ChunkSizeContext context = new ChunkSizeContext(parent, size);
+        RunningChunk chunk = runningChunks.get(Thread.currentThread());
+        if (chunk != null) {
+            chunk.context = context;
+        }
+        return context;
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context instanceof ChunkSizeContext chunk && chunk.getStartedCount() >= chunk.size;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        RunningChunk chunk = new RunningChunk(meterRegistry.config().clock().monotonicTime());
+        context.setAttribute(RUNNING_CHUNK_ATTRIBUTE, chunk);
+        runningChunks.put(Thread.currentThread(), chunk);
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        RunningChunk chunk = chunkEnded(context);
+        if (chunk == null || chunk.context == null) {
+            return;
+        }
+        long nanos = meterRegistry.config().clock().monotonicTime() - chunk.startNanos;
+        chunkCompleted(context.getStepContext().getStepExecution(), chunk.context.getStartedCount(), nanos);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkEnded(context);
+        int previous;
+        int next;
+        synchronized (this) {
+            previous = size;
+            next = Math.max(minSize, previous / 2);
+            size = next;
+            resetWindow();
+        }
+        record(context.getStepContext().getStepExecution(), "backoff", previous, next);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private RunningChunk chunkEnded(ChunkContext context) {
+        runningChunks.remove(Thread.currentThread());
+        return (RunningChunk) context.removeAttribute(RUNNING_CHUNK_ATTRIBUTE);
+    }
+
+    private void chunkCompleted(StepExecution stepExecution, int items, long nanos) {
+        int previous;
+        int next;
+        synchronized (this) {
+            windowChunks++;
+            windowItems += items;
+            windowNanos += nanos;
+            if (windowChunks < evaluationChunks) {
+                return;
+            }
+            previous = size;
+            next = goal == Goal.TARGET_LATENCY ? latencySize(previous) : throughputSize(previous);
+            size = next;
+            resetWindow();
+        }
+        String decision = next > previous ? "increase" : next < previous ? "decrease" : "hold";
+        record(stepExecution, decision, previous, next);
+    }
+
+    private int latencySize(int current) {
+        double averageNanos = (double) windowNanos / windowChunks;
+        if (averageNanos <= 0) {
+            return current;
+        }
+        double factor = Math.min(MAX_LATENCY_FACTOR, Math.max(1 / MAX_LATENCY_FACTOR, targetLatencyNanos / averageNanos));
+        return clamp((int) Math.round(current * factor));
+    }
+
+    private int throughputSize(int current) {
+        if (windowNanos <= 0) {
+            return current;
+        }
+        double throughput = windowItems * 1_000_000_000.0 / windowNanos;
+        if (!Double.isNaN(lastThroughput) && throughput < lastThroughput) {
+            direction = -direction;
+        }
+        lastThroughput = throughput;
+        int next = clamp((int) Math.round(direction > 0 ? current * stepFactor : current / stepFactor));
+        if (next == current) {
+            // At a bound, or too small to move: turn around
+            direction = -direction;
+            next = clamp((int) Math.round(direction > 0 ? current * stepFactor : current / stepFactor));
+        }
+        return next;
+    }
+
+    private void resetWindow() {
+        windowChunks = 0;
+        windowItems = 0;
+        windowNanos = 0;
+    }
+
+    private int clamp(int chunkSize) {
+        return Math.min(maxSize, Math.max(minSize, chunkSize));
+    }
+
+    private void record(StepExecution stepExecution, String decision, int previous, int next) {
+        Tags tags = Tags.of("job.name", stepExecution.getJobExecution().getJobInstance().getJobName(),
+                "step.name", stepExecution.getStepName());
+        decisionMeters.computeIfAbsent(tags, DecisionMeters::new).counter(decision).increment();
+        if (log.isDebugEnabled()) {
+            log.debug("Commit interval of step {}: {} -> {} ({}, goal {})", stepExecution.getStepName(),
+                    previous, next, decision, goal.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Repeat context of a chunk, with the commit interval it started with.
+     */
+    private static final class ChunkSizeContext extends RepeatContextSupport {
+
+        private final int size;
+
+        ChunkSizeContext(RepeatContext parent, int size) {
+            super(parent);
+            this.size = size;
+        }
+    }
+
+    /**
+     * A running chunk: its start time and the repeat context created by {@code start}.
+     */
+    private static final class RunningChunk {
+
+        private final long startNanos;
+        private volatile ChunkSizeContext context;
+
+        RunningChunk(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Commit interval gauge and decision counters of a step.
+     */
+    private final class DecisionMeters {
+
+        private final Tags tags;
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+        DecisionMeters(Tags tags) {
+            this.tags = tags;
+            Gauge.builder("batch.chunk.commit.interval", AdaptiveChunkSizePolicy.this, AdaptiveChunkSizePolicy::getChunkSize)
+                    .tags(tags)
+                    .description("Commit interval chosen by the adaptive chunk size policy")
+                    .register(meterRegistry);
+        }
+
+        Counter counter(String decision) {
+            return counters.computeIfAbsent(decision, key -> Counter.builder("batch.chunk.commit.interval.decisions")
+                    .tags(tags)
+                    .tag("decision", key)
+                    .description("Decisions of the adaptive chunk size policy")
+                    .register(meterRegistry));
+        }
+    }
+}
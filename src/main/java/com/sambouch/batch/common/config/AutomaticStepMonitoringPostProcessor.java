@@ -1,42 +1,175 @@
 package com.sambouch.batch.common.config;
 
+import com.sambouch.batch.common.listeners.ItemPhaseMonitoringListener;
 import com.sambouch.batch.common.listeners.PerformanceMonitoringListener;
+import com.sambouch.batch.common.partition.PartitionMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.StepListener;
+import org.springframework.batch.core.job.AbstractJob;
+import org.springframework.batch.core.partition.PartitionHandler;
 import org.springframework.batch.core.partition.support.PartitionStep;
+import org.springframework.batch.core.step.item.ChunkOrientedTasklet;
+import org.springframework.batch.core.step.item.SimpleChunkProcessor;
+import org.springframework.batch.core.step.item.SimpleChunkProvider;
 import org.springframework.batch.core.step.tasklet.TaskletStep;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Post-processor that automatically registers the PerformanceMonitoringListener
  * on all Spring Batch Jobs and Steps detected in the context.
+ *
+ * <p>The listeners can be resolved on the first Job or Step, so that creating the
+ * post-processor does not create the meter registry before the other post-processors
+ * are registered.</p>
  */
 public class AutomaticStepMonitoringPostProcessor implements BeanPostProcessor {
 
-    private final PerformanceMonitoringListener listener;
+    private final SingletonSupplier<Listeners> listeners;
     private static final Logger log = LoggerFactory.getLogger(AutomaticStepMonitoringPostProcessor.class);
 
     public AutomaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener) {
-        this.listener = listener;
+        this(listener, null);
+    }
+
+    /**
+     * @param listener the listener to register on all Steps
+     * @param itemPhaseListener the item-level listener to register on chunk-oriented Steps,
+     *                          or {@code null} when item timing is disabled
+     */
+    public AutomaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener,
+                                                ItemPhaseMonitoringListener itemPhaseListener) {
+        this(listener, itemPhaseListener, null);
+    }
+
+    /**
+     * @param listener the listener to register on all Steps
+     * @param itemPhaseListener the item-level listener to register on chunk-oriented Steps,
+     *                          or {@code null} when item timing is disabled
+     * @param partitionMonitor the partition skew monitor of partitioned Steps, or
+     *                         {@code null} when disabled
+     */
+    public AutomaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener,
+                                                ItemPhaseMonitoringListener itemPhaseListener,
+                                                PartitionMonitor partitionMonitor) {
+        this(listener, itemPhaseListener, partitionMonitor, List.of());
+    }
+
+    /**
+     * @param listener the listener to register on all Steps
+     * @param itemPhaseListener the item-level listener to register on chunk-oriented Steps,
+     *                          or {@code null} when item timing is disabled
+     * @param partitionMonitor the partition skew monitor of partitioned Steps, or
+     *                         {@code null} when disabled
+     * @param stepListeners additional listeners of tasklet Steps, registered as step, chunk
+     *                      and item listeners according to the interfaces they implement
+     */
+    public AutomaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener,
+                                                ItemPhaseMonitoringListener itemPhaseListener,
+                                                PartitionMonitor partitionMonitor,
+                                                List<? extends StepListener> stepListeners) {
+        this(listener, itemPhaseListener, partitionMonitor, stepListeners, List.of());
+    }
+
+    /**
+     * @param listener the listener to register on all Steps and Jobs
+     * @param itemPhaseListener the item-level listener to register on chunk-oriented Steps,
+     *                          or {@code null} when item timing is disabled
+     * @param partitionMonitor the partition skew monitor of partitioned Steps, or
+     *                         {@code null} when disabled
+     * @param stepListeners additional listeners of Steps, registered as step, chunk and item
+     *                      listeners according to the interfaces they implement (only as
+     *                      step listeners of partitioned Steps)
+     * @param jobListeners additional listeners of Jobs
+     */
+    public AutomaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener,
+                                                ItemPhaseMonitoringListener itemPhaseListener,
+                                                PartitionMonitor partitionMonitor,
+                                                List<? extends StepListener> stepListeners,
+                                                List<? extends JobExecutionListener> jobListeners) {
+        this.listeners = SingletonSupplier.of(new Listeners(listener, itemPhaseListener, partitionMonitor,
+                List.copyOf(stepListeners), List.copyOf(jobListeners)));
+    }
+
+    /**
+     * Resolves the listeners on the first Job or Step.
+     *
+     * @param listener the listener to register on all Steps and Jobs
+     * @param itemPhaseListener the item-level listener to register on chunk-oriented Steps,
+     *                          if enabled
+     * @param partitionMonitor the partition skew monitor of partitioned Steps, if enabled
+     * @param stepListeners additional listeners of Steps, registered as step, chunk and item
+     *                      listeners according to the interfaces they implement (only as
+     *                      step listeners of partitioned Steps)
+     * @param jobListeners additional listeners of Jobs
+     */
+    public AutomaticStepMonitoringPostProcessor(ObjectProvider<PerformanceMonitoringListener> listener,
+                                                ObjectProvider<ItemPhaseMonitoringListener> itemPhaseListener,
+                                                ObjectProvider<PartitionMonitor> partitionMonitor,
+                                                Supplier<? extends List<? extends StepListener>> stepListeners,
+                                                Supplier<? extends List<? extends JobExecutionListener>> jobListeners) {
+        this.listeners = SingletonSupplier.of(() -> new Listeners(listener.getObject(),
+                itemPhaseListener.getIfAvailable(), partitionMonitor.getIfAvailable(),
+                List.copyOf(stepListeners.get()), List.copyOf(jobListeners.get())));
     }
 
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
 
+        if (bean instanceof AbstractJob job) {
+            Listeners resolved = listeners.obtain();
+            // Listeners already registered by the job builder are not added twice
+            job.registerJobExecutionListener(resolved.listener());
+            resolved.jobListeners().forEach(job::registerJobExecutionListener);
+            log.debug(" Monitoring enabled for Job: {}", beanName);
+            return bean;
+        }
         if (!(bean instanceof Step)) {
             return bean;
         }
+        Listeners resolved = listeners.obtain();
+        PerformanceMonitoringListener listener = resolved.listener();
+        ItemPhaseMonitoringListener itemPhaseListener = resolved.itemPhaseListener();
+        PartitionMonitor partitionMonitor = resolved.partitionMonitor();
 
         try {
             if (bean instanceof TaskletStep taskletStep) {
                 taskletStep.registerStepExecutionListener(listener);
                 taskletStep.registerChunkListener(listener);
+                if (itemPhaseListener != null && taskletStep.getTasklet() instanceof ChunkOrientedTasklet<?> tasklet) {
+                    registerItemPhaseListener(taskletStep, tasklet, itemPhaseListener);
+                    log.debug(" Item timing enabled for Step: {}", beanName);
+                }
+                for (StepListener stepListener : resolved.stepListeners()) {
+                    registerStepListener(taskletStep, stepListener);
+                }
                 log.debug(" Monitoring enabled for Step: {}", beanName);
             } else if (bean instanceof PartitionStep partitionStep) {
                 partitionStep.registerStepExecutionListener(listener);
+                for (StepListener stepListener : resolved.stepListeners()) {
+                    if (stepListener instanceof StepExecutionListener stepExecutionListener) {
+                        partitionStep.registerStepExecutionListener(stepExecutionListener);
+                    }
+                }
+                if (partitionMonitor != null) {
+                    monitorPartitions(partitionStep, partitionMonitor);
+                    log.debug(" Partition analysis enabled for Step: {}", beanName);
+                }
                 log.debug(" Monitoring enabled for PartitionStep: {}", beanName);
             } else {
                 log.debug("⚠️ Unsupported Step type: {} (type: {})",
@@ -49,5 +182,64 @@ public class AutomaticStepMonitoringPostProcessor implements BeanPostProcessor {
 
         return bean;
     }
-}
 
+    /**
+     * Registers the item listener on the chunk provider and processor of the tasklet.
+     * They are not exposed by {@link ChunkOrientedTasklet}, hence the field access.
+     */
+    private void registerItemPhaseListener(TaskletStep taskletStep, ChunkOrientedTasklet<?> tasklet,
+                                           ItemPhaseMonitoringListener itemPhaseListener) {
+        registerItemListener(tasklet, itemPhaseListener);
+        taskletStep.registerStepExecutionListener(itemPhaseListener);
+        taskletStep.registerChunkListener(itemPhaseListener);
+    }
+
+    private void registerItemListener(ChunkOrientedTasklet<?> tasklet, StepListener itemListener) {
+        DirectFieldAccessor accessor = new DirectFieldAccessor(tasklet);
+        if (itemListener instanceof ItemReadListener<?>
+                && accessor.getPropertyValue("chunkProvider") instanceof SimpleChunkProvider<?> chunkProvider) {
+            chunkProvider.registerListener(itemListener);
+        }
+        if ((itemListener instanceof ItemProcessListener<?, ?> || itemListener instanceof ItemWriteListener<?>)
+                && accessor.getPropertyValue("chunkProcessor") instanceof SimpleChunkProcessor<?, ?> chunkProcessor) {
+            chunkProcessor.registerListener(itemListener);
+        }
+    }
+
+    /**
+     * Registers a listener on a tasklet step for each listener interface it implements.
+     */
+    private void registerStepListener(TaskletStep taskletStep, StepListener stepListener) {
+        if (stepListener instanceof StepExecutionListener stepExecutionListener) {
+            taskletStep.registerStepExecutionListener(stepExecutionListener);
+        }
+        if (stepListener instanceof ChunkListener chunkListener) {
+            taskletStep.registerChunkListener(chunkListener);
+        }
+        if (taskletStep.getTasklet() instanceof ChunkOrientedTasklet<?> tasklet) {
+            registerItemListener(tasklet, stepListener);
+        }
+    }
+
+    /**
+     * Decorates the partition handler so that the worker executions reach the partition
+     * monitor. {@link PartitionStep} only exposes the handler to subclasses, hence the
+     * field access.
+     */
+    private void monitorPartitions(PartitionStep partitionStep, PartitionMonitor partitionMonitor) {
+        if (new DirectFieldAccessor(partitionStep).getPropertyValue("partitionHandler") instanceof PartitionHandler handler) {
+            partitionStep.setPartitionHandler(partitionMonitor.monitor(handler));
+            partitionStep.registerStepExecutionListener(partitionMonitor);
+        }
+    }
+
+    /**
+     * Listeners registered on the Jobs and Steps.
+     */
+    private record Listeners(PerformanceMonitoringListener listener,
+                             ItemPhaseMonitoringListener itemPhaseListener,
+                             PartitionMonitor partitionMonitor,
+                             List<StepListener> stepListeners,
+                             List<JobExecutionListener> jobListeners) {
+    }
+}
@@ -1,11 +1,43 @@
 package com.sambouch.batch.common.config;
 
+import com.sambouch.batch.common.advisor.StepCostAdvisor;
+import com.sambouch.batch.common.advisor.StepCostEndpoint;
+import com.sambouch.batch.common.history.BatchPerformanceEndpoint;
+import com.sambouch.batch.common.history.ExecutionHistory;
+import com.sambouch.batch.common.history.SlowChunkRecorder;
+import com.sambouch.batch.common.jdbc.StepJdbcMetrics;
+import com.sambouch.batch.common.jfr.FlightRecorderListener;
+import com.sambouch.batch.common.jfr.SlowStepRecorder;
+import com.sambouch.batch.common.listeners.ItemPhaseMonitoringListener;
 import com.sambouch.batch.common.listeners.PerformanceMonitoringListener;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.listeners.WarmupDetector;
+import com.sambouch.batch.common.metrics.MetricDetailFilter;
+import com.sambouch.batch.common.partition.PartitionMonitor;
+import com.sambouch.batch.common.profiling.StepStackSampler;
+import com.sambouch.batch.common.pushgateway.PushGatewayJobListener;
+import com.sambouch.batch.common.progress.ExecutionContextTotalEstimator;
+import com.sambouch.batch.common.progress.StepProgressTracker;
+import com.sambouch.batch.common.progress.StepTotalEstimator;
+import com.sambouch.batch.common.regression.JdbcStepExecutionHistory;
+import com.sambouch.batch.common.regression.RegressionDetector;
+import com.sambouch.batch.common.regression.StepExecutionHistory;
+import com.sambouch.batch.common.repository.JobRepositoryMonitor;
+import com.sambouch.batch.common.resources.GcPressureMonitor;
+import com.sambouch.batch.common.resources.StepResourceMonitor;
+import com.sambouch.batch.common.transaction.TransactionMonitor;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepListener;
+import org.springframework.batch.core.repository.dao.AbstractJdbcBatchMetadataDao;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.batch.BatchDataSource;
+import org.springframework.boot.autoconfigure.batch.BatchProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -13,6 +45,11 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Auto-configuration for automatic Spring Batch monitoring.
@@ -38,30 +75,520 @@ public class BatchMonitoringAutoConfiguration {
     /**
      * Creates the performance monitoring listener.
      *
-     * <p>Spring Batch 5.x automatically registers {@link org.springframework.batch.core.JobExecutionListener}
-     * beans on all Jobs in the context.</p>
+     * <p>Registered on the Jobs and Steps of the context by the
+     * {@link AutomaticStepMonitoringPostProcessor}.</p>
      *
      * @param meterRegistry the Micrometer registry for metrics registration
+     * @param progressTracker the running step tracker, if enabled
+     * @param stepNames the mapping of step names to meter tags
+     * @param properties the monitoring properties
+     * @param slowChunks the slow chunk recorder, if enabled
      * @return the configured listener
      */
     @Bean
     @ConditionalOnMissingBean
-    public PerformanceMonitoringListener performanceMonitoringListener(MeterRegistry meterRegistry) {
+    public PerformanceMonitoringListener performanceMonitoringListener(MeterRegistry meterRegistry,
+                                                                       ObjectProvider<StepProgressTracker> progressTracker,
+                                                                       StepNameNormalizer stepNames,
+                                                                       MonitoringProperties properties,
+                                                                       ObjectProvider<SlowChunkRecorder> slowChunks) {
         log.info("Spring Batch Observability enabled");
-        return new PerformanceMonitoringListener( meterRegistry);
+        MonitoringProperties.Throughput throughput = properties.getThroughput();
+        WarmupDetector warmup = new WarmupDetector(throughput.getWarmupChunks(),
+                throughput.getStabilityWindow(), throughput.getStabilityTolerance());
+        return new PerformanceMonitoringListener( meterRegistry, progressTracker.getIfAvailable(), stepNames, warmup,
+                slowChunks.getIfAvailable());
+    }
+
+    /**
+     * Creates the filter applying the metric detail profile ({@code monitoring.metrics.*})
+     * to the distribution meters. Spring Boot applies it to the registries it configures.
+     *
+     * @param properties the monitoring properties
+     * @return the configured filter
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MetricDetailFilter metricDetailFilter(MonitoringProperties properties) {
+        log.info("Metric detail profile: {}", properties.getMetrics().getProfile());
+        return new MetricDetailFilter(properties.getMetrics());
+    }
+
+    /**
+     * Creates the mapping of step execution names to the tags of step meters, which
+     * folds partition workers into their worker step name.
+     *
+     * @param properties the monitoring properties
+     * @return the configured normalizer
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public StepNameNormalizer stepNameNormalizer(MonitoringProperties properties) {
+        MonitoringProperties.Partition partition = properties.getPartition();
+        return new StepNameNormalizer(partition.isNormalizeWorkerNames(), partition.isGroupTag());
+    }
+
+    /**
+     * Creates the default estimator of the expected total of a step, read from its
+     * {@code ExecutionContext}. Declare a {@link StepTotalEstimator} bean to replace it.
+     *
+     * @param properties the monitoring properties
+     * @return the configured estimator
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public StepTotalEstimator stepTotalEstimator(MonitoringProperties properties) {
+        return new ExecutionContextTotalEstimator(properties.getProgress().getExpectedTotalKey());
+    }
+
+    /**
+     * Creates the tracker of running steps behind the progress gauges.
+     *
+     * <p>Disabled with {@code monitoring.progress.enabled=false}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param totalEstimator the estimator of the expected total of a step
+     * @param properties the monitoring properties
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured tracker
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.progress", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public StepProgressTracker stepProgressTracker(MeterRegistry meterRegistry,
+                                                   StepTotalEstimator totalEstimator,
+                                                   MonitoringProperties properties,
+                                                   StepNameNormalizer stepNames) {
+        return new StepProgressTracker(meterRegistry, totalEstimator, properties.getProgress().getSmoothing(),
+                stepNames);
+    }
+
+    /**
+     * Creates the sampled read/process/write timing listener.
+     *
+     * <p>Enabled with {@code monitoring.item-timing.enabled=true}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param properties the monitoring properties
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured item listener
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.item-timing", name = "enabled", havingValue = "true")
+    public ItemPhaseMonitoringListener itemPhaseMonitoringListener(MeterRegistry meterRegistry,
+                                                                   MonitoringProperties properties,
+                                                                   StepNameNormalizer stepNames) {
+        log.info("Item-level timing enabled (sampling: {})", properties.getItemTiming().getSampling());
+        return new ItemPhaseMonitoringListener(meterRegistry, properties.getItemTiming(), stepNames);
+    }
+
+    /**
+     * Creates the partition skew monitor of partitioned steps.
+     *
+     * <p>Disabled with {@code monitoring.partition.enabled=false}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param properties the monitoring properties
+     * @return the configured monitor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.partition", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public PartitionMonitor partitionMonitor(MeterRegistry meterRegistry, MonitoringProperties properties) {
+        return new PartitionMonitor(meterRegistry, properties.getPartition().getStragglerThreshold());
+    }
+
+    /**
+     * Creates the cost analyzer and chunk size advisor of chunk-oriented steps.
+     *
+     * <p>Disabled with {@code monitoring.advisor.enabled=false}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param properties the monitoring properties
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured advisor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.advisor", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public StepCostAdvisor stepCostAdvisor(MeterRegistry meterRegistry, MonitoringProperties properties,
+                                           StepNameNormalizer stepNames) {
+        MonitoringProperties.Advisor advisor = properties.getAdvisor();
+        return new StepCostAdvisor(meterRegistry, stepNames, advisor.getTargetCommitShare(),
+                advisor.getMinChunkSize(), advisor.getMaxChunkSize(), advisor.getMinChunks(),
+                advisor.getLogThreshold());
+    }
+
+    /**
+     * Creates the detector of steps slower than their previous executions, seeded from
+     * the job repository tables when a {@link DataSource} is available.
+     *
+     * <p>Enabled with {@code monitoring.regression.enabled=true}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param batchDataSource the data source of Spring Batch, if a dedicated one is defined
+     * @param dataSource the data source of the job repository otherwise, if unique
+     * @param batchProperties the Spring Batch properties, for the table prefix
+     * @param stepNames the mapping of step names to meter tags
+     * @param properties the monitoring properties
+     * @return the configured detector
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.regression", name = "enabled", havingValue = "true")
+    public RegressionDetector regressionDetector(MeterRegistry meterRegistry,
+                                                 @BatchDataSource ObjectProvider<DataSource> batchDataSource,
+                                                 ObjectProvider<DataSource> dataSource,
+                                                 ObjectProvider<BatchProperties> batchProperties,
+                                                 StepNameNormalizer stepNames,
+                                                 MonitoringProperties properties) {
+        MonitoringProperties.Regression regression = properties.getRegression();
+        DataSource repositoryDataSource = batchDataSource.getIfAvailable(dataSource::getIfUnique);
+        StepExecutionHistory history = null;
+        if (repositoryDataSource != null) {
+            String tablePrefix = batchProperties.getIfAvailable(BatchProperties::new).getJdbc().getTablePrefix();
+            history = new JdbcStepExecutionHistory(repositoryDataSource,
+                    tablePrefix != null ? tablePrefix : AbstractJdbcBatchMetadataDao.DEFAULT_TABLE_PREFIX,
+                    regression.getMaxHistoryInstances());
+        }
+        return new RegressionDetector(meterRegistry, history, stepNames,
+                regression.getWindow(), regression.getMinSamples(), regression.getThreshold(),
+                regression.getMinDuration());
+    }
+
+    /**
+     * Creates the monitor attributing CPU time and heap allocation to steps and chunks.
+     *
+     * <p>Disabled with {@code monitoring.resources.enabled=false}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured monitor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.resources", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public StepResourceMonitor stepResourceMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        return new StepResourceMonitor(meterRegistry, stepNames);
+    }
+
+    /**
+     * Creates the monitor attributing garbage collection pauses and old generation
+     * occupancy to the running steps. It stops listening to the collectors when the
+     * context is closed.
+     *
+     * <p>Disabled with {@code monitoring.resources.gc=false}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured monitor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = "com.sun.management.GarbageCollectionNotificationInfo")
+    @ConditionalOnProperty(prefix = "monitoring.resources", name = "gc", havingValue = "true", matchIfMissing = true)
+    public GcPressureMonitor gcPressureMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        return new GcPressureMonitor(meterRegistry, stepNames);
+    }
+
+    /**
+     * Creates the listener emitting the JFR events of jobs, steps and chunks.
+     *
+     * <p>Disabled with {@code monitoring.jfr.enabled=false}.</p>
+     *
+     * @return the configured listener
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = "jdk.jfr.Event")
+    @ConditionalOnProperty(prefix = "monitoring.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FlightRecorderListener flightRecorderListener() {
+        return new FlightRecorderListener();
+    }
+
+    /**
+     * Creates the recorder starting a JFR recording when a step runs longer than the
+     * threshold. It writes the recording in progress when the context is closed.
+     *
+     * <p>Enabled with {@code monitoring.jfr.slow-step.enabled=true}.</p>
+     *
+     * @param properties the monitoring properties
+     * @return the configured recorder
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = "jdk.jfr.Recording")
+    @ConditionalOnProperty(prefix = "monitoring.jfr.slow-step", name = "enabled", havingValue = "true")
+    public SlowStepRecorder slowStepRecorder(MonitoringProperties properties) {
+        MonitoringProperties.SlowStep slowStep = properties.getJfr().getSlowStep();
+        return new SlowStepRecorder(slowStep.getThreshold(), Path.of(slowStep.getDirectory()),
+                slowStep.getMaxDuration(), slowStep.getMaxSize(), slowStep.getSettings(),
+                slowStep.getCheckInterval());
+    }
+
+    /**
+     * Creates the sampler of the stacks of the threads running the allow-listed steps.
+     * It stops sampling when the context is closed.
+     *
+     * <p>Enabled with {@code monitoring.profiler.enabled=true}.</p>
+     *
+     * @param properties the monitoring properties
+     * @return the configured sampler
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.profiler", name = "enabled", havingValue = "true")
+    public StepStackSampler stepStackSampler(MonitoringProperties properties) {
+        MonitoringProperties.Profiler profiler = properties.getProfiler();
+        if (profiler.getSteps().isEmpty()) {
+            log.warn("⚠️ Step profiler enabled without monitoring.profiler.steps, no step will be sampled");
+        }
+        return new StepStackSampler(profiler.getSteps(), profiler.getInterval(), profiler.getMaxOverhead(),
+                profiler.getMaxDepth(), profiler.getMaxStacks(), Path.of(profiler.getDirectory()));
+    }
+
+    /**
+     * Creates the history of running and completed job executions.
+     *
+     * <p>Disabled with {@code monitoring.history.enabled=false}.</p>
+     *
+     * @param properties the monitoring properties
+     * @return the configured history
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.history", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ExecutionHistory executionHistory(MonitoringProperties properties) {
+        return new ExecutionHistory(properties.getHistory().getCapacity());
+    }
+
+    /**
+     * Creates the recorder of the chunks slower than a fixed SLO or than the rolling
+     * quantile of their step.
+     *
+     * <p>Disabled with {@code monitoring.slow-chunks.enabled=false}.</p>
+     *
+     * @param stepNames the mapping of step names to meter tags
+     * @param properties the monitoring properties
+     * @return the configured recorder
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.slow-chunks", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SlowChunkRecorder slowChunkRecorder(StepNameNormalizer stepNames, MonitoringProperties properties) {
+        MonitoringProperties.SlowChunks slowChunks = properties.getSlowChunks();
+        return new SlowChunkRecorder(stepNames, slowChunks.getCapacity(), slowChunks.getSlo(),
+                slowChunks.getQuantile(), slowChunks.getMinSamples(), slowChunks.getWindow());
     }
 
     /**
      * Creates the BeanPostProcessor that automatically registers the listener
      * on all Steps created by Spring.
      *
+     * <p>Static, and the listeners are resolved on the first Job or Step, so that the
+     * meter registry is created after the other post-processors are registered and gets
+     * configured by Spring Boot (common tags, meter filters).</p>
+     *
      * @param listener the listener to register on Steps
+     * @param itemPhaseListener the item-level listener, if enabled
+     * @param partitionMonitor the partition skew monitor, if enabled
+     * @param advisor the step cost advisor, if enabled
+     * @param history the execution history, if enabled
+     * @param regressionDetector the step regression detector, if enabled
+     * @param resourceMonitor the step CPU and allocation monitor, if enabled
+     * @param gcMonitor the step GC pressure monitor, if enabled
+     * @param flightRecorderListener the JFR event listener, if enabled
+     * @param slowStepRecorder the JFR recorder of slow steps, if enabled
+     * @param stackSampler the step stack sampler, if enabled
+     * @param transactionMonitor the chunk transaction monitor, if enabled
+     * @param repositoryMonitor the job repository monitor, if enabled
+     * @param pushGatewayListener the Pushgateway listener of the jobs, if enabled
      * @return the configured post-processor
      */
     @Bean
-    public AutomaticStepMonitoringPostProcessor automaticStepMonitoringPostProcessor(PerformanceMonitoringListener listener) {
+    public static AutomaticStepMonitoringPostProcessor automaticStepMonitoringPostProcessor(
+            ObjectProvider<PerformanceMonitoringListener> listener,
+            ObjectProvider<ItemPhaseMonitoringListener> itemPhaseListener,
+            ObjectProvider<PartitionMonitor> partitionMonitor,
+            ObjectProvider<StepCostAdvisor> advisor,
+            ObjectProvider<ExecutionHistory> history,
+            ObjectProvider<RegressionDetector> regressionDetector,
+            ObjectProvider<StepResourceMonitor> resourceMonitor,
+            ObjectProvider<GcPressureMonitor> gcMonitor,
+            ObjectProvider<FlightRecorderListener> flightRecorderListener,
+            ObjectProvider<SlowStepRecorder> slowStepRecorder,
+            ObjectProvider<StepStackSampler> stackSampler,
+            ObjectProvider<TransactionMonitor> transactionMonitor,
+            ObjectProvider<JobRepositoryMonitor> repositoryMonitor,
+            ObjectProvider<PushGatewayJobListener> pushGatewayListener) {
         log.info("Auto-registration of listeners on Jobs and Steps");
-        return new AutomaticStepMonitoringPostProcessor(listener);
+        return new AutomaticStepMonitoringPostProcessor(listener, itemPhaseListener, partitionMonitor,
+                () -> {
+                    List<StepListener> stepListeners = new ArrayList<>();
+                    advisor.ifAvailable(stepListeners::add);
+                    regressionDetector.ifAvailable(stepListeners::add);
+                    resourceMonitor.ifAvailable(stepListeners::add);
+                    gcMonitor.ifAvailable(stepListeners::add);
+                    flightRecorderListener.ifAvailable(stepListeners::add);
+                    slowStepRecorder.ifAvailable(stepListeners::add);
+                    stackSampler.ifAvailable(stepListeners::add);
+                    transactionMonitor.ifAvailable(stepListeners::add);
+                    repositoryMonitor.ifAvailable(stepListeners::add);
+                    return stepListeners;
+                },
+                () -> {
+                    List<JobExecutionListener> jobListeners = new ArrayList<>();
+                    history.ifAvailable(jobListeners::add);
+                    flightRecorderListener.ifAvailable(jobListeners::add);
+                    pushGatewayListener.ifAvailable(jobListeners::add);
+                    return jobListeners;
+                });
+    }
+
+    /**
+     * Creates the JDBC meters of the steps, recorded by the monitored data sources.
+     *
+     * <p>Enabled with {@code monitoring.jdbc.enabled=true}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured meters
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = "org.springframework.jdbc.datasource.DelegatingDataSource")
+    @ConditionalOnProperty(prefix = "monitoring.jdbc", name = "enabled", havingValue = "true")
+    public StepJdbcMetrics stepJdbcMetrics(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        return new StepJdbcMetrics(meterRegistry, stepNames);
+    }
+
+    /**
+     * Creates the BeanPostProcessor that wraps the DataSources of the context to attribute
+     * their statements, rows, batches and connection waits to the running steps.
+     *
+     * <p>Static, so that it is created before the DataSources without initializing this
+     * configuration early.</p>
+     *
+     * @param metrics the JDBC meters of the steps, resolved on the first connection
+     * @return the configured post-processor
+     */
+    @Bean
+    @ConditionalOnClass(name = "org.springframework.jdbc.datasource.DelegatingDataSource")
+    @ConditionalOnProperty(prefix = "monitoring.jdbc", name = "enabled", havingValue = "true")
+    public static MonitoredDataSourcePostProcessor monitoredDataSourcePostProcessor(
+            ObjectProvider<StepJdbcMetrics> metrics) {
+        return new MonitoredDataSourcePostProcessor(metrics);
+    }
+
+    /**
+     * Creates the monitor of the chunk transactions, timing their begin, commit and
+     * rollback and reporting the commit share of the chunk time.
+     *
+     * <p>Enabled with {@code monitoring.transactions.enabled=true}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured monitor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.transactions", name = "enabled", havingValue = "true")
+    public TransactionMonitor transactionMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        return new TransactionMonitor(meterRegistry, stepNames);
+    }
+
+    /**
+     * Creates the BeanPostProcessor that decorates the transaction manager of the tasklet
+     * Steps with the transaction monitor.
+     *
+     * <p>Static, so that it is registered without initializing this configuration and the
+     * meter registry early.</p>
+     *
+     * @param monitor the monitor of the chunk transactions, resolved on the first Step
+     * @return the configured post-processor
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "monitoring.transactions", name = "enabled", havingValue = "true")
+    public static MonitoredTransactionManagerPostProcessor monitoredTransactionManagerPostProcessor(
+            ObjectProvider<TransactionMonitor> monitor) {
+        return new MonitoredTransactionManagerPostProcessor(monitor);
+    }
+
+    /**
+     * Creates the monitor of the job repository, timing its operations and the metadata
+     * overhead of each chunk.
+     *
+     * <p>Enabled with {@code monitoring.repository.enabled=true}.</p>
+     *
+     * @param meterRegistry the Micrometer registry for metrics registration
+     * @param stepNames the mapping of step names to meter tags
+     * @return the configured monitor
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "monitoring.repository", name = "enabled", havingValue = "true")
+    public JobRepositoryMonitor jobRepositoryMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        return new JobRepositoryMonitor(meterRegistry, stepNames);
+    }
+
+    /**
+     * Creates the BeanPostProcessor that decorates the job repository with the job
+     * repository monitor.
+     *
+     * <p>Static, so that it is registered without initializing this configuration and the
+     * meter registry early.</p>
+     *
+     * @param monitor the monitor of the repository operations, resolved on the first job
+     *                repository
+     * @return the configured post-processor
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "monitoring.repository", name = "enabled", havingValue = "true")
+    public static MonitoredJobRepositoryPostProcessor monitoredJobRepositoryPostProcessor(
+            ObjectProvider<JobRepositoryMonitor> monitor) {
+        return new MonitoredJobRepositoryPostProcessor(monitor);
+    }
+
+    /**
+     * Actuator endpoints, when Spring Boot Actuator is on the classpath.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class BatchMonitoringEndpointConfiguration {
+
+        /**
+         * Creates the {@code batchadvisor} endpoint exposing the last cost report of each step.
+         *
+         * @param advisor the step cost advisor
+         * @return the configured endpoint
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "monitoring.advisor", name = "enabled", havingValue = "true", matchIfMissing = true)
+        @ConditionalOnAvailableEndpoint
+        public StepCostEndpoint stepCostEndpoint(StepCostAdvisor advisor) {
+            return new StepCostEndpoint(advisor);
+        }
+
+        /**
+         * Creates the {@code batchperformance} endpoint showing running jobs and steps, the
+         * last completed executions and the last slow chunks.
+         *
+         * @param history the execution history
+         * @param progressTracker the running step tracker, if enabled
+         * @param slowChunks the slow chunk recorder, if enabled
+         * @return the configured endpoint
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "monitoring.history", name = "enabled", havingValue = "true", matchIfMissing = true)
+        @ConditionalOnAvailableEndpoint
+        public BatchPerformanceEndpoint batchPerformanceEndpoint(ExecutionHistory history,
+                                                                 ObjectProvider<StepProgressTracker> progressTracker,
+                                                                 ObjectProvider<SlowChunkRecorder> slowChunks) {
+            return new BatchPerformanceEndpoint(history, progressTracker.getIfAvailable(), slowChunks.getIfAvailable());
+        }
     }
 
 }
@@ -0,0 +1,42 @@
+package com.sambouch.batch.common.config;
+
+import com.sambouch.batch.common.jdbc.MonitoredDataSource;
+import com.sambouch.batch.common.jdbc.StepJdbcMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+
+/**
+ * Post-processor that wraps the {@link DataSource} beans of the context in a
+ * {@link MonitoredDataSource}, attributing their JDBC time to the running steps.
+ *
+ * <p>The {@link StepJdbcMetrics} are resolved on the first connection, so that the data
+ * sources do not depend on the meter registry when they are created.</p>
+ */
+public class MonitoredDataSourcePostProcessor implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitoredDataSourcePostProcessor.class);
+
+    private final SingletonSupplier<StepJdbcMetrics> metrics;
+
+    /**
+     * @param metrics the JDBC meters of the steps
+     */
+    public MonitoredDataSourcePostProcessor(ObjectProvider<StepJdbcMetrics> metrics) {
+        this.metrics = SingletonSupplier.of(metrics::getObject);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof DataSource dataSource && !(bean instanceof MonitoredDataSource)) {
+            log.debug(" JDBC monitoring enabled for DataSource: {}", beanName);
+            return new MonitoredDataSource(dataSource, metrics);
+        }
+        return bean;
+    }
+}
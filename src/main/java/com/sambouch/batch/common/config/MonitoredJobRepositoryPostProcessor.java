@@ -0,0 +1,47 @@
+package com.sambouch.batch.common.config;
+
+import com.sambouch.batch.common.repository.JobRepositoryMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * Post-processor that decorates the job repository beans of the context, so that the
+ * {@link JobRepositoryMonitor} times their operations.
+ *
+ * <p>The Steps and launchers built from the bean get the decorated repository.</p>
+ */
+public class MonitoredJobRepositoryPostProcessor implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitoredJobRepositoryPostProcessor.class);
+
+    private final SingletonSupplier<JobRepositoryMonitor> monitor;
+
+    /**
+     * @param monitor the monitor of the repository operations, also registered as a chunk
+     *                listener of the Steps
+     */
+    public MonitoredJobRepositoryPostProcessor(JobRepositoryMonitor monitor) {
+        this.monitor = SingletonSupplier.of(monitor);
+    }
+
+    /**
+     * @param monitor the monitor, resolved on the first bean decorated
+     */
+    public MonitoredJobRepositoryPostProcessor(ObjectProvider<JobRepositoryMonitor> monitor) {
+        this.monitor = SingletonSupplier.of(monitor::getObject);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof JobRepository jobRepository) {
+            log.debug(" Job repository monitoring enabled for: {}", beanName);
+            return monitor.obtain().decorate(jobRepository);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,52 @@
+package com.sambouch.batch.common.config;
+
+import com.sambouch.batch.common.transaction.TransactionMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Post-processor that decorates the transaction manager of the tasklet Steps of the
+ * context, so that the {@link TransactionMonitor} times their chunk transactions.
+ *
+ * <p>The transaction manager beans are left as they are: the job repository and the
+ * rest of the application keep using them directly.</p>
+ */
+public class MonitoredTransactionManagerPostProcessor implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(MonitoredTransactionManagerPostProcessor.class);
+
+    private final SingletonSupplier<TransactionMonitor> monitor;
+
+    /**
+     * @param monitor the monitor of the chunk transactions, also registered as a listener
+     *                of the Steps
+     */
+    public MonitoredTransactionManagerPostProcessor(TransactionMonitor monitor) {
+        this.monitor = SingletonSupplier.of(monitor);
+    }
+
+    /**
+     * @param monitor the monitor, resolved on the first bean decorated
+     */
+    public MonitoredTransactionManagerPostProcessor(ObjectProvider<TransactionMonitor> monitor) {
+        this.monitor = SingletonSupplier.of(monitor::getObject);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof TaskletStep taskletStep
+                && new DirectFieldAccessor(taskletStep).getPropertyValue("transactionManager")
+                instanceof PlatformTransactionManager transactionManager) {
+            taskletStep.setTransactionManager(monitor.obtain().decorate(transactionManager));
+            log.debug(" Transaction monitoring enabled for Step: {}", beanName);
+        }
+        return bean;
+    }
+}
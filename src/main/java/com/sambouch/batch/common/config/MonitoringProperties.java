@@ -1,8 +1,15 @@
 package com.sambouch.batch.common.config;
 
+import com.sambouch.batch.common.metrics.MeterFamily;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Configuration properties for Spring Batch monitoring.
  *
@@ -38,6 +45,81 @@ public class MonitoringProperties {
      */
     private Prometheus prometheus = new Prometheus();
 
+    /**
+     * Item-level read/process/write timing
+     */
+    private ItemTiming itemTiming = new ItemTiming();
+
+    /**
+     * Live progress of running steps
+     */
+    private Progress progress = new Progress();
+
+    /**
+     * Per-chunk throughput and warm-up detection
+     */
+    private Throughput throughput = new Throughput();
+
+    /**
+     * Cost analysis and chunk size advice of chunk-oriented steps
+     */
+    private Advisor advisor = new Advisor();
+
+    /**
+     * Running jobs and summaries of the last executions
+     */
+    private History history = new History();
+
+    /**
+     * Recording of the chunks slower than the threshold of their step
+     */
+    private SlowChunks slowChunks = new SlowChunks();
+
+    /**
+     * CPU time and heap allocation of steps and chunks
+     */
+    private Resources resources = new Resources();
+
+    /**
+     * Java Flight Recorder events and recordings of slow steps
+     */
+    private Jfr jfr = new Jfr();
+
+    /**
+     * Stack sampling of the threads running the allow-listed steps
+     */
+    private Profiler profiler = new Profiler();
+
+    /**
+     * JDBC time, rows and batches of the running steps
+     */
+    private Jdbc jdbc = new Jdbc();
+
+    /**
+     * Begin, commit and rollback time of the chunk transactions
+     */
+    private Transactions transactions = new Transactions();
+
+    /**
+     * Operation time of the job repository and metadata overhead of the chunks
+     */
+    private Repository repository = new Repository();
+
+    /**
+     * Detection of steps slower than their previous executions
+     */
+    private Regression regression = new Regression();
+
+    /**
+     * Partitioned step monitoring
+     */
+    private Partition partition = new Partition();
+
+    /**
+     * Detail of the distribution meters (histograms, percentiles)
+     */
+    private Metrics metrics = new Metrics();
+
     @Data
     public static class Prometheus {
         private Pushgateway pushgateway = new Pushgateway();
@@ -45,6 +127,12 @@ public class MonitoringProperties {
 
     @Data
     public static class Pushgateway {
+        /**
+         * Enables the push of metrics at the end of each job.
+         * Default: false
+         */
+        private boolean enabled = false;
+
         /**
          * Pushgateway  URL
          */
@@ -54,6 +142,591 @@ public class MonitoringProperties {
          * Job name in Prometheus
          */
         private String job = "spring-batch";
+
+        /**
+         * Timeout to establish the connection to the Pushgateway
+         */
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Timeout of a push request
+         */
+        private Duration requestTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Gzip-compresses push request bodies (requires a Pushgateway accepting
+         * {@code Content-Encoding: gzip}).
+         * Default: false
+         */
+        private boolean gzip = false;
+
+        /**
+         * Asynchronous export, off the job thread
+         */
+        private Async async = new Async();
+
+        /**
+         * Selection of the series sent with each push
+         */
+        private Payload payload = new Payload();
+
+        /**
+         * Pushes while jobs are running
+         */
+        private Periodic periodic = new Periodic();
+
+        /**
+         * Cleanup of the groups of past executions
+         */
+        private Lifecycle lifecycle = new Lifecycle();
+    }
+
+    @Data
+    public static class Lifecycle {
+        /**
+         * Pushes all the executions of a job to a single group (grouped by
+         * {@code instance} only) instead of one group per execution.
+         * Default: false
+         */
+        private boolean groupPerJob = false;
+
+        /**
+         * Deletes the groups of the previous executions of a job when it completes successfully.
+         * Default: true
+         */
+        private boolean deletePreviousOnSuccess = true;
+
+        /**
+         * Number of executions per job whose groups are kept, 0 to keep them all
+         */
+        private int keepLast = 0;
+
+        /**
+         * Deletes the groups of the application not pushed for this long (e.g. executions
+         * killed before completing). Disabled when not set.
+         */
+        private Duration ttl;
+
+        /**
+         * Interval of the TTL sweep
+         */
+        private Duration sweepInterval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Periodic {
+        /**
+         * Pushes the metrics of running jobs at a fixed interval, in addition to the
+         * final push at completion.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Interval between two pushes of a running job
+         */
+        private Duration interval = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Payload {
+        /**
+         * Sends only the series of the finishing job (plus {@code include-metrics})
+         * instead of the whole registry.
+         * Default: false
+         */
+        private boolean jobScoped = false;
+
+        /**
+         * Prometheus label holding the job name on batch metrics
+         */
+        private String jobLabel = "job_name";
+
+        /**
+         * Metric name prefixes always sent when the payload is job-scoped (e.g. jvm_memory)
+         */
+        private List<String> includeMetrics = new ArrayList<>();
+
+        /**
+         * Metric name prefixes never sent (e.g. tomcat_, hikaricp_)
+         */
+        private List<String> excludeMetrics = new ArrayList<>();
+    }
+
+    @Data
+    public static class Async {
+        /**
+         * Pushes from a background thread instead of the thread running afterJob.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of pending pushes; further pushes are dropped
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * Pushes to the same group received within this window are sent once
+         */
+        private Duration coalesceWindow = Duration.ofMillis(500);
+
+        /**
+         * Number of retries of a failed push
+         */
+        private int maxRetries = 3;
+
+        /**
+         * Delay before the first retry, doubled at each retry
+         */
+        private Duration initialBackoff = Duration.ofMillis(500);
+
+        /**
+         * Upper bound of the retry delay
+         */
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        /**
+         * Maximum time spent flushing pending pushes at shutdown
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Progress {
+        /**
+         * Exposes items read, rate, ratio and ETA gauges of running steps.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Step ExecutionContext key holding the expected total of items
+         */
+        private String expectedTotalKey = "batch.progress.expected.total";
+
+        /**
+         * Weight of the last chunk in the smoothed rate, in (0, 1]
+         */
+        private double smoothing = 0.3;
     }
-}
 
+    @Data
+    public static class Throughput {
+        /**
+         * Maximum number of chunks of the warm-up phase of a step
+         */
+        private int warmupChunks = 10;
+
+        /**
+         * Number of consecutive chunks whose rates must be stable to end the warm-up
+         */
+        private int stabilityWindow = 5;
+
+        /**
+         * Maximum coefficient of variation of the rates of a stable window; 0 ends the
+         * warm-up after {@code warmup-chunks} chunks
+         */
+        private double stabilityTolerance = 0.1;
+    }
+
+    @Data
+    public static class Advisor {
+        /**
+         * Splits the time of chunk-oriented steps into read / process, write, commit and
+         * retry costs, and advises a chunk size.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Fraction of the chunk time the commit overhead should not exceed, in (0, 1)
+         */
+        private double targetCommitShare = 0.05;
+
+        /**
+         * Lower bound of the advised chunk size
+         */
+        private int minChunkSize = 1;
+
+        /**
+         * Upper bound of the advised chunk size
+         */
+        private int maxChunkSize = 1000;
+
+        /**
+         * Steps with fewer chunks are not analyzed
+         */
+        private int minChunks = 10;
+
+        /**
+         * Expected saving (fraction of the step time) from which the advice is logged at INFO
+         */
+        private double logThreshold = 0.1;
+    }
+
+    @Data
+    public static class History {
+        /**
+         * Keeps track of running jobs and of the last completed executions, served by the
+         * {@code batchperformance} actuator endpoint.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of completed job executions kept
+         */
+        private int capacity = 50;
+    }
+
+    @Data
+    public static class SlowChunks {
+        /**
+         * Keeps the last slow chunks, served by the {@code batchperformance} actuator endpoint.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of slow chunks kept
+         */
+        private int capacity = 100;
+
+        /**
+         * Fixed chunk duration above which a chunk is slow. When not set, the rolling
+         * quantile of the previous chunk durations of the step is used.
+         */
+        private Duration slo;
+
+        /**
+         * Quantile of the previous chunk durations of a step used as threshold
+         */
+        private double quantile = 0.99;
+
+        /**
+         * Chunks of a step seen before the rolling quantile is used
+         */
+        private int minSamples = 100;
+
+        /**
+         * Chunks after which the weight of the previous durations is halved
+         */
+        private int window = 1000;
+
+        /**
+         * Attaches the slow chunks as exemplars to {@code batch.chunk.duration} on the
+         * Prometheus registry configured by Spring Boot
+         */
+        private boolean exemplars = true;
+    }
+
+    @Data
+    public static class Resources {
+        /**
+         * Records the CPU time and allocated bytes of steps and chunks, read from the
+         * {@code ThreadMXBean} of the threads running them.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Attributes garbage collection pauses and old generation occupancy to the steps
+         * running at the time, from the {@code GarbageCollectorMXBean} notifications.
+         * Default: true
+         */
+        private boolean gc = true;
+    }
+
+    @Data
+    public static class Jfr {
+        /**
+         * Emits the {@code com.sambouch.batch.BatchJob}, {@code BatchStep} and
+         * {@code BatchChunk} JFR events. They cost nothing while no recording enables them.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * Recording started when a step runs longer than a threshold
+         */
+        private SlowStep slowStep = new SlowStep();
+    }
+
+    @Data
+    public static class SlowStep {
+        /**
+         * Starts a JFR recording when a step runs longer than the threshold, and writes
+         * it to the directory when the step ends.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Duration after which a running step is recorded.
+         * Default: 5m
+         */
+        private Duration threshold = Duration.ofMinutes(5);
+
+        /**
+         * Directory of the recording files.
+         * Default: jfr
+         */
+        private String directory = "jfr";
+
+        /**
+         * Longest recording, written after that even if the step still runs.
+         * Default: 5m
+         */
+        private Duration maxDuration = Duration.ofMinutes(5);
+
+        /**
+         * Largest recording file, in bytes, the oldest data being dropped.
+         * Default: 100 MB
+         */
+        private long maxSize = 100L * 1024 * 1024;
+
+        /**
+         * JFR settings of the recording: {@code default} (about 1% overhead) or
+         * {@code profile} (more detail, about 2%).
+         * Default: default
+         */
+        private String settings = "default";
+
+        /**
+         * Interval of the checks of the running steps against the threshold.
+         * Default: 1s
+         */
+        private Duration checkInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Profiler {
+        /**
+         * Samples the stacks of the threads running the steps of the allow-list, and
+         * writes them at the end of each step in the collapsed stack format.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Names of the sampled steps, {@code *} matching any characters.
+         */
+        private List<String> steps = new ArrayList<>();
+
+        /**
+         * Interval between two samplings, lengthened when needed to keep the sampling
+         * under {@code max-overhead}.
+         * Default: 20ms
+         */
+        private Duration interval = Duration.ofMillis(20);
+
+        /**
+         * Largest fraction of the time spent sampling; the samplings are spaced out when
+         * the stacks are deep or the threads many.
+         * Default: 0.01
+         */
+        private double maxOverhead = 0.01;
+
+        /**
+         * Deepest frames kept of each stack.
+         * Default: 128
+         */
+        private int maxDepth = 128;
+
+        /**
+         * Distinct stacks kept per step execution; the samples of the further ones are
+         * counted under a {@code [truncated]} stack.
+         * Default: 10000
+         */
+        private int maxStacks = 10_000;
+
+        /**
+         * Directory of the profiles.
+         * Default: profiles
+         */
+        private String directory = "profiles";
+    }
+
+    @Data
+    public static class Jdbc {
+        /**
+         * Wraps the {@code DataSource} beans to record the statement time, rows fetched,
+         * fetch round-trips, JDBC batch sizes and connection waits of the running steps.
+         * Default: false
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Transactions {
+        /**
+         * Decorates the transaction manager of the steps to time the begin, commit and
+         * rollback of their chunk transactions, and the commit share of the chunk time.
+         * Default: false
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Repository {
+        /**
+         * Decorates the job repository to time its operations by job and step, and the
+         * repository time of each chunk.
+         * Default: false
+         */
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Regression {
+        /**
+         * Compares each completed step with the median and MAD of its previous executions.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of previous executions in the baseline of a step
+         */
+        private int window = 30;
+
+        /**
+         * Executions needed in a baseline before steps are scored
+         */
+        private int minSamples = 5;
+
+        /**
+         * Score (distance to the median in scaled MADs) above which a regression is reported
+         */
+        private double threshold = 3.0;
+
+        /**
+         * Steps shorter than this, as well as their baseline median, are not scored
+         */
+        private Duration minDuration = Duration.ofSeconds(1);
+
+        /**
+         * Job instances whose step executions are read from the job repository when seeding
+         * the baselines of a job, once for all its steps
+         */
+        private int maxHistoryInstances = 40;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * Default detail of the distribution meters: MINIMAL (no distribution), STANDARD
+         * (histograms of job and step durations) or DETAILED (histograms of all of them).
+         */
+        private Profile profile = Profile.STANDARD;
+
+        /**
+         * Overrides of the profile per meter family (job-duration, step-duration,
+         * chunk-duration, chunk-phase-duration, chunk-throughput, step-throughput, partition-duration,
+         * partition-items)
+         */
+        private Map<MeterFamily, Distribution> distributions = new EnumMap<>(MeterFamily.class);
+
+        public enum Profile {
+            MINIMAL,
+            STANDARD,
+            DETAILED
+        }
+    }
+
+    @Data
+    public static class Distribution {
+        /**
+         * What is published besides count, total and max: NONE, SLO (configured buckets),
+         * PERCENTILES (computed client-side) or HISTOGRAM (full percentile histogram)
+         */
+        private Mode mode;
+
+        /**
+         * Percentiles published in PERCENTILES mode
+         */
+        private List<Double> percentiles = new ArrayList<>(List.of(0.5, 0.95, 0.99));
+
+        /**
+         * Bucket boundaries in SLO mode, in seconds for durations; defaults per family
+         */
+        private List<Double> slos = new ArrayList<>();
+
+        /**
+         * Lower bound of the histogram buckets, in seconds for durations
+         */
+        private Double minimumExpectedValue;
+
+        /**
+         * Upper bound of the histogram buckets, in seconds for durations
+         */
+        private Double maximumExpectedValue;
+
+        public enum Mode {
+            NONE,
+            SLO,
+            PERCENTILES,
+            HISTOGRAM
+        }
+    }
+
+    @Data
+    public static class Partition {
+        /**
+         * Analyzes the spread of work across the partitions of partitioned steps.
+         * Default: true
+         */
+        private boolean enabled = true;
+
+        /**
+         * A partition is a straggler when it runs over this multiple of the median
+         * partition duration
+         */
+        private double stragglerThreshold = 2.0;
+
+        /**
+         * Tags the meters of partition workers ({@code step:partitionN}, {@code step:key-N})
+         * with the worker step name, so that all partitions share one set of series.
+         * Default: false
+         */
+        private boolean normalizeWorkerNames = false;
+
+        /**
+         * Adds a {@code partition.group} tag (partition key without its index, {@code none}
+         * for steps that are not partition workers) to step meters.
+         * Default: false
+         */
+        private boolean groupTag = false;
+    }
+
+    @Data
+    public static class ItemTiming {
+        /**
+         * Enables sampled read/process/write phase timers on chunk-oriented steps.
+         * Default: false
+         */
+        private boolean enabled = false;
+
+        /**
+         * How items are selected for timing: one item every {@code sample-rate} items
+         * (COUNT), or at most one item per {@code sample-interval} (TIME).
+         */
+        private SamplingMode sampling = SamplingMode.COUNT;
+
+        /**
+         * Times one item out of N when sampling is COUNT
+         */
+        private int sampleRate = 100;
+
+        /**
+         * Minimum delay between two timed items when sampling is TIME
+         */
+        private Duration sampleInterval = Duration.ofMillis(10);
+
+        public enum SamplingMode {
+            COUNT,
+            TIME
+        }
+    }
+}
@@ -1,25 +1,41 @@
 package com.sambouch.batch.common.config;
 
+import com.sambouch.batch.common.pushgateway.AsyncPushGatewayExporter;
+import com.sambouch.batch.common.pushgateway.PushGatewayClient;
+import com.sambouch.batch.common.pushgateway.PushGatewayExporter;
+import com.sambouch.batch.common.pushgateway.PushGatewayGroupLifecycle;
+import com.sambouch.batch.common.pushgateway.PushGatewayJobListener;
+import com.sambouch.batch.common.pushgateway.PushPayloadFilter;
+import com.sambouch.batch.common.pushgateway.SynchronousPushGatewayExporter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.CollectorRegistry;
-import io.prometheus.client.exporter.PushGateway;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.core.JobExecution;
-import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
 
 /**
  * Configuration for pushing metrics to Prometheus Pushgateway.
  * Compatible with simpleclient_pushgateway 0.16.0
+ *
+ * <p>Pushes are sent on the thread running {@code afterJob}, or from a background
+ * sender when {@code monitoring.prometheus.pushgateway.async.enabled=true}. Running jobs
+ * are also pushed periodically when {@code monitoring.prometheus.pushgateway.periodic.enabled=true}.
+ * The groups of past executions are cleaned up according to
+ * {@code monitoring.prometheus.pushgateway.lifecycle.*}.</p>
  */
 @Configuration
 @ConditionalOnClass(name = "io.prometheus.client.exporter.PushGateway")
@@ -28,73 +44,147 @@ public class PrometheusPushGatewayConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(PrometheusPushGatewayConfiguration.class);
 
-    @Bean
-    @ConditionalOnProperty(name = "monitoring.prometheus.pushgateway.url")
-    public JobExecutionListener prometheusPushGatewayListener(
-            MeterRegistry meterRegistry,
-            MonitoringProperties properties) {
+    // Needed to list the groups of the Pushgateway
+    private static final String JACKSON_OBJECT_MAPPER = "com.fasterxml.jackson.databind.ObjectMapper";
 
-        log.info("✅  Pushgateway Configuration (simpleclient 0.16.0): {}",
-                properties.getPrometheus().getPushgateway().getUrl());
+    @Bean
+    @ConditionalOnMissingBean
+    public PushGatewayClient pushGatewayClient(MonitoringProperties properties) {
+        MonitoringProperties.Pushgateway pushgateway = properties.getPrometheus().getPushgateway();
+        return new PushGatewayClient(pushgateway.getUrl(),
+                pushgateway.getConnectTimeout(),
+                pushgateway.getRequestTimeout(),
+                pushgateway.isGzip());
+    }
 
-        return new JobExecutionListener() {
-            @Override
-            public void beforeJob(JobExecution jobExecution) {
-                log.debug("Job started: {}", jobExecution.getJobInstance().getJobName());
-            }
+    @Bean
+    @ConditionalOnMissingBean
+    public PushPayloadFilter pushPayloadFilter(MonitoringProperties properties) {
+        MonitoringProperties.Payload payload = properties.getPrometheus().getPushgateway().getPayload();
+        return new PushPayloadFilter(payload.isJobScoped(),
+                payload.getJobLabel(),
+                payload.getIncludeMetrics(),
+                payload.getExcludeMetrics());
+    }
 
-            @Override
-            public void afterJob(JobExecution jobExecution) {
-                log.debug("Job completed: {} with status: {}",
-                        jobExecution.getJobInstance().getJobName(),
-                        jobExecution.getStatus());
-                log.debug("Job completed: {} with status: {}",
-                        jobExecution.getJobInstance().getJobName(),
-                        jobExecution.getStatus());
-
-                // Appeler pushMetrics après la fin du job
-                pushMetrics(meterRegistry, jobExecution, properties);
-            }
-        };
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "monitoring.prometheus.pushgateway.async.enabled", havingValue = "true")
+    public AsyncPushGatewayExporter asyncPushGatewayExporter(PushGatewayClient client,
+                                                             PushPayloadFilter payloadFilter,
+                                                             MeterRegistry meterRegistry,
+                                                             MonitoringProperties properties) {
+        MonitoringProperties.Async async = properties.getPrometheus().getPushgateway().getAsync();
+        log.info("✅  Asynchronous Pushgateway export (queue capacity: {}, coalesce window: {})",
+                async.getQueueCapacity(), async.getCoalesceWindow());
+        return new AsyncPushGatewayExporter(client,
+                collectorRegistry(meterRegistry),
+                payloadFilter,
+                meterRegistry,
+                async.getQueueCapacity(),
+                async.getCoalesceWindow(),
+                async.getMaxRetries(),
+                async.getInitialBackoff(),
+                async.getMaxBackoff(),
+                async.getShutdownTimeout());
     }
 
-    private void pushMetrics(MeterRegistry meterRegistry,
-                             JobExecution jobExecution,
-                             MonitoringProperties properties) {
-        try {
-            if (!(meterRegistry instanceof PrometheusMeterRegistry)) {
-                log.warn("⚠️  MeterRegistry is not of type Prometheus");
-                return;
-            }
+    @Bean
+    @ConditionalOnMissingBean
+    public PushGatewayExporter synchronousPushGatewayExporter(PushGatewayClient client,
+                                                              PushPayloadFilter payloadFilter,
+                                                              MeterRegistry meterRegistry) {
+        return new SynchronousPushGatewayExporter(client, collectorRegistry(meterRegistry), payloadFilter);
+    }
 
-            PrometheusMeterRegistry prometheusRegistry = (PrometheusMeterRegistry) meterRegistry;
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(name = JACKSON_OBJECT_MAPPER)
+    @Conditional(LifecyclePolicyCondition.class)
+    public PushGatewayGroupLifecycle pushGatewayGroupLifecycle(PushGatewayClient client,
+                                                               PushGatewayExporter exporter,
+                                                               MonitoringProperties properties) {
+        MonitoringProperties.Lifecycle lifecycle = properties.getPrometheus().getPushgateway().getLifecycle();
+        if (lifecycle.getTtl() != null) {
+            log.info("✅  Pushgateway groups not pushed for {} are deleted", lifecycle.getTtl());
+        }
+        return new PushGatewayGroupLifecycle(client,
+                exporter,
+                properties.getApplicationName(),
+                lifecycle.isDeletePreviousOnSuccess(),
+                lifecycle.getKeepLast(),
+                lifecycle.getTtl(),
+                lifecycle.getSweepInterval());
+    }
 
-            // ---------------------------------------
-            CollectorRegistry collectorRegistry = prometheusRegistry.getPrometheusRegistry();
+    @Bean
+    @ConditionalOnProperty(name = "monitoring.prometheus.pushgateway.url")
+    public PushGatewayJobListener prometheusPushGatewayListener(
+            PushGatewayExporter exporter,
+            ObjectProvider<PushGatewayGroupLifecycle> lifecycle,
+            MonitoringProperties properties,
+            ResourceLoader resourceLoader) {
+
+        MonitoringProperties.Pushgateway pushgateway = properties.getPrometheus().getPushgateway();
+        log.info("✅  Pushgateway Configuration (simpleclient 0.16.0): {}", pushgateway.getUrl());
+
+        Duration pushInterval = null;
+        if (pushgateway.getPeriodic().isEnabled()) {
+            pushInterval = pushgateway.getPeriodic().getInterval();
+            log.info("✅  Periodic push of running jobs every {}", pushInterval);
+        }
+        MonitoringProperties.Lifecycle policy = pushgateway.getLifecycle();
+        boolean policyActive = policy.isDeletePreviousOnSuccess() || policy.getKeepLast() > 0 || policy.getTtl() != null;
+        if (policyActive && !ClassUtils.isPresent(JACKSON_OBJECT_MAPPER, resourceLoader.getClassLoader())) {
+            log.warn("⚠️ Jackson is not on the classpath: Pushgateway groups cannot be listed, so the groups of "
+                    + "past executions are never deleted (monitoring.prometheus.pushgateway.lifecycle.* ignored)");
+        }
+        return new PushGatewayJobListener(exporter, properties.getApplicationName(), pushInterval,
+                policy.isGroupPerJob(), lifecycle.getIfAvailable());
+    }
 
-            String jobName = jobExecution.getJobInstance().getJobName();
-            String url = properties.getPrometheus().getPushgateway().getUrl();
-            String applicationName = properties.getApplicationName();
+    /**
+     * Matches when at least one lifecycle policy deletes groups: deletion of the previous
+     * executions on success (the default), keeping the last N executions, or a TTL.
+     */
+    static class LifecyclePolicyCondition extends AnyNestedCondition {
 
-            // create PushGateway
-            PushGateway pushGateway = new PushGateway(url);
+        LifecyclePolicyCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
 
-            // Grouping key by labels additionnels
-            Map<String, String> groupingKey = new HashMap<>();
-            groupingKey.put("instance", applicationName);
-            groupingKey.put("job_execution_id", String.valueOf(jobExecution.getId()));
-            groupingKey.put("status", jobExecution.getStatus().toString());
+        @ConditionalOnProperty(prefix = "monitoring.prometheus.pushgateway.lifecycle",
+                name = "delete-previous-on-success", havingValue = "true", matchIfMissing = true)
+        static class DeletePreviousOnSuccess {
+        }
 
-            // Push and grouping key
-            pushGateway.push(collectorRegistry, jobName, groupingKey);
+        @ConditionalOnExpression("${monitoring.prometheus.pushgateway.lifecycle.keep-last:0} > 0")
+        static class KeepLast {
+        }
 
-            log.debug("✅ Metrics pushed to Pushgateway: {} (job: {})", url, jobName);
+        @ConditionalOnProperty(prefix = "monitoring.prometheus.pushgateway.lifecycle", name = "ttl")
+        static class Ttl {
+        }
+    }
 
-        } catch (IOException e) {
-            log.error("❌ Error pushing metrics to Pushgateway", e);
-        } catch (Exception e) {
-            log.error("❌ Unexpected error pushing metrics", e);
+    /**
+     * Finds the Prometheus registry, either the injected one or one of the registries
+     * of a composite.
+     *
+     * @return the registry to push, or {@code null} when there is no Prometheus registry
+     */
+    private static CollectorRegistry collectorRegistry(MeterRegistry meterRegistry) {
+        if (meterRegistry instanceof PrometheusMeterRegistry prometheusRegistry) {
+            return prometheusRegistry.getPrometheusRegistry();
+        }
+        if (meterRegistry instanceof CompositeMeterRegistry composite) {
+            for (MeterRegistry registry : composite.getRegistries()) {
+                if (registry instanceof PrometheusMeterRegistry prometheusRegistry) {
+                    return prometheusRegistry.getPrometheusRegistry();
+                }
+            }
         }
+        return null;
     }
 
 }
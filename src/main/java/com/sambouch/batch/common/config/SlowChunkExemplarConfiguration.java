@@ -0,0 +1,40 @@
+package com.sambouch.batch.common.config;
+
+import com.sambouch.batch.common.metrics.SlowChunkExemplarSampler;
+import io.prometheus.client.exemplars.DefaultExemplarSampler;
+import io.prometheus.client.exemplars.ExemplarSampler;
+import io.prometheus.client.exemplars.tracer.common.SpanContextSupplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration attaching the slow chunks as exemplars to {@code batch.chunk.duration}.
+ *
+ * <p>Spring Boot builds its {@code PrometheusMeterRegistry} with the {@link ExemplarSampler}
+ * bean, and only defines one, sampling trace ids, when tracing is set up. This
+ * configuration runs first and defines a {@link SlowChunkExemplarSampler} delegating to
+ * the trace sampler, so both kinds of exemplars are published.</p>
+ *
+ * <p>Disabled with {@code monitoring.slow-chunks.exemplars=false} or
+ * {@code monitoring.slow-chunks.enabled=false}.</p>
+ */
+@Configuration
+@AutoConfigureBefore(name = "org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration")
+@ConditionalOnClass(name = {"io.micrometer.prometheus.PrometheusMeterRegistry",
+        "io.prometheus.client.exemplars.ExemplarSampler"})
+@ConditionalOnProperty(prefix = "monitoring", name = {"enabled", "slow-chunks.enabled", "slow-chunks.exemplars"},
+        havingValue = "true", matchIfMissing = true)
+public class SlowChunkExemplarConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(ExemplarSampler.class)
+    public SlowChunkExemplarSampler slowChunkExemplarSampler(ObjectProvider<SpanContextSupplier> spanContextSupplier) {
+        SpanContextSupplier supplier = spanContextSupplier.getIfAvailable();
+        return new SlowChunkExemplarSampler(supplier != null ? new DefaultExemplarSampler(supplier) : null);
+    }
+}
@@ -0,0 +1,117 @@
+package com.sambouch.batch.common.history;
+
+import com.sambouch.batch.common.progress.StepProgress;
+import com.sambouch.batch.common.progress.StepProgressTracker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Actuator endpoint ({@code /actuator/batchperformance}) showing the running jobs and
+ * steps, the summaries of the last completed job executions and the last slow chunks.
+ *
+ * <p>Built from lock-free state only ({@link ExecutionHistory}, {@link StepProgressTracker}
+ * and {@link SlowChunkRecorder}): reading it never blocks the batch threads.</p>
+ */
+@Endpoint(id = "batchperformance")
+public class BatchPerformanceEndpoint {
+
+    private final ExecutionHistory history;
+    private final StepProgressTracker progressTracker;
+    private final SlowChunkRecorder slowChunks;
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} when progress is disabled
+     */
+    public BatchPerformanceEndpoint(ExecutionHistory history, StepProgressTracker progressTracker) {
+        this(history, progressTracker, null);
+    }
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} when progress is disabled
+     * @param slowChunks      recorder of the slow chunks, {@code null} when disabled
+     */
+    public BatchPerformanceEndpoint(ExecutionHistory history, StepProgressTracker progressTracker,
+                                    SlowChunkRecorder slowChunks) {
+        this.history = history;
+        this.progressTracker = progressTracker;
+        this.slowChunks = slowChunks;
+    }
+
+    @ReadOperation
+    public BatchPerformance performance() {
+        return new BatchPerformance(running(null), history.recentExecutions(), slowChunks(null));
+    }
+
+    @ReadOperation
+    public BatchPerformance jobPerformance(@Selector String jobName) {
+        return new BatchPerformance(running(jobName),
+                history.recentExecutions().stream()
+                        .filter(summary -> summary.jobName().equals(jobName))
+                        .toList(),
+                slowChunks(jobName));
+    }
+
+    private List<SlowChunk> slowChunks(String jobName) {
+        if (slowChunks == null) {
+            return List.of();
+        }
+        List<SlowChunk> chunks = slowChunks.slowChunks();
+        return jobName == null ? chunks : chunks.stream().filter(chunk -> chunk.jobName().equals(jobName)).toList();
+    }
+
+    private List<RunningJobDescriptor> running(String jobName) {
+        List<StepProgress> steps = progressTracker != null ? List.copyOf(progressTracker.runningSteps()) : List.of();
+        List<RunningJobDescriptor> jobs = new ArrayList<>();
+        for (ExecutionHistory.RunningJob job : history.runningJobs()) {
+            if (jobName != null && !jobName.equals(job.jobName())) {
+                continue;
+            }
+            List<RunningStepDescriptor> jobSteps = steps.stream()
+                    .filter(step -> Objects.equals(step.getJobExecutionId(), job.jobExecutionId()))
+                    .sorted(Comparator.comparing(StepProgress::getStartTime))
+                    .map(RunningStepDescriptor::new)
+                    .toList();
+            jobs.add(new RunningJobDescriptor(job.jobName(), job.jobExecutionId(), job.startTime(), job.elapsed(),
+                    jobSteps));
+        }
+        jobs.sort(Comparator.comparing(RunningJobDescriptor::startTime));
+        return jobs;
+    }
+
+    /**
+     * Running and recently completed job executions, and the last slow chunks, newest first.
+     */
+    public record BatchPerformance(List<RunningJobDescriptor> running, List<JobExecutionSummary> recent,
+                                   List<SlowChunk> slowChunks) {
+    }
+
+    public record RunningJobDescriptor(String jobName, Long jobExecutionId, Instant startTime, Duration elapsed,
+                                       List<RunningStepDescriptor> steps) {
+    }
+
+    /**
+     * @param rate            smoothed items read per second
+     * @param ratio           fraction of the expected total read, {@code null} when unknown
+     * @param eta             estimated remaining time, {@code null} when unknown
+     * @param currentChunkAge time since the last chunk commit
+     */
+    public record RunningStepDescriptor(String stepName, long stepExecutionId, Instant startTime, Duration elapsed,
+                                        long items, long chunks, double rate, Double ratio, Duration eta,
+                                        Duration currentChunkAge) {
+
+        RunningStepDescriptor(StepProgress progress) {
+            this(progress.getStepName(), progress.getStepExecutionId(), progress.getStartTime(),
+                    progress.getElapsed(), progress.getItems(), progress.getChunks(), progress.getRate(),
+                    Double.isNaN(progress.getRatio()) ? null : progress.getRatio(), progress.getEta(),
+                    progress.getCurrentChunkAge());
+        }
+    }
+}
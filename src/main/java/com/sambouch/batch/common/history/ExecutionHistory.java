@@ -0,0 +1,115 @@
+package com.sambouch.batch.common.history;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Running job executions and summaries of the last completed ones.
+ *
+ * <p>Completed executions are kept in a bounded lock-free ring: recording a summary
+ * never waits for a reader, and reading never blocks the batch threads.</p>
+ */
+public class ExecutionHistory implements JobExecutionListener {
+
+    /**
+     * A job execution in progress.
+     *
+     * @param jobName        name of the job
+     * @param jobExecutionId id of the job execution
+     * @param startTime      start time
+     * @param startNanos     start time on the monotonic clock
+     */
+    public record RunningJob(String jobName, Long jobExecutionId, Instant startTime, long startNanos) {
+
+        public Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    // Running job executions, by job execution id
+    private final Map<Long, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    private final SummaryRing<JobExecutionSummary> completed;
+
+    /**
+     * @param capacity number of completed executions kept
+     */
+    public ExecutionHistory(int capacity) {
+        this.completed = new SummaryRing<>(capacity);
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        if (jobExecution.getId() != null) {
+            runningJobs.put(jobExecution.getId(), new RunningJob(jobExecution.getJobInstance().getJobName(),
+                    jobExecution.getId(), Instant.now(), System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        if (jobExecution.getId() != null) {
+            runningJobs.remove(jobExecution.getId());
+        }
+        completed.add(summarize(jobExecution));
+    }
+
+    /**
+     * @return the running job executions
+     */
+    public Collection<RunningJob> runningJobs() {
+        return List.copyOf(runningJobs.values());
+    }
+
+    /**
+     * @return the summaries of the last completed job executions, newest first
+     */
+    public List<JobExecutionSummary> recentExecutions() {
+        return completed.newestFirst();
+    }
+
+    private static JobExecutionSummary summarize(JobExecution jobExecution) {
+        LocalDateTime endTime = jobExecution.getEndTime() != null ? jobExecution.getEndTime() : LocalDateTime.now();
+        List<JobExecutionSummary.StepExecutionSummary> steps = new ArrayList<>();
+        for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+            steps.add(summarize(stepExecution));
+        }
+        return new JobExecutionSummary(jobExecution.getJobInstance().getJobName(),
+                jobExecution.getId(),
+                jobExecution.getStatus().toString(),
+                jobExecution.getExitStatus().getExitCode(),
+                jobExecution.getStartTime(),
+                endTime,
+                duration(jobExecution.getStartTime(), endTime),
+                List.copyOf(steps));
+    }
+
+    private static JobExecutionSummary.StepExecutionSummary summarize(StepExecution stepExecution) {
+        Duration duration = duration(stepExecution.getStartTime(), stepExecution.getEndTime());
+        double seconds = duration.toNanos() / 1_000_000_000.0;
+        return new JobExecutionSummary.StepExecutionSummary(stepExecution.getStepName(),
+                stepExecution.getId(),
+                stepExecution.getStatus().toString(),
+                duration,
+                stepExecution.getReadCount(),
+                stepExecution.getWriteCount(),
+                stepExecution.getSkipCount(),
+                stepExecution.getRollbackCount(),
+                stepExecution.getFailureExceptions().size(),
+                seconds > 0 ? stepExecution.getWriteCount() / seconds : 0);
+    }
+
+    private static Duration duration(LocalDateTime start, LocalDateTime end) {
+        return start != null && end != null ? Duration.between(start, end) : Duration.ZERO;
+    }
+}
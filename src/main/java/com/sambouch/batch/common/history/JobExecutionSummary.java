@@ -0,0 +1,53 @@
+package com.sambouch.batch.common.history;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Summary of a completed job execution.
+ *
+ * @param jobName        name of the job
+ * @param jobExecutionId id of the job execution
+ * @param status         batch status
+ * @param exitCode       exit code
+ * @param startTime      start time
+ * @param endTime        end time, the completion time when not set yet
+ * @param duration       duration of the execution
+ * @param steps          summaries of the step executions, in execution order
+ */
+public record JobExecutionSummary(String jobName,
+                                  Long jobExecutionId,
+                                  String status,
+                                  String exitCode,
+                                  LocalDateTime startTime,
+                                  LocalDateTime endTime,
+                                  Duration duration,
+                                  List<StepExecutionSummary> steps) {
+
+    /**
+     * Summary of a step execution.
+     *
+     * @param stepName        name of the step
+     * @param stepExecutionId id of the step execution
+     * @param status          batch status
+     * @param duration        duration of the step
+     * @param readCount       items read
+     * @param writeCount      items written
+     * @param skipCount       items skipped in read, process and write
+     * @param rollbackCount   rollbacks
+     * @param failureCount    failure exceptions
+     * @param throughput      items written per second
+     */
+    public record StepExecutionSummary(String stepName,
+                                       Long stepExecutionId,
+                                       String status,
+                                       Duration duration,
+                                       long readCount,
+                                       long writeCount,
+                                       long skipCount,
+                                       long rollbackCount,
+                                       int failureCount,
+                                       double throughput) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.sambouch.batch.common.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate quantile of the last durations of a series.
+ *
+ * <p>Durations are counted in log-linear buckets, four per doubling from 1 µs to about
+ * 12 days, so a quantile is known within 25% and adding a duration allocates nothing.
+ * Once {@code window} durations were counted, all counts are halved: older durations
+ * weigh less and less, and the quantile follows a change of the step behaviour.</p>
+ *
+ * <p>Adding is lock-free; only halving takes the lock. A duration added while the
+ * counts are halved may be counted in the total twice, which shifts the quantile by a
+ * negligible amount.</p>
+ */
+final class RollingQuantile {
+
+    private static final int BUCKETS_PER_DOUBLING = 4;
+    private static final int DOUBLINGS = 40;
+    private static final int BUCKETS = 1 + BUCKETS_PER_DOUBLING * DOUBLINGS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final int window;
+
+    RollingQuantile(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must be at least 2: " + window);
+        }
+        this.window = window;
+    }
+
+    void add(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+        if (total.incrementAndGet() >= window) {
+            halve();
+        }
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    /**
+     * @param quantile quantile in [0, 1]
+     * @return the upper bound in nanoseconds of the bucket holding the quantile, or -1
+     *         when fewer than {@code minSamples} durations were counted
+     */
+    long quantile(double quantile, long minSamples) {
+        long count = total.get();
+        if (count <= 0 || count < minSamples) {
+            return -1;
+        }
+        // Rank from the slowest duration, at least 1
+        long rank = Math.max(1, (long) Math.ceil(count * (1 - quantile)));
+        long seen = 0;
+        for (int bucket = BUCKETS - 1; bucket >= 0; bucket--) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return upperBoundNanos(bucket);
+            }
+        }
+        return upperBoundNanos(0);
+    }
+
+    private synchronized void halve() {
+        if (total.get() < window) {
+            return;
+        }
+        long remaining = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long count = counts.get(bucket);
+            remaining += counts.addAndGet(bucket, -((count + 1) / 2));
+        }
+        total.set(remaining);
+    }
+
+    static int bucket(long nanos) {
+        long micros = nanos / 1_000;
+        if (micros < 1) {
+            return 0;
+        }
+        int doubling = 63 - Long.numberOfLeadingZeros(micros);
+        if (doubling >= DOUBLINGS) {
+            return BUCKETS - 1;
+        }
+        // Position within [2^doubling, 2^(doubling + 1)), in quarters
+        int quarter = (int) (((micros - (1L << doubling)) * BUCKETS_PER_DOUBLING) >> doubling);
+        return 1 + doubling * BUCKETS_PER_DOUBLING + quarter;
+    }
+
+    static long upperBoundNanos(int bucket) {
+        if (bucket == 0) {
+            return 1_000;
+        }
+        int doubling = (bucket - 1) / BUCKETS_PER_DOUBLING;
+        int quarter = (bucket - 1) % BUCKETS_PER_DOUBLING;
+        return (long) ((1L << doubling) * (1 + (quarter + 1) / (double) BUCKETS_PER_DOUBLING) * 1_000);
+    }
+}
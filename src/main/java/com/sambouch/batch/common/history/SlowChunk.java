@@ -0,0 +1,28 @@
+package com.sambouch.batch.common.history;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A chunk slower than the threshold of its step.
+ *
+ * <p>Item counts are the difference of the step execution counts between the start and
+ * the end of the chunk: exact in single-threaded steps, they include the chunks
+ * committed meanwhile by the other threads of a multi-threaded step.</p>
+ *
+ * @param jobName         name of the job
+ * @param stepName        name of the step execution, e.g. {@code workerStep:partition3}
+ * @param stepExecutionId id of the step execution
+ * @param chunkSequence   number of the chunk in the step execution, from 1
+ * @param itemsRead       items read during the chunk
+ * @param itemsWritten    items written during the chunk
+ * @param thread          name of the thread that ran the chunk
+ * @param duration        duration of the chunk
+ * @param threshold       threshold the duration was above: fixed SLO or rolling quantile
+ * @param endTime         end time of the chunk
+ * @param failed          whether the chunk was rolled back
+ */
+public record SlowChunk(String jobName, String stepName, Long stepExecutionId, long chunkSequence,
+                        long itemsRead, long itemsWritten, String thread, Duration duration,
+                        Duration threshold, Instant endTime, boolean failed) {
+}
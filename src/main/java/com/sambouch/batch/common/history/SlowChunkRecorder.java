@@ -0,0 +1,131 @@
+package com.sambouch.batch.common.history;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import org.springframework.batch.core.StepExecution;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last chunks slower than the threshold of their step.
+ *
+ * <p>The threshold is either a fixed SLO, or a rolling quantile (p99 by default) of the
+ * durations of the previous chunks of the step, once {@code minSamples} chunks were
+ * seen. Steps are told apart by job name and {@code step.name} tag, so the workers of
+ * a partitioned step share their threshold.</p>
+ *
+ * <p>Checking a chunk allocates nothing; only slow chunks are recorded, in a bounded
+ * lock-free ring: recording never waits for a reader.</p>
+ *
+ * <p>While a slow chunk is recorded on {@code batch.chunk.duration}, it is bound to the
+ * thread (see {@link #recordAsExemplar}) so that the Prometheus exemplar sampler can
+ * attach it to the sample.</p>
+ */
+public class SlowChunkRecorder {
+
+    // Slow chunk being recorded on the meters by the current thread
+    private static final ThreadLocal<SlowChunk> EXEMPLAR = new ThreadLocal<>();
+
+    private final StepNameNormalizer stepNames;
+    private final long sloNanos;
+    private final double quantile;
+    private final int minSamples;
+    private final int window;
+
+    // Thresholds, by job and step name
+    private final Map<String, StepChunks> steps = new ConcurrentHashMap<>();
+
+    private final SummaryRing<SlowChunk> slowChunks;
+
+    /**
+     * @param capacity   number of slow chunks kept
+     * @param slo        fixed threshold, {@code null} to use the rolling quantile
+     * @param quantile   quantile of the previous chunk durations used as threshold
+     * @param minSamples chunks of a step seen before the rolling quantile is used
+     * @param window     chunks after which the weight of the previous durations is halved
+     */
+    public SlowChunkRecorder(StepNameNormalizer stepNames, int capacity, Duration slo, double quantile,
+                             int minSamples, int window) {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("Quantile must be in (0, 1): " + quantile);
+        }
+        this.stepNames = stepNames;
+        this.sloNanos = slo != null ? slo.toNanos() : -1;
+        this.quantile = quantile;
+        this.minSamples = minSamples;
+        this.window = window;
+        this.slowChunks = new SummaryRing<>(capacity);
+    }
+
+    /**
+     * @return the chunks of a step, to resolve once per step execution
+     */
+    public StepChunks forStep(String jobName, String stepName) {
+        return steps.computeIfAbsent(jobName + '\u0000' + stepNames.stepName(stepName),
+                key -> new StepChunks(new RollingQuantile(window)));
+    }
+
+    /**
+     * @return the last slow chunks, newest first
+     */
+    public List<SlowChunk> slowChunks() {
+        return slowChunks.newestFirst();
+    }
+
+    /**
+     * Runs the recording of a slow chunk on the meters with the chunk bound to the thread.
+     */
+    public static void recordAsExemplar(SlowChunk chunk, Runnable recording) {
+        EXEMPLAR.set(chunk);
+        try {
+            recording.run();
+        } finally {
+            EXEMPLAR.remove();
+        }
+    }
+
+    /**
+     * @return the slow chunk being recorded on the meters by the current thread, if any
+     */
+    public static SlowChunk exemplarChunk() {
+        return EXEMPLAR.get();
+    }
+
+    /**
+     * Chunk durations and threshold of a step.
+     */
+    public final class StepChunks {
+
+        private final RollingQuantile durations;
+
+        private StepChunks(RollingQuantile durations) {
+            this.durations = durations;
+        }
+
+        /**
+         * Checks a completed chunk against the threshold of the step, then adds its
+         * duration to the rolling quantile unless it failed.
+         *
+         * @return the chunk when it was slow and recorded, {@code null} otherwise
+         */
+        public SlowChunk chunkCompleted(StepExecution stepExecution, long chunkSequence, long itemsRead,
+                                        long itemsWritten, long durationNanos, boolean failed) {
+            long threshold = sloNanos >= 0 ? sloNanos : durations.quantile(quantile, minSamples);
+            if (!failed) {
+                durations.add(durationNanos);
+            }
+            if (threshold < 0 || durationNanos <= threshold) {
+                return null;
+            }
+            SlowChunk chunk = new SlowChunk(stepExecution.getJobExecution().getJobInstance().getJobName(),
+                    stepExecution.getStepName(), stepExecution.getId(), chunkSequence, itemsRead, itemsWritten,
+                    Thread.currentThread().getName(), Duration.ofNanos(durationNanos), Duration.ofNanos(threshold),
+                    Instant.now(), failed);
+            slowChunks.add(chunk);
+            return chunk;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.sambouch.batch.common.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring of the last items added.
+ *
+ * <p>Writers claim a sequence number and overwrite the oldest slot. Each slot keeps the
+ * sequence number of its item, so a reader racing with writers skips the slots
+ * overwritten since it started instead of returning items out of order.</p>
+ */
+final class SummaryRing<T> {
+
+    private record Slot<T>(long sequence, T item) {
+    }
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final AtomicLong next = new AtomicLong();
+
+    SummaryRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(T item) {
+        long sequence = next.getAndIncrement();
+        slots.set(index(sequence), new Slot<>(sequence, item));
+    }
+
+    /**
+     * @return the items, newest first
+     */
+    List<T> newestFirst() {
+        long end = next.get();
+        long start = Math.max(0, end - slots.length());
+        List<T> items = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            Slot<T> slot = slots.get(index(sequence));
+            // null: claimed but not written yet; other sequence: overwritten meanwhile
+            if (slot != null && slot.sequence() == sequence) {
+                items.add(slot.item());
+            }
+        }
+        return items;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+}
@@ -0,0 +1,242 @@
+package com.sambouch.batch.common.jdbc;
+
+import com.sambouch.batch.common.jdbc.StepJdbcMetrics.StepMeters;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * {@link DataSource} recording the JDBC meters of {@link StepJdbcMetrics} for the step
+ * running on the current thread.
+ *
+ * <p>Connections, statements and result sets are wrapped in dynamic proxies. Outside of
+ * a step nothing is recorded: the proxies only check the current step and delegate.
+ * Statements are attributed to the step running when they are executed, result set rows
+ * to the step running when the query was. Everything executed on the connections of the
+ * step is attributed to it, the updates of the job repository included when it shares
+ * the data source.</p>
+ *
+ * <p>Fetch round-trips are derived from the fetch size of the result set, or else of its
+ * statement: every {@code next()} call starting a new block of rows is one, and is timed.
+ * With a fetch size of 0 (driver default), they are not counted.</p>
+ */
+public class MonitoredDataSource extends DelegatingDataSource {
+
+    private final Supplier<StepJdbcMetrics> metrics;
+
+    public MonitoredDataSource(DataSource target, StepJdbcMetrics metrics) {
+        this(target, () -> metrics);
+    }
+
+    /**
+     * @param target  the data source to instrument
+     * @param metrics the step meters, resolved on the first connection
+     */
+    public MonitoredDataSource(DataSource target, Supplier<StepJdbcMetrics> metrics) {
+        super(target);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        StepMeters meters = metrics.get().current();
+        long start = meters != null ? System.nanoTime() : 0;
+        Connection connection = super.getConnection();
+        if (meters != null) {
+            meters.connectionAcquire().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        StepMeters meters = metrics.get().current();
+        long start = meters != null ? System.nanoTime() : 0;
+        Connection connection = super.getConnection(username, password);
+        if (meters != null) {
+            meters.connectionAcquire().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MonitoredDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Handles {@code equals} and {@code hashCode} on the proxy itself.
+     *
+     * @return the result, or {@code null} for the other methods
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> args.length == 1 && proxy == args[0];
+            case "hashCode" -> method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            default -> null;
+        };
+    }
+
+    /**
+     * Wraps the statements created by a connection.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            Object result = MonitoredDataSource.invoke(target, method, args);
+            if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return proxy(method.getReturnType(), new StatementHandler(statement, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times the executions of a statement, counts its batches and wraps its result sets.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+        private int batched;
+
+        StatementHandler(Statement target, Connection connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object identity = identity(proxy, method, args);
+            if (identity != null) {
+                return identity;
+            }
+            String name = method.getName();
+            switch (name) {
+                case "getConnection":
+                    return connection;
+                case "addBatch":
+                    batched++;
+                    return MonitoredDataSource.invoke(target, method, args);
+                case "clearBatch":
+                    batched = 0;
+                    return MonitoredDataSource.invoke(target, method, args);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute") && !"getResultSet".equals(name)) {
+                return MonitoredDataSource.invoke(target, method, args);
+            }
+            StepMeters meters = metrics.get().current();
+            if (meters == null) {
+                if (name.endsWith("Batch")) {
+                    batched = 0;
+                }
+                return MonitoredDataSource.invoke(target, method, args);
+            }
+            Object result;
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    result = MonitoredDataSource.invoke(target, method, args);
+                } finally {
+                    meters.statement(name).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (name.endsWith("Batch")) {
+                        meters.batchSize().record(batched);
+                        batched = 0;
+                    }
+                }
+            } else {
+                result = MonitoredDataSource.invoke(target, method, args);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler(resultSet, (Statement) proxy, meters));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Counts the rows of a result set and times the round-trips fetching them.
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Statement statement;
+        private final StepMeters meters;
+        private final int fetchSize;
+        private long rows;
+
+        ResultSetHandler(ResultSet target, Statement statement, StepMeters meters) throws SQLException {
+            this.target = target;
+            this.statement = statement;
+            this.meters = meters;
+            // Embedded drivers may only report the fetch size set on the statement
+            int resultSetFetchSize = target.getFetchSize();
+            this.fetchSize = resultSetFetchSize > 0 ? resultSetFetchSize : statement.getFetchSize();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    return next();
+                case "getStatement":
+                    return statement;
+                default:
+                    Object identity = identity(proxy, method, args);
+                    return identity != null ? identity : MonitoredDataSource.invoke(target, method, args);
+            }
+        }
+
+        private boolean next() throws SQLException {
+            boolean next;
+            // The first block comes with the query, each next one is a round-trip
+            if (fetchSize > 0 && rows > 0 && rows % fetchSize == 0) {
+                long start = System.nanoTime();
+                next = target.next();
+                meters.fetch().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } else {
+                next = target.next();
+            }
+            if (next) {
+                rows++;
+                meters.rows().increment();
+            }
+            return next;
+        }
+    }
+}
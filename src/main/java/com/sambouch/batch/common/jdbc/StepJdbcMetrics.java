@@ -0,0 +1,128 @@
+package com.sambouch.batch.common.jdbc;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JDBC meters of the steps, resolved from the step running on the current thread.
+ *
+ * <p>The running step is the one Spring Batch registers in the
+ * {@link StepSynchronizationManager} while it executes, on the thread of the step and
+ * on the threads running its chunks. Meters are tagged by {@code job.name} and
+ * {@code step.name} only, never by SQL text:</p>
+ * <ul>
+ *   <li>{@code batch.jdbc.statement}: execution time of the statements, by
+ *       {@code operation} ({@code query}, {@code update}, {@code batch} or
+ *       {@code execute})</li>
+ *   <li>{@code batch.jdbc.rows}: rows fetched from the result sets</li>
+ *   <li>{@code batch.jdbc.fetch}: round-trips fetching the next rows of a result set,
+ *       beyond the rows returned with the query</li>
+ *   <li>{@code batch.jdbc.batch.size}: statements sent per JDBC batch</li>
+ *   <li>{@code batch.jdbc.connection.acquire}: time waiting for a connection</li>
+ * </ul>
+ */
+public class StepJdbcMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+
+    // Meters by normalized tags: the workers of a partitioned step share them
+    private final Map<Tags, StepMeters> meters = new ConcurrentHashMap<>();
+
+    public StepJdbcMetrics(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+    }
+
+    /**
+     * @return the meters of the step running on the current thread, or {@code null}
+     */
+    StepMeters current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (context == null) {
+            return null;
+        }
+        StepExecution stepExecution = context.getStepExecution();
+        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+        return meters.computeIfAbsent(stepNames.tags(jobName, stepExecution.getStepName()), StepMeters::new);
+    }
+
+    /**
+     * JDBC meters of a step, the statement timers being registered on first use.
+     */
+    final class StepMeters {
+
+        private final Tags tags;
+        private final Counter rows;
+        private final Timer fetch;
+        private final DistributionSummary batchSize;
+        private final Timer connectionAcquire;
+        private volatile Timer query;
+        private volatile Timer update;
+        private volatile Timer batch;
+        private volatile Timer execute;
+
+        private StepMeters(Tags tags) {
+            this.tags = tags;
+            this.rows = Counter.builder("batch.jdbc.rows")
+                    .tags(tags)
+                    .description("Rows fetched from JDBC result sets")
+                    .register(meterRegistry);
+            this.fetch = Timer.builder("batch.jdbc.fetch")
+                    .tags(tags)
+                    .description("Round-trips fetching the next rows of a JDBC result set")
+                    .register(meterRegistry);
+            this.batchSize = DistributionSummary.builder("batch.jdbc.batch.size")
+                    .tags(tags)
+                    .description("Statements sent per JDBC batch")
+                    .register(meterRegistry);
+            this.connectionAcquire = Timer.builder("batch.jdbc.connection.acquire")
+                    .tags(tags)
+                    .description("Time waiting for a JDBC connection")
+                    .register(meterRegistry);
+        }
+
+        Counter rows() {
+            return rows;
+        }
+
+        Timer fetch() {
+            return fetch;
+        }
+
+        DistributionSummary batchSize() {
+            return batchSize;
+        }
+
+        Timer connectionAcquire() {
+            return connectionAcquire;
+        }
+
+        Timer statement(String method) {
+            return switch (method) {
+                case "executeQuery" -> query != null ? query : (query = statementTimer("query"));
+                case "executeUpdate", "executeLargeUpdate" -> update != null ? update : (update = statementTimer("update"));
+                case "executeBatch", "executeLargeBatch" -> batch != null ? batch : (batch = statementTimer("batch"));
+                default -> execute != null ? execute : (execute = statementTimer("execute"));
+            };
+        }
+
+        private Timer statementTimer(String operation) {
+            return Timer.builder("batch.jdbc.statement")
+                    .tags(tags)
+                    .tag("operation", operation)
+                    .description("Execution time of JDBC statements")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sambouch.batch.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a chunk, from {@code beforeChunk} to {@code afterChunk} or
+ * {@code afterChunkError}, on the thread that ran it.
+ */
+@Name("com.sambouch.batch.BatchChunk")
+@Label("Batch Chunk")
+@Category("Spring Batch")
+@Description("Chunk of a Spring Batch step, including its transaction commit")
+@StackTrace(false)
+public final class BatchChunkEvent extends jdk.jfr.Event {
+
+    @Label("Job Name")
+    String jobName;
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Step Execution Id")
+    long stepExecutionId;
+
+    @Label("Items Read")
+    @Description("Items read by the step during the chunk")
+    long readCount;
+
+    @Label("Items Written")
+    @Description("Items written by the step during the chunk")
+    long writeCount;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,27 @@
+package com.sambouch.batch.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a job execution, from {@code beforeJob} to {@code afterJob}.
+ */
+@Name("com.sambouch.batch.BatchJob")
+@Label("Batch Job")
+@Category("Spring Batch")
+@Description("Execution of a Spring Batch job")
+@StackTrace(false)
+public final class BatchJobEvent extends jdk.jfr.Event {
+
+    @Label("Job Name")
+    String jobName;
+
+    @Label("Job Execution Id")
+    long jobExecutionId;
+
+    @Label("Status")
+    String status;
+}
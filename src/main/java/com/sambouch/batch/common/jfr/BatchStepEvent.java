@@ -0,0 +1,42 @@
+package com.sambouch.batch.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event spanning a step execution, from {@code beforeStep} to {@code afterStep}.
+ */
+@Name("com.sambouch.batch.BatchStep")
+@Label("Batch Step")
+@Category("Spring Batch")
+@Description("Execution of a Spring Batch step")
+@StackTrace(false)
+public final class BatchStepEvent extends jdk.jfr.Event {
+
+    @Label("Job Name")
+    String jobName;
+
+    @Label("Step Name")
+    String stepName;
+
+    @Label("Job Execution Id")
+    long jobExecutionId;
+
+    @Label("Step Execution Id")
+    long stepExecutionId;
+
+    @Label("Status")
+    String status;
+
+    @Label("Items Read")
+    long readCount;
+
+    @Label("Items Written")
+    long writeCount;
+
+    @Label("Rollbacks")
+    long rollbackCount;
+}
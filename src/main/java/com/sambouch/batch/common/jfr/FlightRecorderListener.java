@@ -0,0 +1,147 @@
+package com.sambouch.batch.common.jfr;
+
+import jdk.jfr.EventType;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emits the {@link BatchJobEvent}, {@link BatchStepEvent} and {@link BatchChunkEvent}
+ * Java Flight Recorder events, so that the samples of a recording can be lined up with
+ * the jobs, steps and chunks that were running.
+ *
+ * <p>Each callback first checks whether its event type is enabled in a running
+ * recording: without recording, no event is created and nothing is stored. Events
+ * started while a recording was running are committed if it still runs.</p>
+ */
+public class FlightRecorderListener implements JobExecutionListener, StepExecutionListener, ChunkListener {
+
+    private static final EventType JOB_TYPE = EventType.getEventType(BatchJobEvent.class);
+    private static final EventType STEP_TYPE = EventType.getEventType(BatchStepEvent.class);
+    private static final EventType CHUNK_TYPE = EventType.getEventType(BatchChunkEvent.class);
+
+    // Chunk event, carried by the ChunkContext of the running chunk
+    private static final String CHUNK_EVENT_ATTRIBUTE = FlightRecorderListener.class.getName() + ".CHUNK_EVENT";
+
+    // Started events, by execution id
+    private final Map<Long, BatchJobEvent> jobEvents = new ConcurrentHashMap<>();
+    private final Map<Long, BatchStepEvent> stepEvents = new ConcurrentHashMap<>();
+
+    //=============================================================
+    // JOB LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        if (JOB_TYPE.isEnabled() && jobExecution.getId() != null) {
+            BatchJobEvent event = new BatchJobEvent();
+            event.begin();
+            jobEvents.put(jobExecution.getId(), event);
+        }
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        BatchJobEvent event = jobEvents.isEmpty() || jobExecution.getId() == null
+                ? null : jobEvents.remove(jobExecution.getId());
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.jobName = jobExecution.getJobInstance().getJobName();
+            event.jobExecutionId = jobExecution.getId();
+            event.status = jobExecution.getStatus().name();
+            event.commit();
+        }
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (STEP_TYPE.isEnabled() && stepExecution.getId() != null) {
+            BatchStepEvent event = new BatchStepEvent();
+            event.begin();
+            stepEvents.put(stepExecution.getId(), event);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        BatchStepEvent event = stepEvents.isEmpty() || stepExecution.getId() == null
+                ? null : stepEvents.remove(stepExecution.getId());
+        if (event == null) {
+            return null;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            event.stepName = stepExecution.getStepName();
+            event.jobExecutionId = stepExecution.getJobExecutionId() != null ? stepExecution.getJobExecutionId() : 0;
+            event.stepExecutionId = stepExecution.getId();
+            event.status = stepExecution.getStatus().name();
+            event.readCount = stepExecution.getReadCount();
+            event.writeCount = stepExecution.getWriteCount();
+            event.rollbackCount = stepExecution.getRollbackCount();
+            event.commit();
+        }
+        return null;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        if (CHUNK_TYPE.isEnabled()) {
+            StepExecution stepExecution = context.getStepContext().getStepExecution();
+            BatchChunkEvent event = new BatchChunkEvent();
+            // Counts at the start, replaced by the difference at the end
+            event.readCount = stepExecution.getReadCount();
+            event.writeCount = stepExecution.getWriteCount();
+            event.begin();
+            context.setAttribute(CHUNK_EVENT_ATTRIBUTE, event);
+        }
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        chunkCompleted(context, false);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkCompleted(context, true);
+    }
+
+    private void chunkCompleted(ChunkContext context, boolean failed) {
+        // A chunk started while the event was enabled left its event in the context
+        if (!CHUNK_TYPE.isEnabled()) {
+            return;
+        }
+        BatchChunkEvent event = (BatchChunkEvent) context.removeAttribute(CHUNK_EVENT_ATTRIBUTE);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            StepExecution stepExecution = context.getStepContext().getStepExecution();
+            event.jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            event.stepName = stepExecution.getStepName();
+            event.stepExecutionId = stepExecution.getId() != null ? stepExecution.getId() : 0;
+            event.readCount = stepExecution.getReadCount() - event.readCount;
+            event.writeCount = stepExecution.getWriteCount() - event.writeCount;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+}
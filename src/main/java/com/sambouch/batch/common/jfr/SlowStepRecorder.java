@@ -0,0 +1,229 @@
+package com.sambouch.batch.common.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a Java Flight Recorder recording when a step runs longer than a threshold,
+ * and dumps it to a directory when the step ends.
+ *
+ * <p>A watchdog thread checks the running steps at a fixed interval. The first step
+ * found past the threshold starts a recording with the given JFR settings
+ * ({@code default} or {@code profile}); it stops when the step ends, or after the
+ * maximum duration, and is written to
+ * {@code <directory>/<job>-<step>-<step execution id>-<timestamp>.jfr}. Only one
+ * recording runs at a time and a step execution starts at most one, so a slow batch
+ * cannot fill the disk: each file is also bounded by the maximum size.</p>
+ *
+ * <p>The recording only covers the part of the step after the threshold. The
+ * {@link FlightRecorderListener} events it contains tell which chunks were running.</p>
+ */
+public class SlowStepRecorder implements StepExecutionListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowStepRecorder.class);
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Duration threshold;
+    private final Path directory;
+    private final Duration maxDuration;
+    private final long maxSize;
+    private final Configuration settings;
+    private final ScheduledExecutorService watchdog;
+
+    // Running steps, by step execution id
+    private final Map<Long, RunningStep> runningSteps = new ConcurrentHashMap<>();
+
+    // Recording in progress, guarded by this
+    private ActiveRecording active;
+
+    /**
+     * @param threshold     duration after which a running step is recorded
+     * @param directory     directory of the recording files, created if missing
+     * @param maxDuration   longest recording, stopped and dumped after that
+     * @param maxSize       largest recording file, in bytes, the oldest data being dropped
+     * @param settings      name of the JFR settings, {@code default} or {@code profile}
+     * @param checkInterval interval of the watchdog checks
+     * @throws IllegalArgumentException if the settings are unknown
+     */
+    public SlowStepRecorder(Duration threshold, Path directory, Duration maxDuration, long maxSize,
+                            String settings, Duration checkInterval) {
+        this.threshold = threshold;
+        this.directory = directory;
+        this.maxDuration = maxDuration;
+        this.maxSize = maxSize;
+        try {
+            this.settings = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settings, e);
+        }
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jfr-slow-step-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, checkInterval.toMillis());
+        watchdog.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the watchdog and dumps the recording in progress, if any.
+     */
+    @Override
+    public void close() {
+        watchdog.shutdownNow();
+        ActiveRecording recording;
+        synchronized (this) {
+            recording = active;
+            active = null;
+        }
+        if (recording != null) {
+            stop(recording);
+        }
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            runningSteps.put(stepExecution.getId(),
+                    new RunningStep(jobName, stepExecution.getStepName(), stepExecution.getId(), System.nanoTime()));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (stepExecution.getId() == null || runningSteps.remove(stepExecution.getId()) == null) {
+            return null;
+        }
+        ActiveRecording recording;
+        synchronized (this) {
+            recording = active != null && active.stepExecutionId == stepExecution.getId() ? active : null;
+            if (recording != null) {
+                active = null;
+            }
+        }
+        if (recording != null) {
+            stop(recording);
+        }
+        return null;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Starts a recording for the first running step past the threshold, unless one is
+     * already running.
+     */
+    private void check() {
+        try {
+            long now = System.nanoTime();
+            synchronized (this) {
+                if (active != null) {
+                    if (active.recording.getState() != RecordingState.CLOSED
+                            && active.recording.getState() != RecordingState.STOPPED) {
+                        return;
+                    }
+                    // Stopped after the maximum duration and already written
+                    log.info("JFR recording of slow step {} written to {}", active.stepName, active.file);
+                    active.recording.close();
+                    active = null;
+                }
+                for (RunningStep step : runningSteps.values()) {
+                    if (!step.recorded && now - step.startNanos > threshold.toNanos()) {
+                        step.recorded = true;
+                        active = start(step);
+                        return;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to start the JFR recording of a slow step", e);
+        }
+    }
+
+    private ActiveRecording start(RunningStep step) {
+        Path file = directory.resolve(sanitize(step.jobName) + "-" + sanitize(step.stepName) + "-"
+                + step.stepExecutionId + "-" + LocalDateTime.now().format(TIMESTAMP) + ".jfr");
+        Recording recording = new Recording(settings);
+        try {
+            Files.createDirectories(directory);
+            recording.setName("slow-step-" + step.stepExecutionId);
+            recording.setToDisk(true);
+            recording.setMaxSize(maxSize);
+            recording.setDuration(maxDuration);
+            recording.setDestination(file);
+            recording.start();
+        } catch (IOException | RuntimeException e) {
+            recording.close();
+            log.warn("Failed to start the JFR recording of slow step {}", step.stepName, e);
+            return null;
+        }
+        log.info("Step {} running for more than {} ms, JFR recording started", step.stepName, threshold.toMillis());
+        return new ActiveRecording(step.stepExecutionId, step.stepName, recording, file);
+    }
+
+    private void stop(ActiveRecording recording) {
+        try {
+            if (recording.recording.getState() == RecordingState.RUNNING) {
+                // Writes the recording to its destination
+                recording.recording.stop();
+            }
+            log.info("JFR recording of slow step {} written to {}", recording.stepName, recording.file);
+        } catch (RuntimeException e) {
+            log.warn("Failed to write the JFR recording of slow step {}", recording.stepName, e);
+        } finally {
+            recording.recording.close();
+        }
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * A step execution watched for the threshold.
+     */
+    private static final class RunningStep {
+
+        private final String jobName;
+        private final String stepName;
+        private final long stepExecutionId;
+        private final long startNanos;
+        private boolean recorded;
+
+        RunningStep(String jobName, String stepName, long stepExecutionId, long startNanos) {
+            this.jobName = jobName;
+            this.stepName = stepName;
+            this.stepExecutionId = stepExecutionId;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private record ActiveRecording(long stepExecutionId, String stepName, Recording recording, Path file) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.sambouch.batch.common.listeners;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State of running job or step executions, keyed by execution id and shared by all
+ * threads.
+ *
+ * <p>Unlike a {@code ThreadLocal}, the state does not depend on which thread runs the
+ * before and after callbacks, nested executions on the same thread (a {@code JobStep},
+ * a partition manager running a local worker) do not overwrite each other, and nothing
+ * is allocated per thread, which matters with virtual-thread executors.</p>
+ *
+ * <p>Entries are removed by the matching after-callback. If it never comes (e.g. a
+ * failing listener registered before this one), the store is bounded: above its
+ * capacity the lowest ids, i.e. the oldest executions, are evicted.</p>
+ */
+final class ExecutionStore<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionStore.class);
+
+    private final ConcurrentHashMap<Long, V> entries = new ConcurrentHashMap<>();
+    private final String kind;
+    private final int capacity;
+
+    /**
+     * @param kind     name of the executions, for the eviction log
+     * @param capacity maximum number of executions tracked at once
+     */
+    ExecutionStore(String kind, int capacity) {
+        this.kind = kind;
+        this.capacity = capacity;
+    }
+
+    void put(Long id, V value) {
+        entries.put(id, value);
+        if (entries.size() > capacity) {
+            evictOldest();
+        }
+    }
+
+    V get(Long id) {
+        return entries.get(id);
+    }
+
+    V remove(Long id) {
+        return entries.remove(id);
+    }
+
+    boolean remove(Long id, V value) {
+        return entries.remove(id, value);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evictOldest() {
+        while (entries.size() > capacity) {
+            Long oldest = null;
+            for (Long id : entries.keySet()) {
+                if (oldest == null || id < oldest) {
+                    oldest = id;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest) != null) {
+                log.warn("⚠️ More than {} running {} executions tracked, state of execution {} dropped "
+                        + "(after-callback never received?)", capacity, kind, oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.sambouch.batch.common.listeners;
+
+import com.sambouch.batch.common.config.MonitoringProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.*;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sampled item-level instrumentation for chunk-oriented steps.
+ *
+ * <p>Breaks each chunk into read, process and write phases, recorded on
+ * {@code batch.chunk.phase.duration} with a {@code phase} tag. The write phase happens
+ * once per chunk and is always timed. Read and process happen once per item, so only a
+ * sample of them is timed (1-in-N items, or at most one item per time interval). Their
+ * phase duration is extrapolated to every chunk from the average time of the items
+ * sampled so far in the step, so that the three phases are recorded for the same chunks
+ * even when most chunks hold no sampled item. The first item of a step is always
+ * sampled.</p>
+ *
+ * <p>Item callbacks carry no context, so the per-chunk accumulators are bound to the
+ * thread running the chunk. One accumulator is allocated per thread and reset at
+ * every chunk.</p>
+ */
+public class ItemPhaseMonitoringListener implements StepExecutionListener, ChunkListener,
+        ItemReadListener<Object>, ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemPhaseMonitoringListener.class);
+
+    private final MeterRegistry meterRegistry;
+    private final MonitoringProperties.ItemTiming.SamplingMode samplingMode;
+    private final int sampleRate;
+    private final long sampleIntervalNanos;
+    private final StepNameNormalizer stepNames;
+
+    // Phase timers resolved in beforeStep, released in afterStep
+    private final Map<Long, PhaseTimers> phaseTimersCache = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<ChunkPhases> chunkPhasesHolder = ThreadLocal.withInitial(ChunkPhases::new);
+
+    public ItemPhaseMonitoringListener(MeterRegistry meterRegistry, MonitoringProperties.ItemTiming properties) {
+        this(meterRegistry, properties, StepNameNormalizer.NONE);
+    }
+
+    /**
+     * @param stepNames mapping of step execution names to the {@code step.name} tag
+     */
+    public ItemPhaseMonitoringListener(MeterRegistry meterRegistry, MonitoringProperties.ItemTiming properties,
+                                       StepNameNormalizer stepNames) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+        this.samplingMode = properties.getSampling();
+        this.sampleRate = Math.max(1, properties.getSampleRate());
+        this.sampleIntervalNanos = properties.getSampleInterval().toNanos();
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            phaseTimersCache.put(stepExecution.getId(), new PhaseTimers(meterRegistry, stepExecution, stepNames));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            phaseTimersCache.remove(stepExecution.getId());
+        }
+        return null;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        chunkPhasesHolder.get().reset(phaseTimers(context.getStepContext().getStepExecution()));
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        chunkPhasesHolder.get().record();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkPhasesHolder.get().record();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // ITEM LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeRead() {
+        ChunkPhases phases = chunkPhasesHolder.get();
+        phases.readStart = sample(phases, phases.sampledReads == 0 && phases.timers != null
+                && phases.timers.readAverage.isEmpty());
+    }
+
+    @Override
+    public void afterRead(Object item) {
+        chunkPhasesHolder.get().endRead();
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+        chunkPhasesHolder.get().endRead();
+    }
+
+    @Override
+    public void beforeProcess(Object item) {
+        ChunkPhases phases = chunkPhasesHolder.get();
+        phases.processStart = sample(phases, phases.sampledProcessed == 0 && phases.timers != null
+                && phases.timers.processAverage.isEmpty());
+    }
+
+    @Override
+    public void afterProcess(Object item, Object result) {
+        chunkPhasesHolder.get().endProcess();
+    }
+
+    @Override
+    public void onProcessError(Object item, Exception e) {
+        chunkPhasesHolder.get().endProcess();
+    }
+
+    @Override
+    public void beforeWrite(Chunk<?> items) {
+        chunkPhasesHolder.get().writeStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        chunkPhasesHolder.get().endWrite();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, Chunk<?> items) {
+        chunkPhasesHolder.get().endWrite();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Decides whether the item about to be read or processed is timed.
+     *
+     * @param first whether no item of the step has been timed yet for this phase
+     * @return the start time of the sampled item, or {@code 0} when it is not sampled
+     */
+    private long sample(ChunkPhases phases, boolean first) {
+        if (first) {
+            return System.nanoTime();
+        }
+        if (samplingMode == MonitoringProperties.ItemTiming.SamplingMode.TIME) {
+            long now = System.nanoTime();
+            if (now - phases.nextSampleAt < 0) {
+                return 0;
+            }
+            phases.nextSampleAt = now + sampleIntervalNanos;
+            return now;
+        }
+        if (++phases.sequence % sampleRate != 0) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    private PhaseTimers phaseTimers(StepExecution stepExecution) {
+        Long id = stepExecution.getId();
+        PhaseTimers timers = id != null ? phaseTimersCache.get(id) : null;
+        if (timers == null || !timers.stepName.equals(stepExecution.getStepName())) {
+            timers = new PhaseTimers(meterRegistry, stepExecution, stepNames);
+        }
+        return timers;
+    }
+
+    private static final class PhaseTimers {
+
+        private final String stepName;
+        private final Timer read;
+        private final Timer process;
+        private final Timer write;
+
+        // Sampled items of the step, shared by the threads running its chunks
+        private final PhaseAverage readAverage = new PhaseAverage();
+        private final PhaseAverage processAverage = new PhaseAverage();
+
+        PhaseTimers(MeterRegistry meterRegistry, StepExecution stepExecution, StepNameNormalizer stepNames) {
+            String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            this.stepName = stepExecution.getStepName();
+            Tags tags = stepNames.tags(jobName, stepName);
+            this.read = phaseTimer(meterRegistry, tags, "read");
+            this.process = phaseTimer(meterRegistry, tags, "process");
+            this.write = phaseTimer(meterRegistry, tags, "write");
+        }
+
+        private static Timer phaseTimer(MeterRegistry meterRegistry, Tags tags, String phase) {
+            return Timer.builder("batch.chunk.phase.duration")
+                    .tags(tags)
+                    .tag("phase", phase)
+                    .description("Time spent per chunk in the read, process and write phases (read/process extrapolated from sampled items)")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Running average time of the sampled items of a phase. The two sums are read
+     * separately, which is precise enough for an average.
+     */
+    private static final class PhaseAverage {
+
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+
+        boolean isEmpty() {
+            return samples.sum() == 0;
+        }
+
+        void add(long sampledNanos, int sampledItems) {
+            if (sampledItems > 0) {
+                nanos.add(sampledNanos);
+                samples.add(sampledItems);
+            }
+        }
+
+        /**
+         * @return the extrapolated time of the given number of items, or {@code -1}
+         *         when no item has been sampled yet
+         */
+        long extrapolate(int items) {
+            long count = samples.sum();
+            return count > 0 ? nanos.sum() * items / count : -1;
+        }
+    }
+
+    /**
+     * Accumulators of the chunk currently running on a thread.
+     */
+    private static final class ChunkPhases {
+
+        private PhaseTimers timers;
+
+        // Sampling state, kept across chunks so that 1-in-N holds for small chunks
+        private long sequence;
+        private long nextSampleAt;
+
+        private long readStart;
+        private int reads;
+        private int sampledReads;
+        private long sampledReadNanos;
+
+        private long processStart;
+        private int processed;
+        private int sampledProcessed;
+        private long sampledProcessNanos;
+
+        private long writeStart;
+        private int writes;
+        private long writeNanos;
+
+        void reset(PhaseTimers timers) {
+            this.timers = timers;
+            readStart = 0;
+            reads = 0;
+            sampledReads = 0;
+            sampledReadNanos = 0;
+            processStart = 0;
+            processed = 0;
+            sampledProcessed = 0;
+            sampledProcessNanos = 0;
+            writeStart = 0;
+            writes = 0;
+            writeNanos = 0;
+        }
+
+        void endRead() {
+            reads++;
+            if (readStart != 0) {
+                sampledReadNanos += System.nanoTime() - readStart;
+                sampledReads++;
+                readStart = 0;
+            }
+        }
+
+        void endProcess() {
+            processed++;
+            if (processStart != 0) {
+                sampledProcessNanos += System.nanoTime() - processStart;
+                sampledProcessed++;
+                processStart = 0;
+            }
+        }
+
+        void endWrite() {
+            if (writeStart != 0) {
+                writeNanos += System.nanoTime() - writeStart;
+                writes++;
+                writeStart = 0;
+            }
+        }
+
+        void record() {
+            PhaseTimers current = timers;
+            if (current == null) {
+                // afterChunk without beforeChunk on this thread
+                return;
+            }
+            current.readAverage.add(sampledReadNanos, sampledReads);
+            current.processAverage.add(sampledProcessNanos, sampledProcessed);
+            long readNanos = reads > 0 ? current.readAverage.extrapolate(reads) : -1;
+            if (readNanos >= 0) {
+                current.read.record(readNanos, TimeUnit.NANOSECONDS);
+            }
+            long processNanos = processed > 0 ? current.processAverage.extrapolate(processed) : -1;
+            if (processNanos >= 0) {
+                current.process.record(processNanos, TimeUnit.NANOSECONDS);
+            }
+            if (writes > 0) {
+                current.write.record(writeNanos, TimeUnit.NANOSECONDS);
+            }
+            if (log.isTraceEnabled()) {
+                log.trace("Chunk phases for step {} - reads: {} ({} sampled), processed: {} ({} sampled), write: {} ns",
+                        current.stepName, reads, sampledReads, processed, sampledProcessed, writeNanos);
+            }
+            timers = null;
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package com.sambouch.batch.common.listeners;
 
+import com.sambouch.batch.common.history.SlowChunk;
+import com.sambouch.batch.common.history.SlowChunkRecorder;
+import com.sambouch.batch.common.progress.StepProgressTracker;
 import io.micrometer.core.instrument.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.*;
 import org.springframework.batch.core.scope.context.ChunkContext;
 
+import java.util.concurrent.TimeUnit;
+
 
 /**
  * Automatic monitoring listener for Spring Batch.
  * Collects metrics for:
  * - Job: duration, execution count, status
  * - Step: duration, items read/written/skipped, errors
- * - Chunk: duration, errors
+ * - Chunk: duration, errors, throughput
+ * - Warm-up: time to first chunk, warm-up and steady-state throughput (see {@link WarmupDetector})
+ * - Running steps: progress, rate and ETA (when a {@link StepProgressTracker} is given)
+ * - Slow chunks: kept for inspection and attached as exemplars (when a {@link SlowChunkRecorder} is given)
  */
 public class PerformanceMonitoringListener
         implements StepExecutionListener, JobExecutionListener, ChunkListener {
@@ -23,34 +31,102 @@ public class PerformanceMonitoringListener
 
     private final MeterRegistry meterRegistry;
 
+    private final StepProgressTracker progressTracker;
+
+    private final StepNameNormalizer stepNames;
+
+    private final WarmupDetector warmup;
+
+    private final SlowChunkRecorder slowChunks;
+
+    // Upper bound of the executions tracked at once, see ExecutionStore
+    private static final int MAX_RUNNING_EXECUTIONS = 10_000;
+
+    // Chunk start, carried by the ChunkContext of the running chunk
+    private static final String CHUNK_START_ATTRIBUTE = PerformanceMonitoringListener.class.getName() + ".CHUNK_START";
 
-    // Timers
-    // ThreadLocal pour la thread-safety
-    private final ThreadLocal<Timer.Sample> jobSampleHolder = new ThreadLocal<>();
-    private final ThreadLocal<Timer.Sample> stepSampleHolder = new ThreadLocal<>();
-    private final ThreadLocal<Timer.Sample> chunkSampleHolder = new ThreadLocal<>();
+    // Job timer samples, by job execution id
+    private final ExecutionStore<Timer.Sample> jobSamples = new ExecutionStore<>("job", MAX_RUNNING_EXECUTIONS);
+
+    // Meter handles and step timer sample resolved in beforeStep, released in afterStep
+    private final ExecutionStore<StepMeters> stepMetersCache = new ExecutionStore<>("step", MAX_RUNNING_EXECUTIONS);
 
 
     public PerformanceMonitoringListener(MeterRegistry meterRegistry) {
+        this(meterRegistry, null);
+    }
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} to disable the progress gauges
+     */
+    public PerformanceMonitoringListener(MeterRegistry meterRegistry, StepProgressTracker progressTracker) {
+        this(meterRegistry, progressTracker, StepNameNormalizer.NONE);
+    }
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} to disable the progress gauges
+     * @param stepNames       mapping of step execution names to the {@code step.name} tag
+     */
+    public PerformanceMonitoringListener(MeterRegistry meterRegistry, StepProgressTracker progressTracker,
+                                         StepNameNormalizer stepNames) {
+        this(meterRegistry, progressTracker, stepNames, WarmupDetector.DEFAULT);
+    }
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} to disable the progress gauges
+     * @param stepNames       mapping of step execution names to the {@code step.name} tag
+     * @param warmup          detection of the end of the warm-up phase of steps
+     */
+    public PerformanceMonitoringListener(MeterRegistry meterRegistry, StepProgressTracker progressTracker,
+                                         StepNameNormalizer stepNames, WarmupDetector warmup) {
+        this(meterRegistry, progressTracker, stepNames, warmup, null);
+    }
+
+    /**
+     * @param progressTracker tracker of the running steps, {@code null} to disable the progress gauges
+     * @param stepNames       mapping of step execution names to the {@code step.name} tag
+     * @param warmup          detection of the end of the warm-up phase of steps
+     * @param slowChunks      recorder of the slow chunks, {@code null} to disable it
+     */
+    public PerformanceMonitoringListener(MeterRegistry meterRegistry, StepProgressTracker progressTracker,
+                                         StepNameNormalizer stepNames, WarmupDetector warmup,
+                                         SlowChunkRecorder slowChunks) {
         this.meterRegistry = meterRegistry;
+        this.progressTracker = progressTracker;
+        this.stepNames = stepNames;
+        this.warmup = warmup;
+        this.slowChunks = slowChunks;
     }
     //=============================================================
     // STEP LISTENERS
     // ===========================================================
     @Override
     public void beforeStep(StepExecution stepExecution) {
-        stepSampleHolder.set(Timer.start(meterRegistry));
+        if (stepExecution.getId() != null) {
+            StepMeters meters = new StepMeters(meterRegistry, stepExecution, stepNames);
+            meters.startStep(warmup);
+            stepMetersCache.put(stepExecution.getId(), meters);
+        }
+        if (progressTracker != null) {
+            progressTracker.stepStarted(stepExecution);
+        }
         log.debug("Step started : {}", stepExecution.getStepName());
     }
 
 
     @Override
     public ExitStatus afterStep(StepExecution stepExecution) {
-        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
-        String stepName = stepExecution.getStepName();
+        StepMeters meters = stepMeters(stepExecution);
+        if (stepExecution.getId() != null) {
+            stepMetersCache.remove(stepExecution.getId(), meters);
+        }
+        if (progressTracker != null) {
+            progressTracker.stepCompleted(stepExecution);
+        }
+
+        String stepName = meters.stepName();
         String status = stepExecution.getExitStatus().getExitCode();
-        Timer.Sample sample = stepSampleHolder.get();
-        stepSampleHolder.remove(); // avoid  ThreadLocal leaks
+        Timer.Sample sample = meters.stepSample();
 
         // Debug logs
         if (log.isDebugEnabled()) {
@@ -66,69 +142,42 @@ public class PerformanceMonitoringListener
         // Duration
         if (sample != null) {
             long durationNanos = sample.stop(Timer.builder("batch.step.duration")
-                    .tag("job.name", jobName)
-                    .tag("step.name", stepName)
+                    .tags(meters.tags())
                     .tag("status", status)
                     .publishPercentileHistogram(true)
                     .register(meterRegistry));
 
             long durationMs = durationNanos / 1_000_000;
             if (durationMs > 0) {
-                recordThroughput(stepExecution, durationMs);
+                recordThroughput(stepExecution, meters, durationMs);
             }
         }
+        WarmupDetector.ChunkThroughput chunkThroughput = meters.chunkThroughputState();
+        if (chunkThroughput != null) {
+            meters.recordWarmup(chunkThroughput);
+        }
         // Items read
-        Counter.builder("batch.step.items.read")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Total number of items read")
-                .register(meterRegistry)
-                .increment(stepExecution.getReadCount());
+        meters.itemsRead().increment(stepExecution.getReadCount());
 
         // Items written
-        Counter.builder("batch.step.items.written")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Total number of items written")
-                .register(meterRegistry)
-                .increment(stepExecution.getWriteCount());
+        meters.itemsWritten().increment(stepExecution.getWriteCount());
 
         // Items skipped
         int totalSkipped = (int) (stepExecution.getReadSkipCount()
                         + stepExecution.getProcessSkipCount()
                         + stepExecution.getWriteSkipCount());
 
-        Counter.builder("batch.step.items.skipped")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Total number of items skipped")
-                .register(meterRegistry)
-                .increment(totalSkipped);
+        meters.itemsSkipped().increment(totalSkipped);
 
         // Retrie
-        Counter.builder("batch.step.retries")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Number of rollbacks (retry attempts)")
-                .register(meterRegistry)
-                .increment(stepExecution.getRollbackCount());
+        meters.retries().increment(stepExecution.getRollbackCount());
 
         // Filtered
-        Counter.builder("batch.step.items.filtered")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Items filtered by processor")
-                .register(meterRegistry)
-                .increment(stepExecution.getFilterCount());
+        meters.itemsFiltered().increment(stepExecution.getFilterCount());
 
         // Failures
         if (!stepExecution.getFailureExceptions().isEmpty()) {
-            Counter.builder("batch.step.failures")
-                    .tag("job.name", jobName)
-                    .tag("step.name", stepName)
-                    .description("Critical failures (step failed)")
-                    .register(meterRegistry)
-                    .increment(stepExecution.getFailureExceptions().size());
+            meters.failures().increment(stepExecution.getFailureExceptions().size());
         }
 
         return stepExecution.getExitStatus();
@@ -139,14 +188,15 @@ public class PerformanceMonitoringListener
     // ===========================================================
     @Override
     public void beforeJob(JobExecution jobExecution) {
-        jobSampleHolder.set(Timer.start(meterRegistry));
+        if (jobExecution.getId() != null) {
+            jobSamples.put(jobExecution.getId(), Timer.start(meterRegistry));
+        }
         log.debug(" Job started : {}", jobExecution.getJobInstance().getJobName());
     }
 
     @Override
     public void afterJob(JobExecution jobExecution) {
-        Timer.Sample sample = jobSampleHolder.get();
-        jobSampleHolder.remove();
+        Timer.Sample sample = jobExecution.getId() != null ? jobSamples.remove(jobExecution.getId()) : null;
         String jobName = jobExecution.getJobInstance().getJobName();
         String status = jobExecution.getStatus().toString();
 
@@ -196,64 +246,93 @@ public class PerformanceMonitoringListener
 
     @Override
     public void beforeChunk(ChunkContext context) {
-        chunkSampleHolder.set(Timer.start(meterRegistry));
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        context.setAttribute(CHUNK_START_ATTRIBUTE, new ChunkStart(meterRegistry.config().clock().monotonicTime(),
+                stepExecution.getReadCount(), stepExecution.getWriteCount()));
     }
 
     @Override
     public void afterChunk(ChunkContext context) {
-        Timer.Sample sample = chunkSampleHolder.get();
-        chunkSampleHolder.remove();
+        ChunkStart start = (ChunkStart) context.removeAttribute(CHUNK_START_ATTRIBUTE);
 
-        if (sample != null) {
-            StepExecution stepExecution = context.getStepContext().getStepExecution();
-            String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
-            String stepName = stepExecution.getStepName();
-
-            sample.stop(Timer.builder("batch.chunk.duration")
-                    .tag("job.name", jobName)
-                    .tag("step.name", stepName)
-                    .description("Duration of chunk processing")
-                    .register(meterRegistry));
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        StepMeters meters = stepMeters(stepExecution);
+        if (start != null) {
+            recordChunk(start, stepExecution, meters, meters.chunkDuration(), false);
+        }
+        WarmupDetector.ChunkThroughput chunkThroughput = meters.chunkThroughputState();
+        if (chunkThroughput != null) {
+            double rate = chunkThroughput.chunkCompleted(stepExecution.getWriteCount(),
+                    meterRegistry.config().clock().monotonicTime());
+            if (!Double.isNaN(rate)) {
+                meters.chunkThroughput().record(rate);
+            }
+        }
+        if (progressTracker != null) {
+            progressTracker.chunkCompleted(stepExecution);
         }
 
     }
 
     @Override
     public void afterChunkError(ChunkContext context) {
-        Timer.Sample sample = chunkSampleHolder.get();
-        chunkSampleHolder.remove();
+        ChunkStart start = (ChunkStart) context.removeAttribute(CHUNK_START_ATTRIBUTE);
 
         StepExecution stepExecution = context.getStepContext().getStepExecution();
-        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
-        String stepName = stepExecution.getStepName();
+        StepMeters meters = stepMeters(stepExecution);
 
-        if (sample != null) {
-            sample.stop(Timer.builder("batch.chunk.duration")
-                    .tag("job.name", jobName)
-                    .tag("step.name", stepName)
-                    .tag("status", "ERROR")
-                    .register(meterRegistry));
+        if (start != null) {
+            recordChunk(start, stepExecution, meters, meters.chunkErrorDuration(), true);
         }
 
         // Métrique d'erreur exploitable dans Grafana
-        Counter.builder("batch.chunk.errors")
-                .tag("job.name", jobName)
-                .tag("step.name", stepName)
-                .description("Number of chunk errors")
-                .register(meterRegistry)
-                .increment();
-
-        log.error("Error in chunk for step : {}", stepName);
+        meters.chunkErrors().increment();
+
+        log.error("Error in chunk for step : {}", meters.stepName());
     }
 
     // ═══════════════════════════════════════════════════════════
     // PRIVATE HELPERS
     // ═══════════════════════════════════════════════════════════
 
-    private void recordThroughput(StepExecution stepExecution, long durationMs) {
-        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
-        String stepName = stepExecution.getStepName();
+    /**
+     * Returns the meter handles resolved for this step execution in {@code beforeStep},
+     * or resolves them on the spot when the listener was not notified of the step start
+     * (e.g. registered as a chunk listener only).
+     */
+    private StepMeters stepMeters(StepExecution stepExecution) {
+        Long id = stepExecution.getId();
+        StepMeters meters = id != null ? stepMetersCache.get(id) : null;
+        if (meters == null || !meters.belongsTo(stepExecution)) {
+            meters = new StepMeters(meterRegistry, stepExecution, stepNames);
+        }
+        return meters;
+    }
 
+    /**
+     * Records the duration of a chunk, checking it against the slow chunk threshold of
+     * the step first so that a slow chunk is attached to its sample as an exemplar.
+     */
+    private void recordChunk(ChunkStart start, StepExecution stepExecution, StepMeters meters, Timer timer,
+                             boolean failed) {
+        long nanos = meterRegistry.config().clock().monotonicTime() - start.nanos();
+        SlowChunk slow = null;
+        if (slowChunks != null) {
+            slow = meters.slowChunks(slowChunks).chunkCompleted(stepExecution, meters.nextChunkSequence(),
+                    stepExecution.getReadCount() - start.readCount(),
+                    stepExecution.getWriteCount() - start.writeCount(), nanos, failed);
+        }
+        if (slow == null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        meters.slowChunkCount().increment();
+        SlowChunkRecorder.recordAsExemplar(slow, () -> timer.record(nanos, TimeUnit.NANOSECONDS));
+        log.debug("Slow chunk #{} of step {}: {} ms (threshold {} ms)", slow.chunkSequence(), meters.stepName(),
+                slow.duration().toMillis(), slow.threshold().toMillis());
+    }
+
+    private void recordThroughput(StepExecution stepExecution, StepMeters meters, long durationMs) {
         double durationSeconds = durationMs / 1000.0;
         if (durationSeconds < 0.001) {
             log.warn("Duration too short ({} ms), throughput not calculated", durationMs);
@@ -262,14 +341,15 @@ public class PerformanceMonitoringListener
 
         double throughput = stepExecution.getWriteCount() / durationSeconds;
 
-        DistributionSummary.builder("batch.step.throughput")
-                .description("Items processed per second")
-                .tags("job.name", jobName, "step.name", stepName)
-                .register(meterRegistry)
-                .record(throughput);
+        meters.throughput().record(throughput);
 
         log.debug("Throughput: {} items/sec (duration: {}ms, items: {})",
                 String.format("%.2f", throughput), durationMs, stepExecution.getWriteCount());
     }
 
-}
\ No newline at end of file
+    /**
+     * Start of a chunk: monotonic time and step execution counts.
+     */
+    private record ChunkStart(long nanos, long readCount, long writeCount) {
+    }
+}
@@ -0,0 +1,281 @@
+package com.sambouch.batch.common.listeners;
+
+import com.sambouch.batch.common.history.SlowChunkRecorder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.StepExecution;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Meter handles resolved once per step execution.
+ *
+ * <p>Building a meter ({@code Timer.builder(...).tag(...).register(...)}) allocates the
+ * tag array and goes through the registry lookup every time. The listener resolves one
+ * instance of this class in {@code beforeStep} and reuses it for every chunk of the step,
+ * so the chunk hot path only dereferences fields.</p>
+ *
+ * <p>Meters that are only recorded in some executions (chunk errors, failures,
+ * throughput) are resolved lazily on first use so that no empty series is published
+ * for steps that never hit them. The lazy resolution race is benign: the registry
+ * always returns the same meter for the same id.</p>
+ */
+final class StepMeters {
+
+    private final MeterRegistry meterRegistry;
+    private final String jobName;
+    private final String stepName;
+    private final Tags tags;
+
+    private final Counter itemsRead;
+    private final Counter itemsWritten;
+    private final Counter itemsSkipped;
+    private final Counter retries;
+    private final Counter itemsFiltered;
+
+    // Started in beforeStep, null when the step start was not seen
+    private volatile Timer.Sample stepSample;
+    private volatile WarmupDetector.ChunkThroughput chunkThroughputState;
+    private final AtomicLong chunkSequence = new AtomicLong();
+    private volatile SlowChunkRecorder.StepChunks slowChunks;
+
+    private volatile Timer chunkDuration;
+    private volatile Timer chunkErrorDuration;
+    private volatile Counter chunkErrors;
+    private volatile Counter failures;
+    private volatile DistributionSummary throughput;
+    private volatile DistributionSummary chunkThroughput;
+    private volatile Counter slowChunkCount;
+
+    StepMeters(MeterRegistry meterRegistry, StepExecution stepExecution, StepNameNormalizer names) {
+        this.meterRegistry = meterRegistry;
+        this.jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+        this.stepName = stepExecution.getStepName();
+        this.tags = names.tags(jobName, stepName);
+
+        this.itemsRead = Counter.builder("batch.step.items.read")
+                .tags(tags)
+                .description("Total number of items read")
+                .register(meterRegistry);
+
+        this.itemsWritten = Counter.builder("batch.step.items.written")
+                .tags(tags)
+                .description("Total number of items written")
+                .register(meterRegistry);
+
+        this.itemsSkipped = Counter.builder("batch.step.items.skipped")
+                .tags(tags)
+                .description("Total number of items skipped")
+                .register(meterRegistry);
+
+        this.retries = Counter.builder("batch.step.retries")
+                .tags(tags)
+                .description("Number of rollbacks (retry attempts)")
+                .register(meterRegistry);
+
+        this.itemsFiltered = Counter.builder("batch.step.items.filtered")
+                .tags(tags)
+                .description("Items filtered by processor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether these handles were resolved for the given execution. Guards against
+     * repositories that hand out the same id to concurrent executions.
+     */
+    boolean belongsTo(StepExecution stepExecution) {
+        return stepName.equals(stepExecution.getStepName());
+    }
+
+    void startStep(WarmupDetector warmup) {
+        stepSample = Timer.start(meterRegistry);
+        chunkThroughputState = warmup.start(meterRegistry.config().clock().monotonicTime());
+    }
+
+    Timer.Sample stepSample() {
+        return stepSample;
+    }
+
+    /**
+     * @return the per-chunk rate of the step, {@code null} when the step start was not seen
+     */
+    WarmupDetector.ChunkThroughput chunkThroughputState() {
+        return chunkThroughputState;
+    }
+
+    /**
+     * @return the number of the next completed or failed chunk of the step execution, from 1
+     */
+    long nextChunkSequence() {
+        return chunkSequence.incrementAndGet();
+    }
+
+    SlowChunkRecorder.StepChunks slowChunks(SlowChunkRecorder recorder) {
+        SlowChunkRecorder.StepChunks chunks = slowChunks;
+        if (chunks == null) {
+            chunks = recorder.forStep(jobName, stepName);
+            slowChunks = chunks;
+        }
+        return chunks;
+    }
+
+    String jobName() {
+        return jobName;
+    }
+
+    String stepName() {
+        return stepName;
+    }
+
+    /**
+     * @return the job and step tags shared by the meters of the step
+     */
+    Tags tags() {
+        return tags;
+    }
+
+    Counter itemsRead() {
+        return itemsRead;
+    }
+
+    Counter itemsWritten() {
+        return itemsWritten;
+    }
+
+    Counter itemsSkipped() {
+        return itemsSkipped;
+    }
+
+    Counter retries() {
+        return retries;
+    }
+
+    Counter itemsFiltered() {
+        return itemsFiltered;
+    }
+
+    Timer chunkDuration() {
+        Timer timer = chunkDuration;
+        if (timer == null) {
+            timer = Timer.builder("batch.chunk.duration")
+                    .tags(tags)
+                    .description("Duration of chunk processing")
+                    .register(meterRegistry);
+            chunkDuration = timer;
+        }
+        return timer;
+    }
+
+    Timer chunkErrorDuration() {
+        Timer timer = chunkErrorDuration;
+        if (timer == null) {
+            timer = Timer.builder("batch.chunk.duration")
+                    .tags(tags)
+                    .tag("status", "ERROR")
+                    .register(meterRegistry);
+            chunkErrorDuration = timer;
+        }
+        return timer;
+    }
+
+    Counter chunkErrors() {
+        Counter counter = chunkErrors;
+        if (counter == null) {
+            counter = Counter.builder("batch.chunk.errors")
+                    .tags(tags)
+                    .description("Number of chunk errors")
+                    .register(meterRegistry);
+            chunkErrors = counter;
+        }
+        return counter;
+    }
+
+    Counter failures() {
+        Counter counter = failures;
+        if (counter == null) {
+            counter = Counter.builder("batch.step.failures")
+                    .tags(tags)
+                    .description("Critical failures (step failed)")
+                    .register(meterRegistry);
+            failures = counter;
+        }
+        return counter;
+    }
+
+    DistributionSummary throughput() {
+        DistributionSummary summary = throughput;
+        if (summary == null) {
+            summary = DistributionSummary.builder("batch.step.throughput")
+                    .description("Items processed per second")
+                    .tags(tags)
+                    .register(meterRegistry);
+            throughput = summary;
+        }
+        return summary;
+    }
+
+    DistributionSummary chunkThroughput() {
+        DistributionSummary summary = chunkThroughput;
+        if (summary == null) {
+            summary = DistributionSummary.builder("batch.chunk.throughput")
+                    .description("Items written per second, per chunk")
+                    .baseUnit("items/s")
+                    .tags(tags)
+                    .register(meterRegistry);
+            chunkThroughput = summary;
+        }
+        return summary;
+    }
+
+    Counter slowChunkCount() {
+        Counter counter = slowChunkCount;
+        if (counter == null) {
+            counter = Counter.builder("batch.chunk.slow")
+                    .tags(tags)
+                    .description("Chunks slower than the threshold of the step")
+                    .register(meterRegistry);
+            slowChunkCount = counter;
+        }
+        return counter;
+    }
+
+    /**
+     * Records the step start-up and warm-up meters. Recorded once per step, so they are
+     * resolved here rather than cached.
+     */
+    void recordWarmup(WarmupDetector.ChunkThroughput state) {
+        long firstChunkNanos = state.timeToFirstChunkNanos();
+        if (firstChunkNanos < 0) {
+            return;
+        }
+        Timer.builder("batch.step.first.chunk.time")
+                .tags(tags)
+                .description("Time from the step start to the commit of its first chunk")
+                .register(meterRegistry)
+                .record(firstChunkNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("batch.step.warmup.duration")
+                .tags(tags)
+                .description("Duration of the warm-up phase of the step")
+                .register(meterRegistry)
+                .record(state.warmupNanos(), TimeUnit.NANOSECONDS);
+        recordRate("batch.step.warmup.throughput", "Items written per second during the warm-up",
+                state.warmupRate());
+        recordRate("batch.step.steady.throughput", "Items written per second after the warm-up",
+                state.steadyRate());
+    }
+
+    private void recordRate(String name, String description, double rate) {
+        if (!Double.isNaN(rate)) {
+            DistributionSummary.builder(name)
+                    .tags(tags)
+                    .description(description)
+                    .baseUnit("items/s")
+                    .register(meterRegistry)
+                    .record(rate);
+        }
+    }
+}
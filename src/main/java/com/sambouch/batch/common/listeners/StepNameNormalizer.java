@@ -0,0 +1,72 @@
+package com.sambouch.batch.common.listeners;
+
+import io.micrometer.core.instrument.Tags;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps step execution names to the {@code step.name} tag of step meters.
+ *
+ * <p>Partition workers are named {@code <step>:<partition key>} by Spring Batch's
+ * {@code SimpleStepExecutionSplitter}, with keys such as {@code partition0} ...
+ * {@code partition511} ({@code SimplePartitioner}) or {@code region-eu-3} (custom
+ * partitioners). Tagging meters with these names creates one set of series, histograms
+ * included, per partition. When normalization is enabled, workers named
+ * {@code <step>:<key><index>} are tagged with the worker step name only, so their meters
+ * are shared and their counters add up. Names whose part after the last {@code :} does not
+ * end with an index (e.g. {@code import:customers}) are kept as they are.</p>
+ *
+ * <p>The optional {@code partition.group} tag keeps a coarse view of the folded workers:
+ * their partition key without its index (e.g. {@code region-eu} for
+ * {@code loadStep:region-eu-3}), {@code none} for other steps. Prometheus requires the same
+ * label names on all series of a metric, so the tag is then added to every step meter.</p>
+ */
+public class StepNameNormalizer {
+
+    /**
+     * Keeps step names as they are.
+     */
+    public static final StepNameNormalizer NONE = new StepNameNormalizer(false, false);
+
+    // <step>:<key><index>, the key optionally separated from its index by '-' or '_'
+    private static final Pattern WORKER_NAME = Pattern.compile("(.+):([^:]*?)[-_]?\\d+");
+    private static final String NO_PARTITION_GROUP = "none";
+
+    private final boolean normalizeWorkerNames;
+    private final boolean partitionGroupTag;
+
+    /**
+     * @param normalizeWorkerNames tags partition workers with the worker step name
+     * @param partitionGroupTag    adds the {@code partition.group} tag to step meters
+     */
+    public StepNameNormalizer(boolean normalizeWorkerNames, boolean partitionGroupTag) {
+        this.normalizeWorkerNames = normalizeWorkerNames;
+        this.partitionGroupTag = partitionGroupTag;
+    }
+
+    /**
+     * @return the value of the {@code step.name} tag for this step execution name
+     */
+    public String stepName(String stepName) {
+        if (!normalizeWorkerNames) {
+            return stepName;
+        }
+        Matcher worker = WORKER_NAME.matcher(stepName);
+        return worker.matches() ? worker.group(1) : stepName;
+    }
+
+    /**
+     * @return the {@code job.name} and {@code step.name} tags, plus {@code partition.group}
+     * when enabled
+     */
+    public Tags tags(String jobName, String stepName) {
+        Tags tags = Tags.of("job.name", jobName, "step.name", stepName(stepName));
+        return partitionGroupTag ? tags.and("partition.group", partitionGroup(stepName)) : tags;
+    }
+
+    private static String partitionGroup(String stepName) {
+        Matcher worker = WORKER_NAME.matcher(stepName);
+        return worker.matches() && !worker.group(2).isEmpty() ? worker.group(2) : NO_PARTITION_GROUP;
+    }
+}
@@ -0,0 +1,139 @@
+package com.sambouch.batch.common.listeners;
+
+/**
+ * Decides when a step leaves its warm-up phase (JIT compilation, connection pool
+ * ramp-up, cold caches), so that warm-up and steady-state throughput are reported
+ * separately.
+ *
+ * <p>The warm-up ends once the rates of the last {@code stabilityWindow} chunks deviate
+ * from their mean by at most {@code stabilityTolerance} (coefficient of variation), and
+ * at the latest after {@code warmupChunks} chunks. With a tolerance or a window of
+ * {@code 0}, the warm-up is simply the first {@code warmupChunks} chunks.</p>
+ */
+public final class WarmupDetector {
+
+    public static final WarmupDetector DEFAULT = new WarmupDetector(10, 5, 0.1);
+
+    private final int warmupChunks;
+    private final int stabilityWindow;
+    private final double stabilityTolerance;
+
+    /**
+     * @param warmupChunks       maximum number of warm-up chunks
+     * @param stabilityWindow    number of consecutive chunks whose rates must be stable
+     * @param stabilityTolerance maximum coefficient of variation of a stable window
+     */
+    public WarmupDetector(int warmupChunks, int stabilityWindow, double stabilityTolerance) {
+        this.warmupChunks = Math.max(1, warmupChunks);
+        this.stabilityWindow = stabilityTolerance > 0 ? Math.max(0, stabilityWindow) : 0;
+        this.stabilityTolerance = stabilityTolerance;
+    }
+
+    ChunkThroughput start(long startNanos) {
+        return new ChunkThroughput(startNanos);
+    }
+
+    /**
+     * Rate of the chunks of one step execution, measured between consecutive commits:
+     * the rate of the step as a whole, also when several threads commit chunks.
+     */
+    final class ChunkThroughput {
+
+        private final long startNanos;
+        private final double[] window = new double[stabilityWindow];
+
+        // Guarded by this
+        private long chunks;
+        private long lastCommitNanos;
+        private long lastItems;
+        private long firstChunkNanos = -1;
+        private long warmupEndNanos = -1;
+        private long warmupEndItems;
+
+        ChunkThroughput(long startNanos) {
+            this.startNanos = startNanos;
+            this.lastCommitNanos = startNanos;
+        }
+
+        /**
+         * @param items total items written by the step so far
+         * @return the items per second since the previous commit, {@code NaN} if not measurable
+         */
+        synchronized double chunkCompleted(long items, long nowNanos) {
+            long elapsedNanos = nowNanos - lastCommitNanos;
+            long newItems = items - lastItems;
+            if (firstChunkNanos < 0) {
+                firstChunkNanos = nowNanos;
+            }
+            if (elapsedNanos <= 0 || newItems < 0) {
+                return Double.NaN;
+            }
+            double rate = newItems * 1_000_000_000.0 / elapsedNanos;
+            if (warmupEndNanos < 0 && stabilityWindow > 0) {
+                window[(int) (chunks % stabilityWindow)] = rate;
+            }
+            chunks++;
+            lastCommitNanos = nowNanos;
+            lastItems = items;
+            if (warmupEndNanos < 0 && (chunks >= warmupChunks || stable())) {
+                warmupEndNanos = nowNanos;
+                warmupEndItems = items;
+            }
+            return rate;
+        }
+
+        private boolean stable() {
+            if (stabilityWindow == 0 || chunks < stabilityWindow) {
+                return false;
+            }
+            double mean = 0;
+            for (double rate : window) {
+                mean += rate;
+            }
+            mean /= stabilityWindow;
+            if (mean <= 0) {
+                return false;
+            }
+            double variance = 0;
+            for (double rate : window) {
+                variance += (rate - mean) * (rate - mean);
+            }
+            return Math.sqrt(variance / stabilityWindow) / mean <= stabilityTolerance;
+        }
+
+        /**
+         * @return time from the step start to the first commit, or {@code -1} without chunk
+         */
+        synchronized long timeToFirstChunkNanos() {
+            return firstChunkNanos < 0 ? -1 : firstChunkNanos - startNanos;
+        }
+
+        /**
+         * @return duration of the warm-up, up to the last commit if it never ended
+         */
+        synchronized long warmupNanos() {
+            return (warmupEndNanos < 0 ? lastCommitNanos : warmupEndNanos) - startNanos;
+        }
+
+        /**
+         * @return items per second during the warm-up, {@code NaN} without chunk
+         */
+        synchronized double warmupRate() {
+            long nanos = warmupNanos();
+            long items = warmupEndNanos < 0 ? lastItems : warmupEndItems;
+            return chunks == 0 || nanos <= 0 ? Double.NaN : items * 1_000_000_000.0 / nanos;
+        }
+
+        /**
+         * @return items per second after the warm-up, {@code NaN} if it never ended
+         * or no chunk followed it
+         */
+        synchronized double steadyRate() {
+            long nanos = lastCommitNanos - warmupEndNanos;
+            if (warmupEndNanos < 0 || nanos <= 0) {
+                return Double.NaN;
+            }
+            return (lastItems - warmupEndItems) * 1_000_000_000.0 / nanos;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.sambouch.batch.common.metrics;
+
+import java.util.List;
+
+/**
+ * Distribution meters of the library whose detail is selected by the metric profile.
+ *
+ * <p>Values (SLOs, expected min / max) are configured in the base unit of the meter:
+ * seconds for timers, the raw value for distribution summaries.</p>
+ */
+public enum MeterFamily {
+
+    JOB_DURATION("batch.job.duration", true, List.of(60.0, 300.0, 900.0, 1800.0, 3600.0, 7200.0, 14400.0)),
+    STEP_DURATION("batch.step.duration", true, List.of(1.0, 10.0, 60.0, 300.0, 900.0, 1800.0, 3600.0)),
+    CHUNK_DURATION("batch.chunk.duration", true, List.of(0.01, 0.05, 0.1, 0.5, 1.0, 5.0, 30.0)),
+    CHUNK_PHASE_DURATION("batch.chunk.phase.duration", true, List.of(0.01, 0.05, 0.1, 0.5, 1.0, 5.0, 30.0)),
+    CHUNK_THROUGHPUT("batch.chunk.throughput", false, List.of(1.0, 10.0, 100.0, 1000.0, 10000.0)),
+    STEP_THROUGHPUT("batch.step.throughput", false, List.of(1.0, 10.0, 100.0, 1000.0, 10000.0)),
+    PARTITION_DURATION("batch.partition.duration", true, List.of(1.0, 10.0, 60.0, 300.0, 900.0, 1800.0, 3600.0)),
+    PARTITION_ITEMS("batch.partition.items", false, List.of(100.0, 1000.0, 10000.0, 100000.0, 1000000.0));
+
+    private final String meterName;
+    private final boolean timer;
+    private final List<Double> defaultSlos;
+
+    MeterFamily(String meterName, boolean timer, List<Double> defaultSlos) {
+        this.meterName = meterName;
+        this.timer = timer;
+        this.defaultSlos = defaultSlos;
+    }
+
+    public String meterName() {
+        return meterName;
+    }
+
+    /**
+     * @return whether the meter is a timer, whose values are configured in seconds
+     */
+    public boolean isTimer() {
+        return timer;
+    }
+
+    /**
+     * @return the SLO buckets used when none are configured
+     */
+    public List<Double> defaultSlos() {
+        return defaultSlos;
+    }
+
+    /**
+     * @return the family of the meter name, or {@code null}
+     */
+    public static MeterFamily of(String meterName) {
+        for (MeterFamily family : values()) {
+            if (family.meterName.equals(meterName)) {
+                return family;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.sambouch.batch.common.metrics;
+
+import com.sambouch.batch.common.config.MonitoringProperties;
+import com.sambouch.batch.common.config.MonitoringProperties.Distribution.Mode;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the metric detail profile to the distribution meters of the library.
+ *
+ * <p>A percentile histogram publishes one series per bucket (about 70 for a timer with
+ * the default range) for every tag combination, which dominates the registry heap and
+ * the scrape size of applications with many steps. The profile selects, per meter
+ * family, what is published besides count, total and max: nothing, SLO buckets,
+ * client-side percentiles or the full histogram, optionally bounded by expected minimum
+ * and maximum values.</p>
+ *
+ * <p>Spring Boot applies {@link MeterFilter} beans to the registries it configures.
+ * The filter overrides the distribution options set by the meter builders.</p>
+ */
+public class MetricDetailFilter implements MeterFilter {
+
+    private static final double NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+
+    private final Map<MeterFamily, DistributionStatisticConfig> configs = new EnumMap<>(MeterFamily.class);
+
+    public MetricDetailFilter(MonitoringProperties.Metrics properties) {
+        for (MeterFamily family : MeterFamily.values()) {
+            MonitoringProperties.Distribution distribution = properties.getDistributions().get(family);
+            Mode mode = distribution != null && distribution.getMode() != null
+                    ? distribution.getMode()
+                    : defaultMode(properties.getProfile(), family);
+            configs.put(family, config(family, mode,
+                    distribution != null ? distribution : new MonitoringProperties.Distribution()));
+        }
+    }
+
+    @Override
+    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+        MeterFamily family = MeterFamily.of(id.getName());
+        if (family == null) {
+            return config;
+        }
+        return configs.get(family).merge(config);
+    }
+
+    private static Mode defaultMode(MonitoringProperties.Metrics.Profile profile, MeterFamily family) {
+        return switch (profile) {
+            case MINIMAL -> Mode.NONE;
+            case STANDARD -> family == MeterFamily.JOB_DURATION || family == MeterFamily.STEP_DURATION
+                    ? Mode.HISTOGRAM : Mode.NONE;
+            case DETAILED -> Mode.HISTOGRAM;
+        };
+    }
+
+    private static DistributionStatisticConfig config(MeterFamily family, Mode mode,
+                                                      MonitoringProperties.Distribution distribution) {
+        DistributionStatisticConfig.Builder builder = DistributionStatisticConfig.builder()
+                .percentilesHistogram(mode == Mode.HISTOGRAM)
+                .percentiles(mode == Mode.PERCENTILES ? toArray(distribution.getPercentiles(), 1) : new double[0])
+                .serviceLevelObjectives(mode == Mode.SLO ? slos(family, distribution) : new double[0]);
+        double scale = family.isTimer() ? NANOS_PER_SECOND : 1;
+        if (distribution.getMinimumExpectedValue() != null) {
+            builder.minimumExpectedValue(distribution.getMinimumExpectedValue() * scale);
+        }
+        if (distribution.getMaximumExpectedValue() != null) {
+            builder.maximumExpectedValue(distribution.getMaximumExpectedValue() * scale);
+        }
+        return builder.build();
+    }
+
+    private static double[] slos(MeterFamily family, MonitoringProperties.Distribution distribution) {
+        List<Double> slos = distribution.getSlos().isEmpty() ? family.defaultSlos() : distribution.getSlos();
+        return toArray(slos, family.isTimer() ? NANOS_PER_SECOND : 1);
+    }
+
+    private static double[] toArray(List<Double> values, double scale) {
+        return values.stream().mapToDouble(value -> value * scale).toArray();
+    }
+}
@@ -0,0 +1,63 @@
+package com.sambouch.batch.common.metrics;
+
+import com.sambouch.batch.common.history.SlowChunk;
+import com.sambouch.batch.common.history.SlowChunkRecorder;
+import io.prometheus.client.exemplars.Exemplar;
+import io.prometheus.client.exemplars.ExemplarSampler;
+
+/**
+ * Prometheus exemplar sampler attaching slow chunks to the samples of
+ * {@code batch.chunk.duration}.
+ *
+ * <p>The sampler is called on the thread recording the sample: while the listener
+ * records a slow chunk (see {@link SlowChunkRecorder#recordAsExemplar}), the exemplar
+ * carries its step, step execution id and chunk number, and replaces the previous
+ * exemplar of the series. Other samples are left to the delegate, e.g. the trace
+ * exemplars of Spring Boot, or keep the previous exemplar when there is none.</p>
+ *
+ * <p>Exemplars are only published in the OpenMetrics format, on the histogram buckets
+ * or on the {@code _count} of the timer.</p>
+ */
+public class SlowChunkExemplarSampler implements ExemplarSampler {
+
+    // OpenMetrics limits the labels of an exemplar to 128 characters in total
+    private static final int MAX_STEP_NAME_LENGTH = 64;
+
+    private final ExemplarSampler delegate;
+
+    /**
+     * @param delegate sampler of the other samples, {@code null} for none
+     */
+    public SlowChunkExemplarSampler(ExemplarSampler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Exemplar sample(double increment, Exemplar previous) {
+        SlowChunk chunk = SlowChunkRecorder.exemplarChunk();
+        if (chunk != null) {
+            return exemplar(increment, chunk);
+        }
+        return delegate != null ? delegate.sample(increment, previous) : null;
+    }
+
+    @Override
+    public Exemplar sample(double value, double bucketFrom, double bucketTo, Exemplar previous) {
+        SlowChunk chunk = SlowChunkRecorder.exemplarChunk();
+        if (chunk != null) {
+            return exemplar(value, chunk);
+        }
+        return delegate != null ? delegate.sample(value, bucketFrom, bucketTo, previous) : null;
+    }
+
+    private static Exemplar exemplar(double value, SlowChunk chunk) {
+        String stepName = chunk.stepName();
+        if (stepName.length() > MAX_STEP_NAME_LENGTH) {
+            stepName = stepName.substring(0, MAX_STEP_NAME_LENGTH);
+        }
+        return new Exemplar(value, chunk.endTime().toEpochMilli(),
+                "step", stepName,
+                "step_execution_id", String.valueOf(chunk.stepExecutionId()),
+                "chunk", Long.toString(chunk.chunkSequence()));
+    }
+}
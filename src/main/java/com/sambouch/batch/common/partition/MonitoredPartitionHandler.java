@@ -0,0 +1,34 @@
+package com.sambouch.batch.common.partition;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+
+import java.util.Collection;
+
+/**
+ * Hands the worker executions returned by the decorated handler to the
+ * {@link PartitionMonitor}. The handler returns the final state of the workers whether
+ * they ran locally or remotely, which the manager step does not otherwise expose.
+ */
+public class MonitoredPartitionHandler implements PartitionHandler {
+
+    private final PartitionHandler delegate;
+    private final PartitionMonitor monitor;
+
+    public MonitoredPartitionHandler(PartitionHandler delegate, PartitionMonitor monitor) {
+        this.delegate = delegate;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Collection<StepExecution> handle(StepExecutionSplitter stepSplitter, StepExecution stepExecution) throws Exception {
+        Collection<StepExecution> executions = delegate.handle(stepSplitter, stepExecution);
+        monitor.partitionsCompleted(stepExecution, executions);
+        return executions;
+    }
+
+    public PartitionHandler getDelegate() {
+        return delegate;
+    }
+}
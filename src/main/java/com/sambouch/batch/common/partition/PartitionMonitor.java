@@ -0,0 +1,224 @@
+package com.sambouch.batch.common.partition;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.partition.PartitionHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Detects skew across the partitions of a {@code PartitionStep}.
+ *
+ * <p>The worker executions are captured by a {@link MonitoredPartitionHandler} around
+ * the step's handler. In the manager's {@code afterStep}, the monitor computes the
+ * duration and item distribution of the partitions, the imbalance ratio (max / median)
+ * and flags as stragglers the partitions running over {@code stragglerThreshold} times
+ * the median duration. Recorded meters, tagged by {@code job.name} and the manager
+ * {@code step.name}:</p>
+ *
+ * <ul>
+ *   <li>{@code batch.partition.duration}: duration of each partition</li>
+ *   <li>{@code batch.partition.items}: items read by each partition</li>
+ *   <li>{@code batch.partition.imbalance}: max / median of the last execution, tagged
+ *       {@code basis=duration|items}</li>
+ *   <li>{@code batch.partition.stragglers}: number of straggling partitions</li>
+ * </ul>
+ */
+public class PartitionMonitor implements StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMonitor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final double stragglerThreshold;
+
+    // Worker executions returned by the handler, by manager step execution id
+    private final Map<Long, Collection<StepExecution>> completedPartitions = new ConcurrentHashMap<>();
+
+    // Imbalance of the last execution, by job and manager step name
+    private final Map<List<String>, Imbalance> imbalances = new ConcurrentHashMap<>();
+
+    /**
+     * @param stragglerThreshold a partition is a straggler when its duration exceeds this
+     *                           multiple of the median duration
+     */
+    public PartitionMonitor(MeterRegistry meterRegistry, double stragglerThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.stragglerThreshold = stragglerThreshold;
+    }
+
+    /**
+     * Decorates the handler of a partitioned step so that its partitions are analyzed.
+     */
+    public PartitionHandler monitor(PartitionHandler handler) {
+        return handler instanceof MonitoredPartitionHandler ? handler : new MonitoredPartitionHandler(handler, this);
+    }
+
+    void partitionsCompleted(StepExecution managerExecution, Collection<StepExecution> workerExecutions) {
+        if (managerExecution.getId() != null && workerExecutions != null) {
+            completedPartitions.put(managerExecution.getId(), workerExecutions);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        analyze(stepExecution);
+        return null;
+    }
+
+    /**
+     * Analyzes the partitions of a completed manager step, records the meters and logs
+     * a summary.
+     *
+     * @return the report, or {@code null} if the partitions of this execution were not captured
+     */
+    public PartitionSkewReport analyze(StepExecution managerExecution) {
+        Collection<StepExecution> workers = managerExecution.getId() != null
+                ? completedPartitions.remove(managerExecution.getId()) : null;
+        if (workers == null) {
+            return null;
+        }
+        String jobName = managerExecution.getJobExecution().getJobInstance().getJobName();
+        String stepName = managerExecution.getStepName();
+
+        List<StepExecution> finished = workers.stream()
+                .filter(worker -> worker.getStartTime() != null && worker.getEndTime() != null)
+                .toList();
+        if (finished.isEmpty()) {
+            return null;
+        }
+
+        List<Duration> durations = finished.stream()
+                .map(worker -> Duration.between(worker.getStartTime(), worker.getEndTime()))
+                .sorted()
+                .toList();
+        Duration medianDuration = medianDuration(durations);
+        Duration maxDuration = durations.get(durations.size() - 1);
+        Duration stragglerLimit = Duration.ofNanos((long) (medianDuration.toNanos() * stragglerThreshold));
+
+        long[] items = finished.stream().mapToLong(StepExecution::getReadCount).sorted().toArray();
+        double medianItems = median(items);
+        long maxItems = items[items.length - 1];
+
+        List<PartitionSkewReport.Partition> partitions = new ArrayList<>(finished.size());
+        for (StepExecution worker : finished) {
+            Duration duration = Duration.between(worker.getStartTime(), worker.getEndTime());
+            boolean straggler = finished.size() > 1 && !medianDuration.isZero() && duration.compareTo(stragglerLimit) > 0;
+            partitions.add(new PartitionSkewReport.Partition(worker.getStepName(), duration,
+                    worker.getReadCount(), worker.getWriteCount(), straggler));
+        }
+        partitions.sort(Comparator.comparing(PartitionSkewReport.Partition::duration).reversed());
+
+        PartitionSkewReport report = new PartitionSkewReport(jobName, stepName, List.copyOf(partitions),
+                medianDuration, maxDuration,
+                ratio(maxDuration.toNanos(), medianDuration.toNanos()),
+                medianItems, maxItems, ratio(maxItems, medianItems));
+        record(report);
+        logSummary(report);
+        return report;
+    }
+
+    private void record(PartitionSkewReport report) {
+        Timer duration = Timer.builder("batch.partition.duration")
+                .tag("job.name", report.jobName())
+                .tag("step.name", report.stepName())
+                .description("Duration of each partition of a partitioned step")
+                .register(meterRegistry);
+        DistributionSummary items = DistributionSummary.builder("batch.partition.items")
+                .tag("job.name", report.jobName())
+                .tag("step.name", report.stepName())
+                .description("Items read by each partition of a partitioned step")
+                .register(meterRegistry);
+        for (PartitionSkewReport.Partition partition : report.partitions()) {
+            duration.record(partition.duration());
+            items.record(partition.readCount());
+        }
+
+        Imbalance imbalance = imbalances.computeIfAbsent(List.of(report.jobName(), report.stepName()), Imbalance::new);
+        imbalance.duration = report.durationImbalance();
+        imbalance.items = report.itemImbalance();
+
+        int stragglers = report.stragglers().size();
+        if (stragglers > 0) {
+            Counter.builder("batch.partition.stragglers")
+                    .tag("job.name", report.jobName())
+                    .tag("step.name", report.stepName())
+                    .description("Partitions running over the straggler threshold")
+                    .register(meterRegistry)
+                    .increment(stragglers);
+        }
+    }
+
+    private void logSummary(PartitionSkewReport report) {
+        List<PartitionSkewReport.Partition> stragglers = report.stragglers();
+        String summary = String.format("Partitions of step %s: %d, duration median %d ms / max %d ms (imbalance %.2f), "
+                        + "items read median %.0f / max %d (imbalance %.2f)",
+                report.stepName(), report.partitions().size(),
+                report.medianDuration().toMillis(), report.maxDuration().toMillis(), report.durationImbalance(),
+                report.medianItems(), report.maxItems(), report.itemImbalance());
+        if (stragglers.isEmpty()) {
+            log.info("📊 {}", summary);
+        } else {
+            log.warn("⚠️ {}, {} straggler(s) over {}x the median: {}", summary, stragglers.size(), stragglerThreshold,
+                    stragglers.stream()
+                            .map(partition -> partition.stepName() + " (" + partition.duration().toMillis() + " ms, "
+                                    + partition.readCount() + " items)")
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private static Duration medianDuration(List<Duration> sorted) {
+        int middle = sorted.size() / 2;
+        if (sorted.size() % 2 == 1) {
+            return sorted.get(middle);
+        }
+        return sorted.get(middle - 1).plus(sorted.get(middle)).dividedBy(2);
+    }
+
+    private static double median(long[] sorted) {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+
+    private static double ratio(double max, double median) {
+        return median > 0 ? max / median : Double.NaN;
+    }
+
+    /**
+     * Last imbalance ratios of a partitioned step, read by the gauges.
+     */
+    private final class Imbalance {
+
+        private volatile double duration = Double.NaN;
+        private volatile double items = Double.NaN;
+
+        Imbalance(List<String> key) {
+            Gauge.builder("batch.partition.imbalance", this, imbalance -> imbalance.duration)
+                    .tag("job.name", key.get(0))
+                    .tag("step.name", key.get(1))
+                    .tag("basis", "duration")
+                    .description("Max / median across the partitions of the last execution")
+                    .register(meterRegistry);
+            Gauge.builder("batch.partition.imbalance", this, imbalance -> imbalance.items)
+                    .tag("job.name", key.get(0))
+                    .tag("step.name", key.get(1))
+                    .tag("basis", "items")
+                    .description("Max / median across the partitions of the last execution")
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sambouch.batch.common.partition;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * How the work of a partitioned step was spread across its partitions.
+ *
+ * @param jobName          name of the job
+ * @param stepName         name of the manager step
+ * @param partitions       statistics of each partition, slowest first
+ * @param medianDuration   median duration of the partitions
+ * @param maxDuration      duration of the slowest partition
+ * @param durationImbalance max / median of the durations, {@code NaN} when the median is zero
+ * @param medianItems      median of the items read per partition
+ * @param maxItems         items read by the largest partition
+ * @param itemImbalance    max / median of the items read, {@code NaN} when the median is zero
+ */
+public record PartitionSkewReport(String jobName,
+                                  String stepName,
+                                  List<Partition> partitions,
+                                  Duration medianDuration,
+                                  Duration maxDuration,
+                                  double durationImbalance,
+                                  double medianItems,
+                                  long maxItems,
+                                  double itemImbalance) {
+
+    /**
+     * @return the partitions flagged as stragglers
+     */
+    public List<Partition> stragglers() {
+        return partitions.stream().filter(Partition::straggler).toList();
+    }
+
+    /**
+     * Statistics of one partition.
+     *
+     * @param stepName  name of the worker step execution (e.g. {@code workerStep:partition3})
+     * @param duration  duration of the worker step
+     * @param readCount items read by the worker
+     * @param writeCount items written by the worker
+     * @param straggler whether it ran over the straggler threshold
+     */
+    public record Partition(String stepName, Duration duration, long readCount, long writeCount, boolean straggler) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.sambouch.batch.common.profiling;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stacks sampled from the threads of a step execution.
+ *
+ * @param jobName         name of the job
+ * @param stepName        name of the step execution
+ * @param stepExecutionId id of the step execution
+ * @param samples         stacks sampled, one per thread and sampling
+ * @param stacks          sample count by collapsed stack, frames from the root separated
+ *                        by {@code ;}
+ */
+public record StepProfile(String jobName, String stepName, long stepExecutionId, long samples,
+                          Map<String, Long> stacks) {
+
+    /**
+     * Writes the profile in the collapsed stack format read by {@code flamegraph.pl},
+     * speedscope or async-profiler converters: one {@code frame;frame;frame count} line per
+     * stack, the most sampled first.
+     */
+    public void writeCollapsed(Writer writer) throws IOException {
+        List<Map.Entry<String, Long>> lines = stacks.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .toList();
+        for (Map.Entry<String, Long> line : lines) {
+            writer.write(line.getKey());
+            writer.write(' ');
+            writer.write(Long.toString(line.getValue()));
+            writer.write('\n');
+        }
+    }
+}
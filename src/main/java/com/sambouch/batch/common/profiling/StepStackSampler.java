@@ -0,0 +1,305 @@
+package com.sambouch.batch.common.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.util.PatternMatchUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the stacks of the threads running the allow-listed steps, and writes them per
+ * step execution in the collapsed stack format of flame graphs.
+ *
+ * <p>The sampled threads are the thread of the step, from {@code beforeStep} to
+ * {@code afterStep}, and the threads running its chunks, from {@code beforeChunk} to
+ * {@code afterChunk}: the workers of a multi-threaded step are sampled while they run a
+ * chunk of it. All the threads are captured by a single
+ * {@link ThreadMXBean#getThreadInfo(long[], int)} call per sampling, so at a single
+ * safepoint.</p>
+ *
+ * <p>The overhead is bounded whatever the interval and the number of threads: the time
+ * spent sampling is measured, and the next sampling is delayed as long as it exceeds
+ * {@code maxOverhead} (1% by default) of the elapsed time, up to 10 ms saved while idle.
+ * The stacks are captured at a safepoint, so this also bounds the pauses of the batch
+ * threads. Each profile keeps at most
+ * {@code maxStacks} distinct stacks; the samples of the further ones are counted under
+ * a {@code [truncated]} stack.</p>
+ *
+ * <p>At {@code afterStep}, the profile is written to
+ * {@code <directory>/<job>-<step>-<step execution id>.collapsed}, ready for
+ * {@code flamegraph.pl} or speedscope.</p>
+ */
+public class StepStackSampler implements StepExecutionListener, ChunkListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(StepStackSampler.class);
+
+    // Sampling time that can be saved while sampling less than allowed, e.g. when idle
+    private static final long MAX_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final String TRUNCATED = "[truncated]";
+
+    private final List<String> steps;
+    private final long intervalNanos;
+    private final int maxDepth;
+    private final int maxStacks;
+    private final Path directory;
+    private final double maxOverhead;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService sampler;
+
+    // Sampled steps, by step execution id
+    private final Map<Long, SampledStep> runningSteps = new ConcurrentHashMap<>();
+
+    // Sampling time left, and end of the last sampling, confined to the sampler thread
+    private long budgetNanos = MAX_BUDGET_NANOS;
+    private long lastSampleNanos = System.nanoTime();
+
+    /**
+     * @param steps       names of the sampled steps, {@code *} matching any characters
+     * @param interval    interval between two samplings, lengthened to keep the overhead
+     *                    under {@code maxOverhead}
+     * @param maxOverhead largest fraction of the time spent sampling, e.g. {@code 0.01}
+     * @param maxDepth    deepest frames kept of each stack
+     * @param maxStacks   distinct stacks kept per step execution
+     * @param directory   directory of the profiles, created if missing; {@code null} to
+     *                    keep them in memory only
+     */
+    public StepStackSampler(List<String> steps, Duration interval, double maxOverhead, int maxDepth, int maxStacks,
+                            Path directory) {
+        this.steps = List.copyOf(steps);
+        this.intervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), interval.toNanos());
+        this.maxDepth = maxDepth;
+        this.maxStacks = maxStacks;
+        this.directory = directory;
+        this.maxOverhead = maxOverhead;
+        this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "step-stack-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.schedule(this::sample, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops sampling. The profiles of the running steps are dropped.
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        runningSteps.clear();
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null && isSampled(stepExecution.getStepName())) {
+            String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            SampledStep step = new SampledStep(jobName, stepExecution.getStepName(), stepExecution.getId());
+            step.enter(Thread.currentThread());
+            runningSteps.put(stepExecution.getId(), step);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        StepProfile profile = collect(stepExecution);
+        if (profile != null && directory != null) {
+            write(profile);
+        }
+        return null;
+    }
+
+    /**
+     * Stops sampling a step and returns its profile.
+     *
+     * @return the profile, or {@code null} if the step was not sampled
+     */
+    public StepProfile collect(StepExecution stepExecution) {
+        SampledStep step = runningSteps.isEmpty() || stepExecution.getId() == null
+                ? null : runningSteps.remove(stepExecution.getId());
+        if (step == null || !step.stepName.equals(stepExecution.getStepName())) {
+            return null;
+        }
+        return step.profile();
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        SampledStep step = sampledStep(context);
+        if (step != null) {
+            step.enter(Thread.currentThread());
+        }
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        SampledStep step = sampledStep(context);
+        if (step != null) {
+            step.exit(Thread.currentThread());
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        afterChunk(context);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private boolean isSampled(String stepName) {
+        for (String pattern : steps) {
+            if (PatternMatchUtils.simpleMatch(pattern, stepName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private SampledStep sampledStep(ChunkContext context) {
+        if (runningSteps.isEmpty()) {
+            return null;
+        }
+        Long id = context.getStepContext().getStepExecution().getId();
+        return id != null ? runningSteps.get(id) : null;
+    }
+
+    /**
+     * Captures the stacks of the threads of all the sampled steps, then schedules the next
+     * sampling.
+     */
+    private void sample() {
+        long start = System.nanoTime();
+        try {
+            if (!runningSteps.isEmpty()) {
+                List<SampledStep> owners = new ArrayList<>();
+                List<Long> ids = new ArrayList<>();
+                for (SampledStep step : runningSteps.values()) {
+                    for (Thread thread : step.threads.keySet()) {
+                        owners.add(step);
+                        ids.add(thread.getId());
+                    }
+                }
+                ThreadInfo[] infos = threads.getThreadInfo(ids.stream().mapToLong(Long::longValue).toArray(), maxDepth);
+                for (int i = 0; i < infos.length; i++) {
+                    if (infos[i] != null && infos[i].getStackTrace().length > 0) {
+                        owners.get(i).add(infos[i].getStackTrace());
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to sample the stacks of the running steps", e);
+        } finally {
+            long now = System.nanoTime();
+            // Earns the allowed share of the time since the last sampling, spends this one
+            budgetNanos = Math.min(MAX_BUDGET_NANOS, budgetNanos + (long) ((now - lastSampleNanos) * maxOverhead))
+                    - (now - start);
+            lastSampleNanos = now;
+            long delay = budgetNanos >= 0 ? intervalNanos : Math.max(intervalNanos, (long) (-budgetNanos / maxOverhead));
+            try {
+                sampler.schedule(this::sample, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void write(StepProfile profile) {
+        Path file = directory.resolve(sanitize(profile.jobName()) + "-" + sanitize(profile.stepName()) + "-"
+                + profile.stepExecutionId() + ".collapsed");
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                profile.writeCollapsed(writer);
+            }
+            log.info("Profile of step {}: {} samples, {} stacks, written to {}", profile.stepName(),
+                    profile.samples(), profile.stacks().size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to write the profile of step {} to {}", profile.stepName(), file, e);
+        }
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Threads and stacks of a sampled step execution.
+     */
+    private final class SampledStep {
+
+        private final String jobName;
+        private final String stepName;
+        private final long stepExecutionId;
+
+        // Threads running the step, with the number of enter() not yet exited
+        private final Map<Thread, Integer> threads = new ConcurrentHashMap<>();
+
+        // Sample count by collapsed stack, guarded by this
+        private final Map<String, Long> stacks = new HashMap<>();
+        private long samples;
+
+        SampledStep(String jobName, String stepName, long stepExecutionId) {
+            this.jobName = jobName;
+            this.stepName = stepName;
+            this.stepExecutionId = stepExecutionId;
+        }
+
+        void enter(Thread thread) {
+            threads.merge(thread, 1, Integer::sum);
+        }
+
+        void exit(Thread thread) {
+            threads.computeIfPresent(thread, (key, count) -> count > 1 ? count - 1 : null);
+        }
+
+        synchronized void add(StackTraceElement[] frames) {
+            StringBuilder stack = new StringBuilder(frames.length * 48);
+            for (int i = frames.length - 1; i >= 0; i--) {
+                if (stack.length() > 0) {
+                    stack.append(';');
+                }
+                stack.append(frames[i].getClassName()).append('.').append(frames[i].getMethodName());
+            }
+            String key = stack.toString();
+            if (stacks.size() >= maxStacks && !stacks.containsKey(key)) {
+                key = TRUNCATED;
+            }
+            stacks.merge(key, 1L, Long::sum);
+            samples++;
+        }
+
+        synchronized StepProfile profile() {
+            return new StepProfile(jobName, stepName, stepExecutionId, samples, Map.copyOf(stacks));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sambouch.batch.common.progress;
+
+import org.springframework.batch.core.StepExecution;
+
+/**
+ * Reads the expected total from a key of the step {@code ExecutionContext}, typically
+ * set by the reader when it is opened (e.g. from a {@code COUNT(*)} query):
+ *
+ * <pre>
+ * stepExecution.getExecutionContext().putLong("batch.progress.expected.total", total);
+ * </pre>
+ */
+public class ExecutionContextTotalEstimator implements StepTotalEstimator {
+
+    private final String key;
+
+    public ExecutionContextTotalEstimator(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public long estimateTotal(StepExecution stepExecution) {
+        Object total = stepExecution.getExecutionContext().get(key);
+        return total instanceof Number number ? number.longValue() : -1;
+    }
+}
@@ -0,0 +1,154 @@
+package com.sambouch.batch.common.progress;
+
+import org.springframework.batch.core.StepExecution;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Live progress of one running step execution, updated after each committed chunk.
+ *
+ * <p>The rate is an exponentially weighted moving average of the items read per second
+ * between two chunks, so it follows changes of pace without jumping at every chunk.
+ * Reads are lock-free; updates are serialized per step execution.</p>
+ */
+public final class StepProgress {
+
+    private final long stepExecutionId;
+    private final Long jobExecutionId;
+    private final String jobName;
+    private final String stepName;
+    private final Instant startTime;
+    private final long startNanos;
+
+    // Guarded by this
+    private long lastItems;
+    private long lastChunkNanos;
+
+    private volatile long items;
+    private volatile long chunks;
+    private volatile double rate;
+    private volatile long expectedTotal = -1;
+    private volatile long lastCommitNanos;
+
+    StepProgress(long stepExecutionId, Long jobExecutionId, String jobName, String stepName) {
+        this.stepExecutionId = stepExecutionId;
+        this.jobExecutionId = jobExecutionId;
+        this.jobName = jobName;
+        this.stepName = stepName;
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.lastChunkNanos = startNanos;
+        this.lastCommitNanos = startNanos;
+    }
+
+    synchronized void chunkCompleted(long itemsRead, long nowNanos, double smoothing) {
+        long elapsedNanos = nowNanos - lastChunkNanos;
+        long newItems = itemsRead - lastItems;
+        chunks++;
+        items = itemsRead;
+        lastCommitNanos = nowNanos;
+        if (elapsedNanos <= 0 || newItems < 0) {
+            // Chunks ending together on several threads: keep the current rate
+            return;
+        }
+        double chunkRate = newItems * 1_000_000_000.0 / elapsedNanos;
+        rate = chunks == 1 ? chunkRate : rate + smoothing * (chunkRate - rate);
+        lastItems = itemsRead;
+        lastChunkNanos = nowNanos;
+    }
+
+    void expectedTotal(long expectedTotal) {
+        this.expectedTotal = expectedTotal;
+    }
+
+    boolean belongsTo(StepExecution stepExecution) {
+        return stepName.equals(stepExecution.getStepName());
+    }
+
+    public long getStepExecutionId() {
+        return stepExecutionId;
+    }
+
+    /**
+     * @return the id of the job execution, {@code null} when unknown
+     */
+    public Long getJobExecutionId() {
+        return jobExecutionId;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getStepName() {
+        return stepName;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return time since the last chunk commit, or since the step start before the first
+     * one: the age of the running chunk in a single-threaded step
+     */
+    public Duration getCurrentChunkAge() {
+        return Duration.ofNanos(Math.max(0, System.nanoTime() - lastCommitNanos));
+    }
+
+    /**
+     * @return items read so far
+     */
+    public long getItems() {
+        return items;
+    }
+
+    /**
+     * @return committed chunks so far
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * @return smoothed rate in items per second, {@code 0} before the first chunk
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @return the expected total of items, or a negative value when unknown
+     */
+    public long getExpectedTotal() {
+        return expectedTotal;
+    }
+
+    /**
+     * @return the fraction of the expected total already read, {@code NaN} when unknown
+     */
+    public double getRatio() {
+        long total = expectedTotal;
+        if (total < 0) {
+            return Double.NaN;
+        }
+        return total == 0 ? 1.0 : Math.min(1.0, (double) items / total);
+    }
+
+    /**
+     * @return the estimated remaining time, or {@code null} when the total or the rate is unknown
+     */
+    public Duration getEta() {
+        long total = expectedTotal;
+        double currentRate = rate;
+        if (total < 0 || currentRate <= 0) {
+            return null;
+        }
+        return Duration.ofNanos((long) (Math.max(0, total - items) / currentRate * 1_000_000_000L));
+    }
+}
@@ -0,0 +1,226 @@
+package com.sambouch.batch.common.progress;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepExecution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Tracks the progress of running steps and exposes it as gauges tagged by
+ * {@code job.name} and {@code step.name}:
+ *
+ * <ul>
+ *   <li>{@code batch.step.progress.items}: items read so far</li>
+ *   <li>{@code batch.step.progress.rate}: smoothed rate in items per second</li>
+ *   <li>{@code batch.step.progress.ratio}: fraction of the expected total already read</li>
+ *   <li>{@code batch.step.progress.eta}: estimated remaining time, in seconds</li>
+ *   <li>{@code batch.step.progress.completion.time}: predicted end, in epoch seconds</li>
+ * </ul>
+ *
+ * <p>Ratio, ETA and completion time are {@code NaN} until the {@link StepTotalEstimator}
+ * knows the expected total. Executions running concurrently under the same tags (e.g.
+ * partitions with normalized names) are aggregated into the same gauges. The gauges are removed when the last
+ * of them ends, so dashboards only show running steps.</p>
+ */
+public class StepProgressTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(StepProgressTracker.class);
+
+    public static final String DEFAULT_EXPECTED_TOTAL_KEY = "batch.progress.expected.total";
+
+    private final MeterRegistry meterRegistry;
+    private final StepTotalEstimator totalEstimator;
+    private final double smoothing;
+    private final StepNameNormalizer stepNames;
+
+    private final Map<Long, StepProgress> running = new ConcurrentHashMap<>();
+
+    // Gauges by job and step tags, guarded by itself
+    private final Map<Tags, ProgressGauges> gauges = new HashMap<>();
+
+    /**
+     * @param totalEstimator provides the expected total of items of a step
+     * @param smoothing      weight of the last chunk in the smoothed rate, in {@code (0, 1]}
+     */
+    public StepProgressTracker(MeterRegistry meterRegistry, StepTotalEstimator totalEstimator, double smoothing) {
+        this(meterRegistry, totalEstimator, smoothing, StepNameNormalizer.NONE);
+    }
+
+    /**
+     * @param totalEstimator provides the expected total of items of a step
+     * @param smoothing      weight of the last chunk in the smoothed rate, in {@code (0, 1]}
+     * @param stepNames      mapping of step execution names to the {@code step.name} tag
+     */
+    public StepProgressTracker(MeterRegistry meterRegistry, StepTotalEstimator totalEstimator, double smoothing,
+                               StepNameNormalizer stepNames) {
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]: " + smoothing);
+        }
+        this.meterRegistry = meterRegistry;
+        this.totalEstimator = totalEstimator;
+        this.smoothing = smoothing;
+        this.stepNames = stepNames;
+    }
+
+    public void stepStarted(StepExecution stepExecution) {
+        Long id = stepExecution.getId();
+        if (id == null) {
+            return;
+        }
+        StepProgress progress = new StepProgress(id,
+                stepExecution.getJobExecutionId(),
+                stepExecution.getJobExecution().getJobInstance().getJobName(),
+                stepExecution.getStepName());
+        StepProgress previous = running.put(id, progress);
+        synchronized (gauges) {
+            if (previous != null) {
+                leave(previous);
+            }
+            gauges.computeIfAbsent(stepNames.tags(progress.getJobName(), progress.getStepName()), ProgressGauges::new)
+                    .members.add(progress);
+        }
+    }
+
+    public void chunkCompleted(StepExecution stepExecution) {
+        StepProgress progress = progress(stepExecution);
+        if (progress == null) {
+            return;
+        }
+        progress.chunkCompleted(stepExecution.getReadCount(), System.nanoTime(), smoothing);
+        if (progress.getExpectedTotal() < 0) {
+            try {
+                progress.expectedTotal(totalEstimator.estimateTotal(stepExecution));
+            } catch (RuntimeException e) {
+                log.debug("Expected total of step {} not available: {}", progress.getStepName(), e.getMessage());
+            }
+        }
+    }
+
+    public void stepCompleted(StepExecution stepExecution) {
+        StepProgress progress = progress(stepExecution);
+        if (progress == null || !running.remove(progress.getStepExecutionId(), progress)) {
+            return;
+        }
+        synchronized (gauges) {
+            leave(progress);
+        }
+    }
+
+    /**
+     * @return the progress of the given running step execution, or {@code null}
+     */
+    public StepProgress progress(StepExecution stepExecution) {
+        Long id = stepExecution.getId();
+        StepProgress progress = id != null ? running.get(id) : null;
+        return progress != null && progress.belongsTo(stepExecution) ? progress : null;
+    }
+
+    /**
+     * @return a snapshot of the running step executions
+     */
+    public Collection<StepProgress> runningSteps() {
+        return Collections.unmodifiableList(new ArrayList<>(running.values()));
+    }
+
+    private void leave(StepProgress progress) {
+        Tags key = stepNames.tags(progress.getJobName(), progress.getStepName());
+        ProgressGauges group = gauges.get(key);
+        if (group != null && group.members.remove(progress) && group.members.isEmpty()) {
+            gauges.remove(key);
+            group.meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    /**
+     * Gauges shared by the running executions of a step name.
+     */
+    private final class ProgressGauges {
+
+        private final List<StepProgress> members = new CopyOnWriteArrayList<>();
+        private final List<Meter> meters = new ArrayList<>();
+
+        ProgressGauges(Tags tags) {
+            meters.add(gauge("batch.step.progress.items", tags, "Items read so far by the running step", null,
+                    ProgressGauges::items));
+            meters.add(gauge("batch.step.progress.rate", tags, "Smoothed read rate of the running step in items per second", null,
+                    ProgressGauges::rate));
+            meters.add(gauge("batch.step.progress.ratio", tags, "Fraction of the expected items already read", null,
+                    ProgressGauges::ratio));
+            meters.add(gauge("batch.step.progress.eta", tags, "Estimated remaining time of the running step", "seconds",
+                    ProgressGauges::etaSeconds));
+            meters.add(gauge("batch.step.progress.completion.time", tags, "Predicted completion time of the running step", "seconds",
+                    group -> System.currentTimeMillis() / 1000.0 + group.etaSeconds()));
+        }
+
+        private Gauge gauge(String name, Tags tags, String description, String baseUnit,
+                            ToDoubleFunction<ProgressGauges> value) {
+            return Gauge.builder(name, this, value)
+                    .tags(tags)
+                    .description(description)
+                    .baseUnit(baseUnit)
+                    .register(meterRegistry);
+        }
+
+        double items() {
+            long sum = 0;
+            for (StepProgress member : members) {
+                sum += member.getItems();
+            }
+            return sum;
+        }
+
+        double rate() {
+            double sum = 0;
+            for (StepProgress member : members) {
+                sum += member.getRate();
+            }
+            return sum;
+        }
+
+        double ratio() {
+            long total = expectedTotal();
+            if (total < 0) {
+                return Double.NaN;
+            }
+            return total == 0 ? 1.0 : Math.min(1.0, items() / total);
+        }
+
+        double etaSeconds() {
+            long total = expectedTotal();
+            double currentRate = rate();
+            if (total < 0 || currentRate <= 0) {
+                return Double.NaN;
+            }
+            return Math.max(0, total - items()) / currentRate;
+        }
+
+        /**
+         * @return the sum of the expected totals, or {@code -1} if one of them is unknown
+         */
+        private long expectedTotal() {
+            long sum = 0;
+            for (StepProgress member : members) {
+                long total = member.getExpectedTotal();
+                if (total < 0) {
+                    return -1;
+                }
+                sum += total;
+            }
+            return sum;
+        }
+    }
+}
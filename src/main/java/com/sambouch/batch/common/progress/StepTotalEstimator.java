@@ -0,0 +1,20 @@
+package com.sambouch.batch.common.progress;
+
+import org.springframework.batch.core.StepExecution;
+
+/**
+ * Estimates how many items a step will read in total, used to compute its progress
+ * ratio and completion time.
+ *
+ * <p>Called at every chunk until it returns a known total, then no more for that
+ * step execution. Implementations must be cheap and thread-safe.</p>
+ */
+@FunctionalInterface
+public interface StepTotalEstimator {
+
+    /**
+     * @param stepExecution the running step execution
+     * @return the expected total number of items read, or a negative value if unknown yet
+     */
+    long estimateTotal(StepExecution stepExecution);
+}
@@ -0,0 +1,276 @@
+package com.sambouch.batch.common.pushgateway;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.prometheus.client.CollectorRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes from a single background thread so that a slow or unreachable Pushgateway
+ * never delays the batch thread.
+ *
+ * <ul>
+ *   <li>Requests go through a bounded queue; when it is full the request is dropped
+ *       and counted rather than blocking the job.</li>
+ *   <li>A request arriving within the coalescing window is sent once when the previous
+ *       request for the same group is identical: the registry is serialized at send
+ *       time, so the last push wins anyway. A push following a deletion of its group is
+ *       kept, so that the group is recreated.</li>
+ *   <li>Failed pushes are retried with exponential backoff.</li>
+ *   <li>{@link #close()} (called by Spring when the context shuts down, including from
+ *       the JVM shutdown hook) flushes the queue within the configured deadline.</li>
+ * </ul>
+ *
+ * <p>Deletions go through the same queue, so they are applied in order with the pushes.
+ * Exposes {@code batch.push.queue.size}, {@code batch.push.duration},
+ * {@code batch.push.coalesced} and {@code batch.push.dropped} (tagged by reason).</p>
+ */
+public class AsyncPushGatewayExporter implements PushGatewayExporter, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncPushGatewayExporter.class);
+
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final PushGatewayClient client;
+    private final CollectorRegistry collectorRegistry;
+    private final PushPayloadFilter payloadFilter;
+    private final BlockingQueue<PushRequest> queue;
+    private final long coalesceWindowNanos;
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Duration shutdownTimeout;
+    private final Thread sender;
+
+    private final Timer pushSuccess;
+    private final Timer pushFailure;
+    private final Counter coalesced;
+    private final Counter droppedQueueFull;
+    private final Counter droppedRetriesExhausted;
+    private final Counter droppedShutdown;
+
+    private volatile boolean closing;
+    private volatile long shutdownDeadline;
+
+    /**
+     * @param collectorRegistry the registry to push, {@code null} if the application has
+     *                          no Prometheus registry (pushes are then skipped)
+     * @param payloadFilter     selects the series sent with each push
+     */
+    public AsyncPushGatewayExporter(PushGatewayClient client,
+                                    CollectorRegistry collectorRegistry,
+                                    PushPayloadFilter payloadFilter,
+                                    MeterRegistry meterRegistry,
+                                    int queueCapacity,
+                                    Duration coalesceWindow,
+                                    int maxRetries,
+                                    Duration initialBackoff,
+                                    Duration maxBackoff,
+                                    Duration shutdownTimeout) {
+        this.client = client;
+        this.collectorRegistry = collectorRegistry;
+        this.payloadFilter = payloadFilter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.coalesceWindowNanos = coalesceWindow.toNanos();
+        this.maxRetries = maxRetries;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("batch.push.queue.size", queue, BlockingQueue::size)
+                .description("Pushgateway pushes waiting to be sent")
+                .register(meterRegistry);
+        this.pushSuccess = pushTimer(meterRegistry, "success");
+        this.pushFailure = pushTimer(meterRegistry, "failure");
+        this.coalesced = Counter.builder("batch.push.coalesced")
+                .description("Pushes merged with a pending push to the same group")
+                .register(meterRegistry);
+        this.droppedQueueFull = droppedCounter(meterRegistry, "queue_full");
+        this.droppedRetriesExhausted = droppedCounter(meterRegistry, "retries_exhausted");
+        this.droppedShutdown = droppedCounter(meterRegistry, "shutdown");
+
+        this.sender = new Thread(this::run, "pushgateway-sender");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    @Override
+    public void export(PushRequest request) {
+        if (collectorRegistry == null) {
+            log.warn("⚠️  MeterRegistry is not of type Prometheus");
+            return;
+        }
+        if (closing) {
+            droppedShutdown.increment();
+            log.warn("⚠️ Pushgateway exporter is shutting down, push dropped (job: {})", request.job());
+            return;
+        }
+        if (!queue.offer(request)) {
+            droppedQueueFull.increment();
+            log.warn("⚠️ Pushgateway queue full, push dropped (job: {})", request.job());
+        }
+    }
+
+    /**
+     * Stops accepting pushes and waits for the pending ones to be sent, at most for the
+     * configured shutdown timeout. Whatever is still queued after that is dropped.
+     */
+    @Override
+    public void close() {
+        if (closing) {
+            return;
+        }
+        shutdownDeadline = System.nanoTime() + shutdownTimeout.toNanos();
+        closing = true;
+        try {
+            sender.join(Math.max(1, shutdownTimeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (sender.isAlive()) {
+            sender.interrupt();
+        }
+        int remaining = queue.size();
+        queue.clear();
+        if (remaining > 0) {
+            droppedShutdown.increment(remaining);
+            log.warn("⚠️ {} Pushgateway push(es) not flushed within {}", remaining, shutdownTimeout);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // SENDER THREAD
+    // ═══════════════════════════════════════════════════════════
+
+    private void run() {
+        int unsent = 0;
+        try {
+            while (true) {
+                PushRequest first = closing ? queue.poll() : queue.poll(IDLE_POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                unsent = 1;
+                List<PushRequest> batch = collectBatch(first);
+                unsent = batch.size();
+                for (PushRequest request : batch) {
+                    send(request);
+                    unsent--;
+                }
+            }
+        } catch (InterruptedException e) {
+            if (unsent > 0) {
+                droppedShutdown.increment(unsent);
+            }
+            log.debug("Pushgateway sender interrupted, {} push(es) not sent", unsent);
+        }
+    }
+
+    /**
+     * Waits for the coalescing window and merges the requests received meanwhile, in
+     * arrival order, dropping those identical to the previous request for their group.
+     */
+    private List<PushRequest> collectBatch(PushRequest first) throws InterruptedException {
+        List<PushRequest> batch = new ArrayList<>();
+        Map<Group, PushRequest> lastByGroup = new HashMap<>();
+        addToBatch(batch, lastByGroup, first);
+        long deadline = System.nanoTime() + coalesceWindowNanos;
+        PushRequest next;
+        while (!closing) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            // Bounded wait so that close() is noticed during a long window
+            next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                addToBatch(batch, lastByGroup, next);
+            }
+        }
+        while ((next = queue.poll()) != null) {
+            addToBatch(batch, lastByGroup, next);
+        }
+        return batch;
+    }
+
+    private void addToBatch(List<PushRequest> batch, Map<Group, PushRequest> lastByGroup, PushRequest request) {
+        // PUSH, DELETE, PUSH of a group must all be sent for the group to end up pushed
+        if (request.equals(lastByGroup.put(new Group(request.job(), request.groupingKey()), request))) {
+            coalesced.increment();
+            return;
+        }
+        batch.add(request);
+    }
+
+    private void send(PushRequest request) throws InterruptedException {
+        long backoff = initialBackoffNanos;
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                if (request.operation() == PushRequest.Operation.DELETE) {
+                    client.delete(request.job(), request.groupingKey());
+                    log.debug("Pushgateway group deleted (job: {}, group: {})", request.job(), request.groupingKey());
+                    return;
+                }
+                int bytes = client.push(payloadFilter.select(collectorRegistry, request.job()),
+                        request.job(), request.groupingKey());
+                pushSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.debug("✅ Metrics pushed to Pushgateway (job: {}, {} bytes)", request.job(), bytes);
+                return;
+            } catch (Exception e) {
+                pushFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (attempt >= maxRetries) {
+                    droppedRetriesExhausted.increment();
+                    log.error("❌ Error pushing metrics to Pushgateway after {} attempt(s) (job: {})",
+                            attempt + 1, request.job(), e);
+                    return;
+                }
+                if (closing && System.nanoTime() + backoff - shutdownDeadline > 0) {
+                    droppedShutdown.increment();
+                    log.warn("⚠️ Push not retried, shutdown deadline reached (job: {}): {}",
+                            request.job(), e.getMessage());
+                    return;
+                }
+                log.warn("⚠️ Push to Pushgateway failed (attempt {}/{}), retrying in {} ms: {}",
+                        attempt + 1, maxRetries + 1, TimeUnit.NANOSECONDS.toMillis(backoff), e.getMessage());
+                TimeUnit.NANOSECONDS.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxBackoffNanos);
+            }
+        }
+    }
+
+    /**
+     * Pushgateway group targeted by a request.
+     */
+    private record Group(String job, Map<String, String> groupingKey) {
+    }
+
+    private static Timer pushTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("batch.push.duration")
+                .tag("outcome", outcome)
+                .description("Latency of Pushgateway push requests")
+                .register(meterRegistry);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("batch.push.dropped")
+                .tag("reason", reason)
+                .description("Pushgateway pushes that were never delivered")
+                .register(meterRegistry);
+    }
+}
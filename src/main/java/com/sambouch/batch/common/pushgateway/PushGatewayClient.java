@@ -0,0 +1,168 @@
+package com.sambouch.batch.common.pushgateway;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal Pushgateway HTTP client.
+ *
+ * <p>Same URL layout and text format as {@code io.prometheus.client.exporter.PushGateway},
+ * but backed by a single {@link HttpClient} so that TCP connections are kept alive and
+ * reused across pushes ({@code PushGateway} disconnects after every request).</p>
+ *
+ * <p>Request bodies can be gzip-compressed ({@code Content-Encoding: gzip}); this requires
+ * a Pushgateway version accepting compressed pushes.</p>
+ *
+ * <p>Thread-safe.</p>
+ */
+public class PushGatewayClient {
+
+    private final String metricsUrl;
+    private final String groupsUrl;
+    private final Duration requestTimeout;
+    private final boolean gzip;
+    private final HttpClient httpClient;
+
+    public PushGatewayClient(String url, Duration connectTimeout, Duration requestTimeout) {
+        this(url, connectTimeout, requestTimeout, false);
+    }
+
+    public PushGatewayClient(String url, Duration connectTimeout, Duration requestTimeout, boolean gzip) {
+        String baseUrl = url.contains("://") ? url : "http://" + url;
+        String root = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        this.metricsUrl = root + "metrics/";
+        this.groupsUrl = root + "api/v1/metrics";
+        this.requestTimeout = requestTimeout;
+        this.gzip = gzip;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Replaces the metrics of the group identified by job and grouping key (HTTP PUT).
+     *
+     * @return the size in bytes of the request body
+     */
+    public int push(Enumeration<MetricFamilySamples> samples, String job, Map<String, String> groupingKey)
+            throws IOException {
+        byte[] body = serialize(samples);
+        send("PUT", job, groupingKey, HttpRequest.BodyPublishers.ofByteArray(body), gzip);
+        return body.length;
+    }
+
+    /**
+     * Deletes the group identified by job and grouping key (HTTP DELETE).
+     */
+    public void delete(String job, Map<String, String> groupingKey) throws IOException {
+        send("DELETE", job, groupingKey, HttpRequest.BodyPublishers.noBody(), false);
+    }
+
+    /**
+     * Lists the groups held by the Pushgateway, from its {@code /api/v1/metrics} API.
+     * Requires Jackson on the classpath.
+     */
+    public List<PushGatewayGroup> groups() throws IOException {
+        URI uri = URI.create(groupsUrl);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while listing groups from " + uri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Response code from " + uri + " was " + response.statusCode()
+                    + ", response body: " + response.body());
+        }
+        return PushGatewayGroups.parse(response.body());
+    }
+
+    private void send(String method, String job, Map<String, String> groupingKey,
+                      HttpRequest.BodyPublisher body, boolean compressed) throws IOException {
+        URI uri = URI.create(groupUrl(job, groupingKey));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", TextFormat.CONTENT_TYPE_004)
+                .method(method, body);
+        if (compressed) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        HttpRequest request = builder.build();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending " + method + " to " + uri, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Response code from " + uri + " was " + response.statusCode()
+                    + ", response body: " + response.body());
+        }
+    }
+
+    private byte[] serialize(Enumeration<MetricFamilySamples> samples) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        OutputStream target = gzip ? new GZIPOutputStream(out) : out;
+        try (Writer writer = new OutputStreamWriter(target, StandardCharsets.UTF_8)) {
+            TextFormat.write004(writer, samples);
+        }
+        return out.toByteArray();
+    }
+
+    String groupUrl(String job, Map<String, String> groupingKey) {
+        StringBuilder url = new StringBuilder(metricsUrl);
+        if (job.contains("/")) {
+            url.append("job@base64/").append(base64url(job));
+        } else {
+            url.append("job/").append(urlEncode(job));
+        }
+        if (groupingKey != null) {
+            for (Map.Entry<String, String> entry : groupingKey.entrySet()) {
+                String value = entry.getValue();
+                url.append('/').append(entry.getKey());
+                if (value.isEmpty()) {
+                    url.append("@base64/=");
+                } else if (value.contains("/")) {
+                    url.append("@base64/").append(base64url(value));
+                } else {
+                    url.append('/').append(urlEncode(value));
+                }
+            }
+        }
+        return url.toString();
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static String base64url(String value) {
+        return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,15 @@
+package com.sambouch.batch.common.pushgateway;
+
+/**
+ * Sends the metrics registry to the Prometheus Pushgateway.
+ */
+public interface PushGatewayExporter {
+
+    /**
+     * Pushes the current state of the registry to the group of the request.
+     * Never throws: failures are logged and counted by the implementation.
+     *
+     * @param request the target group
+     */
+    void export(PushRequest request);
+}
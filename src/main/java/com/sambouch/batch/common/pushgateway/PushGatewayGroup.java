@@ -0,0 +1,31 @@
+package com.sambouch.batch.common.pushgateway;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A group of metrics held by the Pushgateway.
+ *
+ * @param labels   the labels identifying the group, {@code job} included
+ * @param pushTime time of the last successful push to the group, {@code null} if unknown
+ */
+public record PushGatewayGroup(Map<String, String> labels, Instant pushTime) {
+
+    public PushGatewayGroup {
+        labels = Map.copyOf(labels);
+    }
+
+    public String job() {
+        return labels.get("job");
+    }
+
+    /**
+     * @return the grouping key of the group, i.e. its labels without {@code job}
+     */
+    public Map<String, String> groupingKey() {
+        Map<String, String> groupingKey = new HashMap<>(labels);
+        groupingKey.remove("job");
+        return groupingKey;
+    }
+}
@@ -0,0 +1,192 @@
+package com.sambouch.batch.common.pushgateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the Pushgateway groups that are no longer needed, so that the gateway does
+ * not accumulate one group per job execution forever.
+ *
+ * <ul>
+ *   <li>When a job completes successfully, the groups of its previous executions are
+ *       deleted (optional).</li>
+ *   <li>Only the groups of the last N executions of each job are kept (optional).</li>
+ *   <li>These two never delete the {@code STARTED} groups of executions still running,
+ *       nor count them among the last N: they are pushed periodically, and are left to
+ *       the TTL sweep if their execution never completes.</li>
+ *   <li>Groups not pushed for longer than a TTL are deleted by a periodic sweep, which
+ *       collects the groups of executions that never completed (optional).</li>
+ * </ul>
+ *
+ * <p>Groups are listed with the Pushgateway API, so the groups pushed by previous runs of
+ * the application are found too. Only groups whose {@code instance} label is the
+ * application name are ever deleted. The listing runs on a dedicated thread and the
+ * deletions go through the exporter. The thread runs the TTL sweep when a TTL is set;
+ * otherwise it only lives while cleanups are pending.</p>
+ */
+public class PushGatewayGroupLifecycle implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PushGatewayGroupLifecycle.class);
+
+    static final String EXECUTION_ID_LABEL = "job_execution_id";
+
+    private final PushGatewayClient client;
+    private final PushGatewayExporter exporter;
+    private final String applicationName;
+    private final boolean deletePreviousOnSuccess;
+    private final int keepLast;
+    private final Duration ttl;
+    private final ExecutorService executor;
+
+    /**
+     * @param deletePreviousOnSuccess deletes the groups of the previous executions of a job
+     *                                when it completes successfully
+     * @param keepLast                number of executions of a job whose groups are kept,
+     *                                {@code 0} to keep them all
+     * @param ttl                     deletes the groups not pushed for this long, {@code null}
+     *                                to disable the sweep
+     * @param sweepInterval           interval of the TTL sweep
+     */
+    public PushGatewayGroupLifecycle(PushGatewayClient client,
+                                     PushGatewayExporter exporter,
+                                     String applicationName,
+                                     boolean deletePreviousOnSuccess,
+                                     int keepLast,
+                                     Duration ttl,
+                                     Duration sweepInterval) {
+        this.client = client;
+        this.exporter = exporter;
+        this.applicationName = applicationName;
+        this.deletePreviousOnSuccess = deletePreviousOnSuccess;
+        this.keepLast = Math.max(0, keepLast);
+        this.ttl = ttl;
+        if (ttl != null) {
+            ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, PushGatewayGroupLifecycle::newThread);
+            long intervalMillis = sweepInterval.toMillis();
+            sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+            this.executor = sweeper;
+        } else if (deletePreviousOnSuccess || this.keepLast > 0) {
+            // No core thread: the thread stops once the pending cleanups are done
+            this.executor = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    PushGatewayGroupLifecycle::newThread);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Schedules the cleanup of the groups of the previous executions of a job that has
+     * just been pushed for the last time.
+     */
+    public void jobCompleted(String job, long jobExecutionId, BatchStatus status) {
+        boolean deletePrevious = deletePreviousOnSuccess && status == BatchStatus.COMPLETED;
+        if (executor == null || (!deletePrevious && keepLast == 0)) {
+            return;
+        }
+        try {
+            executor.execute(() -> cleanUp(job, jobExecutionId, deletePrevious));
+        } catch (RejectedExecutionException e) {
+            log.debug("Pushgateway lifecycle closed, groups of job {} not cleaned up", job);
+        }
+    }
+
+    /**
+     * Deletes the groups of this application not pushed for longer than the TTL.
+     */
+    void sweep() {
+        Instant expiry = Instant.now().minus(ttl);
+        try {
+            int deleted = 0;
+            for (PushGatewayGroup group : client.groups()) {
+                if (ownGroup(group) && group.pushTime() != null && group.pushTime().isBefore(expiry)) {
+                    delete(group);
+                    deleted++;
+                }
+            }
+            if (deleted > 0) {
+                log.info("🧹 {} Pushgateway group(s) not pushed for {} deleted", deleted, ttl);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Pushgateway TTL sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private void cleanUp(String job, long jobExecutionId, boolean deletePrevious) {
+        try {
+            List<PushGatewayGroup> groups = client.groups().stream()
+                    .filter(group -> job.equals(group.job()) && ownGroup(group) && executionId(group) != null)
+                    .filter(group -> !BatchStatus.STARTED.name().equals(group.labels().get("status")))
+                    .toList();
+
+            // Executions kept, most recent first
+            TreeSet<Long> kept = new TreeSet<>(Comparator.reverseOrder());
+            groups.forEach(group -> kept.add(executionId(group)));
+            kept.add(jobExecutionId);
+            while (keepLast > 0 && kept.size() > keepLast) {
+                kept.pollLast();
+            }
+
+            for (PushGatewayGroup group : groups) {
+                long executionId = executionId(group);
+                if (executionId >= jobExecutionId) {
+                    // The completed execution, or a more recent one
+                    continue;
+                }
+                if (deletePrevious || !kept.contains(executionId)) {
+                    delete(group);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Cleanup of the Pushgateway groups of job {} failed: {}", job, e.getMessage());
+        }
+    }
+
+    private void delete(PushGatewayGroup group) {
+        Map<String, String> groupingKey = group.groupingKey();
+        log.debug("Deleting Pushgateway group (job: {}, group: {})", group.job(), groupingKey);
+        exporter.export(PushRequest.delete(group.job(), groupingKey));
+    }
+
+    private boolean ownGroup(PushGatewayGroup group) {
+        return applicationName.equals(group.labels().get("instance")) && group.job() != null;
+    }
+
+    private static Long executionId(PushGatewayGroup group) {
+        String executionId = group.labels().get(EXECUTION_ID_LABEL);
+        if (executionId == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(executionId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "pushgateway-lifecycle");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
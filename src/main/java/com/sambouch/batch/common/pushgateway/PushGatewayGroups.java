@@ -0,0 +1,50 @@
+package com.sambouch.batch.common.pushgateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the {@code /api/v1/metrics} response of the Pushgateway.
+ *
+ * <p>Kept apart from {@link PushGatewayClient} so that pushing does not require Jackson,
+ * which is only needed to list the groups.</p>
+ */
+final class PushGatewayGroups {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private PushGatewayGroups() {
+    }
+
+    static List<PushGatewayGroup> parse(String json) throws IOException {
+        List<PushGatewayGroup> groups = new ArrayList<>();
+        for (JsonNode group : OBJECT_MAPPER.readTree(json).path("data")) {
+            Map<String, String> labels = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = group.path("labels").fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> label = fields.next();
+                labels.put(label.getKey(), label.getValue().asText());
+            }
+            // e.g. "push_time_seconds": {"metrics": [{"value": "1.7e+09"}]}
+            JsonNode pushTime = group.path("push_time_seconds").path("metrics").path(0).path("value");
+            Instant pushedAt = null;
+            if (pushTime.isTextual() || pushTime.isNumber()) {
+                try {
+                    double seconds = Double.parseDouble(pushTime.asText());
+                    pushedAt = Instant.ofEpochMilli((long) (seconds * 1000));
+                } catch (NumberFormatException e) {
+                    // Unknown push time, the group is never considered expired
+                }
+            }
+            groups.add(new PushGatewayGroup(labels, pushedAt));
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,190 @@
+package com.sambouch.batch.common.pushgateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes the metrics of each job to the Pushgateway when it completes, grouped by
+ * {@code instance}, {@code job_execution_id} and {@code status}.
+ *
+ * <p>With a push interval, the metrics are also pushed periodically while the job runs,
+ * into the group of the execution with status {@code STARTED}, so that long-running jobs
+ * are visible before they end and their metrics survive a crash of the JVM. At
+ * completion the final push goes to the group with the final status and the
+ * {@code STARTED} group is deleted.</p>
+ *
+ * <p>Periodic pushes are triggered from a dedicated scheduler thread and handed to the
+ * exporter, so they never run on batch threads.</p>
+ *
+ * <p>With a group per job, all the executions of a job push to the same group, grouped by
+ * {@code instance} only, which each push replaces. Otherwise the groups of past executions
+ * are cleaned up by the {@link PushGatewayGroupLifecycle}, if any.</p>
+ *
+ * <p>Ordered first, so that its {@code afterJob} runs after those of the other listeners
+ * of the job and the final push holds the metrics they record.</p>
+ */
+public class PushGatewayJobListener implements JobExecutionListener, Ordered, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PushGatewayJobListener.class);
+
+    private final PushGatewayExporter exporter;
+    private final String applicationName;
+    private final Duration pushInterval;
+    private final boolean groupPerJob;
+    private final PushGatewayGroupLifecycle lifecycle;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    // Periodic pushes of the running executions, by job execution id
+    private final Map<Long, InFlightPush> inFlightPushes = new ConcurrentHashMap<>();
+
+    /**
+     * @param exporter        the exporter sending the pushes
+     * @param applicationName value of the {@code instance} grouping label
+     * @param pushInterval    interval of the pushes while a job runs, {@code null} to push
+     *                        only at completion
+     */
+    public PushGatewayJobListener(PushGatewayExporter exporter, String applicationName, Duration pushInterval) {
+        this(exporter, applicationName, pushInterval, false, null);
+    }
+
+    /**
+     * @param exporter        the exporter sending the pushes
+     * @param applicationName value of the {@code instance} grouping label
+     * @param pushInterval    interval of the pushes while a job runs, {@code null} to push
+     *                        only at completion
+     * @param groupPerJob     pushes all the executions of a job to a single group
+     * @param lifecycle       cleanup of the groups of past executions, {@code null} to keep them
+     */
+    public PushGatewayJobListener(PushGatewayExporter exporter, String applicationName, Duration pushInterval,
+                                  boolean groupPerJob, PushGatewayGroupLifecycle lifecycle) {
+        this.exporter = exporter;
+        this.applicationName = applicationName;
+        this.pushInterval = pushInterval;
+        this.groupPerJob = groupPerJob;
+        this.lifecycle = lifecycle;
+        if (pushInterval != null) {
+            this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "pushgateway-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        log.debug("Job started: {}", jobExecution.getJobInstance().getJobName());
+        if (scheduler == null || jobExecution.getId() == null) {
+            return;
+        }
+        PushRequest request = new PushRequest(jobExecution.getJobInstance().getJobName(),
+                groupingKey(jobExecution, BatchStatus.STARTED));
+        InFlightPush inFlightPush = new InFlightPush(request);
+        long intervalMillis = pushInterval.toMillis();
+        inFlightPush.future = scheduler.scheduleAtFixedRate(inFlightPush, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        inFlightPushes.put(jobExecution.getId(), inFlightPush);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        String jobName = jobExecution.getJobInstance().getJobName();
+        log.debug("Job completed: {} with status: {}", jobName, jobExecution.getStatus());
+
+        InFlightPush inFlightPush = jobExecution.getId() != null ? inFlightPushes.remove(jobExecution.getId()) : null;
+        if (inFlightPush != null) {
+            inFlightPush.stop();
+        }
+
+        // Appeler pushMetrics après la fin du job
+        exporter.export(new PushRequest(jobName, groupingKey(jobExecution, jobExecution.getStatus())));
+
+        if (inFlightPush != null && inFlightPush.pushed && !groupPerJob) {
+            exporter.export(PushRequest.delete(jobName, inFlightPush.request.groupingKey()));
+        }
+
+        if (lifecycle != null && !groupPerJob && jobExecution.getId() != null) {
+            lifecycle.jobCompleted(jobName, jobExecution.getId(), jobExecution.getStatus());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Stops the periodic pushes. Running jobs only get their final push.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Map<String, String> groupingKey(JobExecution jobExecution, BatchStatus status) {
+        // Grouping key by labels additionnels
+        Map<String, String> groupingKey = new HashMap<>();
+        groupingKey.put("instance", applicationName);
+        if (groupPerJob) {
+            return groupingKey;
+        }
+        groupingKey.put(PushGatewayGroupLifecycle.EXECUTION_ID_LABEL, String.valueOf(jobExecution.getId()));
+        groupingKey.put("status", status.toString());
+        return groupingKey;
+    }
+
+    /**
+     * Periodic push of one running execution. Stopping is synchronized with the push so
+     * that no periodic push can be queued after the deletion of the group.
+     */
+    private final class InFlightPush implements Runnable {
+
+        private final PushRequest request;
+        private volatile ScheduledFuture<?> future;
+        private boolean stopped;
+        private volatile boolean pushed;
+
+        InFlightPush(PushRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (stopped) {
+                return;
+            }
+            try {
+                exporter.export(request);
+                pushed = true;
+            } catch (RuntimeException e) {
+                // Keep the schedule alive, the exporter logs its own failures
+                log.warn("⚠️ Periodic push failed (job: {}): {}", request.job(), e.getMessage());
+            }
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sambouch.batch.common.pushgateway;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.CollectorRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Selects the series sent with a push.
+ *
+ * <p>By default the whole registry is sent. When job scoping is enabled, only the
+ * samples labelled with the pushed job (label {@code job_name} by default, i.e. the
+ * {@code job.name} tag) are kept, plus the metric families matching the include list.
+ * Families matching the exclude list are never sent.</p>
+ *
+ * <p>Matching is done on the metric family name, by prefix (e.g. {@code jvm_memory}).</p>
+ */
+public class PushPayloadFilter {
+
+    private final boolean jobScoped;
+    private final String jobLabel;
+    private final List<String> includedPrefixes;
+    private final List<String> excludedPrefixes;
+
+    public PushPayloadFilter(boolean jobScoped, String jobLabel,
+                             List<String> includedPrefixes, List<String> excludedPrefixes) {
+        this.jobScoped = jobScoped;
+        this.jobLabel = jobLabel;
+        this.includedPrefixes = List.copyOf(includedPrefixes);
+        this.excludedPrefixes = List.copyOf(excludedPrefixes);
+    }
+
+    /**
+     * A filter sending the whole registry.
+     */
+    public static PushPayloadFilter none() {
+        return new PushPayloadFilter(false, "job_name", List.of(), List.of());
+    }
+
+    /**
+     * Collects the registry and keeps the series to push for the given job.
+     */
+    public Enumeration<MetricFamilySamples> select(CollectorRegistry registry, String jobName) {
+        Enumeration<MetricFamilySamples> families = registry.metricFamilySamples();
+        if (!jobScoped && excludedPrefixes.isEmpty()) {
+            return families;
+        }
+
+        List<MetricFamilySamples> selected = new ArrayList<>();
+        while (families.hasMoreElements()) {
+            MetricFamilySamples family = families.nextElement();
+            if (matches(excludedPrefixes, family.name)) {
+                continue;
+            }
+            if (!jobScoped || matches(includedPrefixes, family.name)) {
+                selected.add(family);
+                continue;
+            }
+            List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+            for (MetricFamilySamples.Sample sample : family.samples) {
+                if (belongsToJob(sample, jobName)) {
+                    samples.add(sample);
+                }
+            }
+            if (!samples.isEmpty()) {
+                selected.add(new MetricFamilySamples(family.name, family.unit, family.type, family.help, samples));
+            }
+        }
+        return Collections.enumeration(selected);
+    }
+
+    private boolean belongsToJob(MetricFamilySamples.Sample sample, String jobName) {
+        int index = sample.labelNames.indexOf(jobLabel);
+        return index >= 0 && jobName.equals(sample.labelValues.get(index));
+    }
+
+    private static boolean matches(List<String> prefixes, String name) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
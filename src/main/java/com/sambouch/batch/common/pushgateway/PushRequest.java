@@ -0,0 +1,34 @@
+package com.sambouch.batch.common.pushgateway;
+
+import java.util.Map;
+
+/**
+ * A push of the registry to, or the deletion of, one Pushgateway group.
+ *
+ * <p>Two pushes for the same job and grouping key target the same group, and are
+ * therefore interchangeable: the registry is serialized when the request is sent, not
+ * when it is created.</p>
+ *
+ * @param job         the Pushgateway {@code job} label
+ * @param groupingKey the additional labels identifying the group
+ * @param operation   whether the group is replaced or deleted
+ */
+public record PushRequest(String job, Map<String, String> groupingKey, Operation operation) {
+
+    public enum Operation {
+        PUSH,
+        DELETE
+    }
+
+    public PushRequest {
+        groupingKey = Map.copyOf(groupingKey);
+    }
+
+    public PushRequest(String job, Map<String, String> groupingKey) {
+        this(job, groupingKey, Operation.PUSH);
+    }
+
+    public static PushRequest delete(String job, Map<String, String> groupingKey) {
+        return new PushRequest(job, groupingKey, Operation.DELETE);
+    }
+}
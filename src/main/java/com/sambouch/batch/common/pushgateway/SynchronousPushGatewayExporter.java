@@ -0,0 +1,54 @@
+package com.sambouch.batch.common.pushgateway;
+
+import io.prometheus.client.CollectorRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Pushes on the calling thread, i.e. the batch thread running {@code afterJob}.
+ */
+public class SynchronousPushGatewayExporter implements PushGatewayExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SynchronousPushGatewayExporter.class);
+
+    private final PushGatewayClient client;
+    private final CollectorRegistry collectorRegistry;
+    private final PushPayloadFilter payloadFilter;
+
+    /**
+     * @param client            the Pushgateway client
+     * @param collectorRegistry the registry to push, {@code null} if the application has
+     *                          no Prometheus registry (pushes are then skipped)
+     * @param payloadFilter     selects the series sent with each push
+     */
+    public SynchronousPushGatewayExporter(PushGatewayClient client, CollectorRegistry collectorRegistry,
+                                          PushPayloadFilter payloadFilter) {
+        this.client = client;
+        this.collectorRegistry = collectorRegistry;
+        this.payloadFilter = payloadFilter;
+    }
+
+    @Override
+    public void export(PushRequest request) {
+        if (collectorRegistry == null) {
+            log.warn("⚠️  MeterRegistry is not of type Prometheus");
+            return;
+        }
+        try {
+            if (request.operation() == PushRequest.Operation.DELETE) {
+                client.delete(request.job(), request.groupingKey());
+                log.debug("Pushgateway group deleted (job: {}, group: {})", request.job(), request.groupingKey());
+                return;
+            }
+            int bytes = client.push(payloadFilter.select(collectorRegistry, request.job()),
+                    request.job(), request.groupingKey());
+            log.debug("✅ Metrics pushed to Pushgateway (job: {}, {} bytes)", request.job(), bytes);
+        } catch (IOException e) {
+            log.error("❌ Error pushing metrics to Pushgateway", e);
+        } catch (Exception e) {
+            log.error("❌ Unexpected error pushing metrics", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.sambouch.batch.common.regression;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reads the completed step executions of a job from the Spring Batch metadata tables.
+ *
+ * <p>Only the columns needed by the baselines are selected, with two queries: the ids of
+ * the last {@code maxInstances} job instances, then the completed step executions of these
+ * instances. Unlike the {@code JobExplorer}, no execution context is loaded, which matters
+ * for partitioned jobs with many worker step executions.</p>
+ */
+public class JdbcStepExecutionHistory implements StepExecutionHistory {
+
+    private static final String LAST_INSTANCES = "SELECT JOB_INSTANCE_ID FROM %PREFIX%JOB_INSTANCE"
+            + " WHERE JOB_NAME = ? ORDER BY JOB_INSTANCE_ID DESC";
+
+    private static final String COMPLETED_STEPS = "SELECT SE.STEP_EXECUTION_ID, SE.STEP_NAME, SE.START_TIME,"
+            + " SE.END_TIME, SE.WRITE_COUNT"
+            + " FROM %PREFIX%STEP_EXECUTION SE"
+            + " JOIN %PREFIX%JOB_EXECUTION JE ON SE.JOB_EXECUTION_ID = JE.JOB_EXECUTION_ID"
+            + " JOIN %PREFIX%JOB_INSTANCE JI ON JE.JOB_INSTANCE_ID = JI.JOB_INSTANCE_ID"
+            + " WHERE JI.JOB_NAME = ? AND JI.JOB_INSTANCE_ID >= ? AND SE.STATUS = 'COMPLETED'"
+            + " AND SE.START_TIME IS NOT NULL AND SE.END_TIME IS NOT NULL"
+            + " ORDER BY SE.STEP_EXECUTION_ID DESC";
+
+    private final JdbcTemplate instances;
+    private final JdbcTemplate steps;
+    private final String tablePrefix;
+
+    /**
+     * @param tablePrefix  prefix of the metadata tables, {@code BATCH_} by default
+     * @param maxInstances job instances whose step executions are read
+     */
+    public JdbcStepExecutionHistory(DataSource dataSource, String tablePrefix, int maxInstances) {
+        this.instances = new JdbcTemplate(dataSource);
+        this.instances.setMaxRows(Math.max(1, maxInstances));
+        this.steps = new JdbcTemplate(dataSource);
+        this.tablePrefix = tablePrefix;
+    }
+
+    @Override
+    public List<CompletedStep> completedSteps(String jobName) {
+        List<Long> instanceIds = instances.queryForList(sql(LAST_INSTANCES), Long.class, jobName);
+        if (instanceIds.isEmpty()) {
+            return List.of();
+        }
+        // Instances come newest first
+        long oldestInstanceId = instanceIds.get(instanceIds.size() - 1);
+        return steps.query(sql(COMPLETED_STEPS), (rs, rowNum) -> new CompletedStep(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        Duration.between(rs.getTimestamp(3).toLocalDateTime(), rs.getTimestamp(4).toLocalDateTime()),
+                        rs.getLong(5)),
+                jobName, oldestInstanceId);
+    }
+
+    private String sql(String query) {
+        return query.replace("%PREFIX%", tablePrefix);
+    }
+}
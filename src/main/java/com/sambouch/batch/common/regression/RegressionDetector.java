@@ -0,0 +1,330 @@
+package com.sambouch.batch.common.regression;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.regression.StepExecutionHistory.CompletedStep;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Detects steps getting slower than their previous executions.
+ *
+ * <p>Keeps, per job and step, a baseline of the duration and throughput of the last
+ * {@code window} completed executions (median and MAD), updated in memory with each
+ * completed execution. The first time a step of a job completes, the past executions of
+ * all the steps of the job are read once from a {@link StepExecutionHistory}, on a
+ * background thread, and added to the baselines as older executions. Until then, steps
+ * are scored against the executions of this JVM only.</p>
+ *
+ * <p>In {@code afterStep}, the execution is scored against the baseline (see
+ * {@link StepRegression}) before being added to it. Once the baseline holds
+ * {@code minSamples} executions, scores are exposed on the {@code batch.step.regression.score}
+ * gauge ({@code basis}: {@code duration} or {@code throughput}), and a score over
+ * {@code threshold} logs a warning and increments {@code batch.step.regressions}. Steps
+ * whose duration and baseline median are both under {@code minDuration} are not scored:
+ * their relative jitter is too large.</p>
+ */
+public class RegressionDetector implements StepExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RegressionDetector.class);
+
+    // The scale of the scores is at least 5% of the median, see RollingBaseline#score
+    private static final double MIN_RELATIVE_SCALE = 0.05;
+
+    private final MeterRegistry meterRegistry;
+    private final StepExecutionHistory history;
+    private final StepNameNormalizer stepNames;
+    private final int window;
+    private final int minSamples;
+    private final double threshold;
+    private final Duration minDuration;
+    private final Executor executor;
+
+    // Baselines, by job and step tags
+    private final Map<Tags, StepBaseline> baselines = new ConcurrentHashMap<>();
+    // Past executions, by job name
+    private final Map<String, JobHistory> histories = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the history of the jobs on a thread of its own, only alive while reading.
+     *
+     * @param history     source of the past executions, {@code null} to build the
+     *                    baselines from the executions of this JVM only
+     * @param window      number of executions in a baseline
+     * @param minSamples  executions needed in a baseline before scoring
+     * @param threshold   score above which a regression is reported
+     * @param minDuration steps shorter than this, as well as their baseline median, are
+     *                    not scored
+     */
+    public RegressionDetector(MeterRegistry meterRegistry, StepExecutionHistory history, StepNameNormalizer stepNames,
+                              int window, int minSamples, double threshold, Duration minDuration) {
+        this(meterRegistry, history, stepNames, window, minSamples, threshold, minDuration,
+                new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "regression-history");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    /**
+     * @param executor runs the reads of the history
+     */
+    public RegressionDetector(MeterRegistry meterRegistry, StepExecutionHistory history, StepNameNormalizer stepNames,
+                              int window, int minSamples, double threshold, Duration minDuration, Executor executor) {
+        this.meterRegistry = meterRegistry;
+        this.history = history;
+        this.stepNames = stepNames;
+        this.window = Math.max(1, window);
+        this.minSamples = Math.max(1, Math.min(minSamples, this.window));
+        this.threshold = threshold;
+        this.minDuration = minDuration != null ? minDuration : Duration.ZERO;
+        this.executor = executor;
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        try {
+            evaluate(stepExecution);
+        } catch (RuntimeException e) {
+            log.warn("Regression check failed for step {}: {}", stepExecution.getStepName(), e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Scores a completing step execution against its baseline, then adds it to the
+     * baseline if it completed successfully.
+     *
+     * @return the comparison, or {@code null} if the step did not complete successfully
+     */
+    public StepRegression evaluate(StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED || stepExecution.getStartTime() == null) {
+            return null;
+        }
+        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+        String stepName = stepNames.stepName(stepExecution.getStepName());
+        // afterStep runs before the end time is set
+        LocalDateTime endTime = stepExecution.getEndTime() != null ? stepExecution.getEndTime() : LocalDateTime.now();
+        Duration duration = Duration.between(stepExecution.getStartTime(), endTime);
+        double throughput = throughput(stepExecution.getWriteCount(), duration);
+
+        StepBaseline baseline = baselines.computeIfAbsent(stepNames.tags(jobName, stepExecution.getStepName()),
+                tags -> new StepBaseline(tags, jobName, stepName));
+        if (history != null) {
+            // Read once per job, in the background
+            histories.computeIfAbsent(jobName, JobHistory::new).load();
+        }
+        StepRegression regression;
+        synchronized (baseline) {
+            if (!baseline.seeded) {
+                seed(baseline);
+            }
+            int samples = baseline.duration.count();
+            Duration baselineDuration = Duration.ofNanos((long) baseline.duration.median());
+            boolean scored = samples >= minSamples
+                    && (duration.compareTo(minDuration) >= 0 || baselineDuration.compareTo(minDuration) >= 0);
+            regression = new StepRegression(jobName, stepName, duration, throughput,
+                    baselineDuration,
+                    baseline.throughput.median(),
+                    scored ? baseline.duration.score(duration.toNanos(), MIN_RELATIVE_SCALE) : Double.NaN,
+                    // Lower throughput is slower
+                    scored ? -baseline.throughput.score(throughput, MIN_RELATIVE_SCALE) : Double.NaN,
+                    samples);
+            baseline.durationScore = regression.durationScore();
+            baseline.throughputScore = regression.throughputScore();
+            baseline.add(new Sample(stepExecution.getId() != null ? stepExecution.getId() : -1, duration, throughput));
+        }
+        if (regression.score() > threshold) {
+            Counter.builder("batch.step.regressions")
+                    .tags(baseline.tags)
+                    .description("Step executions slower than their baseline")
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("⚠️ Step {} of job {} is slower than its baseline (score {}): duration {} ms vs median {} ms, "
+                            + "throughput {} vs median {} items/s over {} executions",
+                    stepName, jobName, String.format("%.1f", regression.score()),
+                    duration.toMillis(), regression.baselineDuration().toMillis(),
+                    String.format("%.1f", throughput), String.format("%.1f", regression.baselineThroughput()),
+                    regression.samples());
+        }
+        return regression;
+    }
+
+    /**
+     * Adds the past executions of a step to its baseline once the history of its job was
+     * read, and marks it seeded; without history, the baseline is seeded as it is.
+     */
+    private void seed(StepBaseline baseline) {
+        if (history == null) {
+            baseline.seeded = true;
+            return;
+        }
+        JobHistory jobHistory = histories.get(baseline.jobName);
+        List<CompletedStep> past = jobHistory != null ? jobHistory.steps(baseline.stepName) : null;
+        if (past != null && !baseline.seeded) {
+            baseline.seed(past);
+        }
+    }
+
+    private static double throughput(long items, Duration duration) {
+        double seconds = duration.toNanos() / 1_000_000_000.0;
+        return seconds > 0 ? items / seconds : Double.NaN;
+    }
+
+    private record Sample(long id, Duration duration, double throughput) {
+    }
+
+    /**
+     * Past executions of the steps of a job, read once for all of them off the step
+     * threads.
+     */
+    private final class JobHistory {
+
+        private final String jobName;
+        private final AtomicBoolean requested = new AtomicBoolean();
+        // Completed step executions by step name, newest first; null until read
+        private volatile Map<String, List<CompletedStep>> steps;
+
+        JobHistory(String jobName) {
+            this.jobName = jobName;
+        }
+
+        void load() {
+            if (!requested.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::read);
+            } catch (RejectedExecutionException e) {
+                log.debug("History of job {} not read, baselines are built in memory", jobName);
+            }
+        }
+
+        private void read() {
+            Map<String, List<CompletedStep>> byStep = new HashMap<>();
+            try {
+                List<CompletedStep> completed = history.completedSteps(jobName);
+                for (CompletedStep step : completed) {
+                    byStep.computeIfAbsent(stepNames.stepName(step.stepName()), name -> new ArrayList<>()).add(step);
+                }
+                log.debug("History of job {} read: {} step executions", jobName, completed.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to read the history of job {}, baselines are built in memory: {}",
+                        jobName, e.getMessage());
+            }
+            steps = byStep;
+            for (StepBaseline baseline : baselines.values()) {
+                if (baseline.jobName.equals(jobName)) {
+                    synchronized (baseline) {
+                        seed(baseline);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the completed executions of a step, newest first, or {@code null} until
+         * the history is read
+         */
+        List<CompletedStep> steps(String stepName) {
+            Map<String, List<CompletedStep>> read = steps;
+            return read == null ? null : read.getOrDefault(stepName, List.of());
+        }
+    }
+
+    /**
+     * Baselines of a step and its last scores, read by the gauges.
+     */
+    private final class StepBaseline {
+
+        private final Tags tags;
+        private final String jobName;
+        private final String stepName;
+        private RollingBaseline duration;
+        private RollingBaseline throughput;
+        private boolean seeded;
+        // Executions added before seeding, oldest first
+        private final List<Sample> unseeded = new ArrayList<>();
+
+        private volatile double durationScore = Double.NaN;
+        private volatile double throughputScore = Double.NaN;
+
+        StepBaseline(Tags tags, String jobName, String stepName) {
+            this.tags = tags;
+            this.jobName = jobName;
+            this.stepName = stepName;
+            this.duration = new RollingBaseline(window);
+            this.throughput = new RollingBaseline(window);
+            Gauge.builder("batch.step.regression.score", this, baseline -> baseline.durationScore)
+                    .tags(tags)
+                    .tag("basis", "duration")
+                    .description("Deviation of the last execution from the baseline, in scaled MADs (positive: slower)")
+                    .register(meterRegistry);
+            Gauge.builder("batch.step.regression.score", this, baseline -> baseline.throughputScore)
+                    .tags(tags)
+                    .tag("basis", "throughput")
+                    .description("Deviation of the last execution from the baseline, in scaled MADs (positive: slower)")
+                    .register(meterRegistry);
+        }
+
+        void add(Sample sample) {
+            duration.add(sample.duration().toNanos());
+            throughput.add(sample.throughput());
+            if (!seeded) {
+                if (unseeded.size() == window) {
+                    unseeded.remove(0);
+                }
+                unseeded.add(sample);
+            }
+        }
+
+        /**
+         * Rebuilds the baseline from past executions, newest first, followed by the
+         * executions already added.
+         */
+        void seed(List<CompletedStep> past) {
+            Set<Long> added = new HashSet<>();
+            unseeded.forEach(sample -> added.add(sample.id()));
+            List<CompletedStep> older = past.stream()
+                    .filter(step -> !added.contains(step.id()))
+                    .limit(Math.max(0, window - unseeded.size()))
+                    .toList();
+            duration = new RollingBaseline(window);
+            throughput = new RollingBaseline(window);
+            for (int i = older.size() - 1; i >= 0; i--) {
+                CompletedStep step = older.get(i);
+                duration.add(step.duration().toNanos());
+                throughput.add(throughput(step.writeCount(), step.duration()));
+            }
+            for (Sample sample : unseeded) {
+                duration.add(sample.duration().toNanos());
+                throughput.add(sample.throughput());
+            }
+            unseeded.clear();
+            seeded = true;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sambouch.batch.common.regression;
+
+import java.util.Arrays;
+
+/**
+ * Median and median absolute deviation (MAD) of the last values of a series.
+ *
+ * <p>Values are kept in a fixed-size ring; each new value replaces the oldest one and the
+ * median and MAD are updated from the ring, so the history is never re-read. Not
+ * thread-safe: callers synchronize.</p>
+ */
+final class RollingBaseline {
+
+    /**
+     * Scales the MAD to the standard deviation of a normal distribution.
+     */
+    static final double MAD_SCALE = 1.4826;
+
+    private final double[] values;
+    private final double[] sorted;
+    private int count;
+    private int next;
+
+    private double median = Double.NaN;
+    private double mad = Double.NaN;
+
+    RollingBaseline(int window) {
+        this.values = new double[window];
+        this.sorted = new double[window];
+    }
+
+    void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        values[next] = value;
+        next = (next + 1) % values.length;
+        count = Math.min(count + 1, values.length);
+
+        System.arraycopy(values, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        median = median(sorted, count);
+        for (int i = 0; i < count; i++) {
+            sorted[i] = Math.abs(sorted[i] - median);
+        }
+        Arrays.sort(sorted, 0, count);
+        mad = median(sorted, count);
+    }
+
+    int count() {
+        return count;
+    }
+
+    double median() {
+        return median;
+    }
+
+    double mad() {
+        return mad;
+    }
+
+    /**
+     * @param minRelativeScale lower bound of the scale, as a fraction of the median, so that
+     *                         a perfectly stable baseline (MAD of zero) still tolerates noise
+     * @return how many scaled MADs the value lies above the median, {@code NaN} without baseline
+     */
+    double score(double value, double minRelativeScale) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double scale = Math.max(MAD_SCALE * mad, minRelativeScale * Math.abs(median));
+        if (scale <= 0) {
+            return value == median ? 0 : Double.NaN;
+        }
+        return (value - median) / scale;
+    }
+
+    private static double median(double[] sorted, int count) {
+        int middle = count / 2;
+        return count % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+}
@@ -0,0 +1,29 @@
+package com.sambouch.batch.common.regression;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Source of the past step executions seeding the baselines of {@link RegressionDetector}.
+ *
+ * @see JdbcStepExecutionHistory
+ */
+@FunctionalInterface
+public interface StepExecutionHistory {
+
+    /**
+     * @return the completed step executions of the last executions of a job, newest first
+     */
+    List<CompletedStep> completedSteps(String jobName);
+
+    /**
+     * What the baselines need of a completed step execution.
+     *
+     * @param id         step execution id
+     * @param stepName   name of the step execution
+     * @param duration   duration of the execution
+     * @param writeCount items written
+     */
+    record CompletedStep(long id, String stepName, Duration duration, long writeCount) {
+    }
+}
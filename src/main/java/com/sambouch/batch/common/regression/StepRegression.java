@@ -0,0 +1,43 @@
+package com.sambouch.batch.common.regression;
+
+import java.time.Duration;
+
+/**
+ * How a step execution compares with the baseline of its previous executions.
+ *
+ * <p>Scores are robust z-scores: the distance to the baseline median in scaled MADs,
+ * positive when the execution is slower (longer, or with a lower throughput).</p>
+ *
+ * @param jobName            name of the job
+ * @param stepName           name of the step (partition workers share the worker step name)
+ * @param duration           duration of the execution
+ * @param throughput         items written per second
+ * @param baselineDuration   median duration of the baseline
+ * @param baselineThroughput median throughput of the baseline
+ * @param durationScore      regression score of the duration, {@code NaN} without baseline
+ * @param throughputScore    regression score of the throughput, {@code NaN} without baseline
+ * @param samples            number of executions in the baseline
+ */
+public record StepRegression(String jobName,
+                             String stepName,
+                             Duration duration,
+                             double throughput,
+                             Duration baselineDuration,
+                             double baselineThroughput,
+                             double durationScore,
+                             double throughputScore,
+                             int samples) {
+
+    /**
+     * @return the larger of the two scores, {@code NaN} when neither is known
+     */
+    public double score() {
+        if (Double.isNaN(durationScore)) {
+            return throughputScore;
+        }
+        if (Double.isNaN(throughputScore)) {
+            return durationScore;
+        }
+        return Math.max(durationScore, throughputScore);
+    }
+}
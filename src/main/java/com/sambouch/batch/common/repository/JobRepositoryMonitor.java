@@ -0,0 +1,179 @@
+package com.sambouch.batch.common.repository;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the job repository operations of the jobs and steps, and the metadata overhead
+ * of each chunk.
+ *
+ * <p>The job repository is replaced by a {@link MonitoredJobRepository} (see
+ * {@link #decorate}), and the monitor is registered as a chunk listener of the steps.
+ * Recorded meters:</p>
+ * <ul>
+ *   <li>{@code batch.repository.operation}: time of each repository operation, tagged by
+ *       {@code job.name}, {@code step.name} ({@code none} for the job operations) and
+ *       {@code operation} (see {@link RepositoryOperation})</li>
+ *   <li>{@code batch.chunk.repository}: repository time of each chunk, tagged by
+ *       {@code job.name} and {@code step.name}. Spring Batch updates the step execution
+ *       and its execution context after every chunk, in the chunk transaction; compared
+ *       with {@code batch.chunk.duration}, it tells how much of the chunk goes to the
+ *       metadata rather than to the items</li>
+ * </ul>
+ */
+public class JobRepositoryMonitor implements ChunkListener {
+
+    /**
+     * Value of the {@code step.name} tag of the job operations.
+     */
+    public static final String NO_STEP = "none";
+
+    /**
+     * Value of the {@code job.name} tag of the operations on a job execution without
+     * job instance.
+     */
+    public static final String UNKNOWN_JOB = "unknown";
+
+    private static final RepositoryOperation[] OPERATIONS = RepositoryOperation.values();
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+
+    // Timers by normalized tags: the workers of a partitioned step share them
+    private final Map<Tags, StepTimers> timers = new ConcurrentHashMap<>();
+
+    // Repository time of the chunk running on the current thread
+    private final ThreadLocal<ChunkOverhead> chunkOverheadHolder = ThreadLocal.withInitial(ChunkOverhead::new);
+
+    public JobRepositoryMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+    }
+
+    /**
+     * @return the job repository timed by this monitor
+     */
+    public JobRepository decorate(JobRepository jobRepository) {
+        if (jobRepository instanceof MonitoredJobRepository) {
+            return jobRepository;
+        }
+        return new MonitoredJobRepository(jobRepository, this);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        ChunkOverhead overhead = chunkOverheadHolder.get();
+        overhead.open = true;
+        overhead.nanos = 0;
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    private void chunkCompleted(ChunkContext context) {
+        ChunkOverhead overhead = chunkOverheadHolder.get();
+        if (!overhead.open) {
+            return;
+        }
+        overhead.open = false;
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        timers(stepExecution.getJobExecution().getJobInstance().getJobName(), stepExecution.getStepName())
+                .chunk().record(overhead.nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // REPOSITORY CALLBACKS
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * Records a repository operation, and adds it to the chunk running on the current
+     * thread, if any.
+     *
+     * @param stepName the step execution name, or {@code null} for the job operations
+     */
+    void record(RepositoryOperation operation, String jobName, String stepName, long nanos) {
+        timers(jobName, stepName != null ? stepName : NO_STEP)
+                .operation(operation).record(nanos, TimeUnit.NANOSECONDS);
+        ChunkOverhead overhead = chunkOverheadHolder.get();
+        if (overhead.open) {
+            overhead.nanos += nanos;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private StepTimers timers(String jobName, String stepName) {
+        return timers.computeIfAbsent(stepNames.tags(jobName, stepName), StepTimers::new);
+    }
+
+    /**
+     * Repository time of the running chunk.
+     */
+    private static final class ChunkOverhead {
+        private boolean open;
+        private long nanos;
+    }
+
+    /**
+     * Timers of a job and step, registered on first use.
+     */
+    private final class StepTimers {
+
+        private final Tags tags;
+        private final Timer[] operations = new Timer[OPERATIONS.length];
+        private volatile Timer chunk;
+
+        StepTimers(Tags tags) {
+            this.tags = tags;
+        }
+
+        Timer operation(RepositoryOperation operation) {
+            Timer timer = operations[operation.ordinal()];
+            if (timer == null) {
+                // Racing threads get the same timer from the registry
+                timer = Timer.builder("batch.repository.operation")
+                        .tags(tags)
+                        .tag("operation", operation.tagValue())
+                        .description("Time of the job repository operations")
+                        .register(meterRegistry);
+                operations[operation.ordinal()] = timer;
+            }
+            return timer;
+        }
+
+        Timer chunk() {
+            Timer timer = chunk;
+            if (timer == null) {
+                timer = Timer.builder("batch.chunk.repository")
+                        .tags(tags)
+                        .description("Job repository time of each chunk")
+                        .register(meterRegistry);
+                chunk = timer;
+            }
+            return timer;
+        }
+    }
+}
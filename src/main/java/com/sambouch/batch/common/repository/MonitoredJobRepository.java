@@ -0,0 +1,198 @@
+package com.sambouch.batch.common.repository;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link JobRepository} timing the operations Spring Batch runs while executing jobs and
+ * steps for the {@link JobRepositoryMonitor}. The other operations are delegated as they
+ * are.
+ */
+public class MonitoredJobRepository implements JobRepository {
+
+    private final JobRepository delegate;
+    private final JobRepositoryMonitor monitor;
+
+    public MonitoredJobRepository(JobRepository delegate, JobRepositoryMonitor monitor) {
+        this.delegate = delegate;
+        this.monitor = monitor;
+    }
+
+    /**
+     * @return the decorated job repository
+     */
+    public JobRepository getDelegate() {
+        return delegate;
+    }
+
+    //=============================================================
+    // TIMED OPERATIONS
+    // ===========================================================
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        long start = System.nanoTime();
+        try {
+            return delegate.createJobExecution(jobName, jobParameters);
+        } finally {
+            monitor.record(RepositoryOperation.CREATE_JOB_EXECUTION, jobName, null, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        long start = System.nanoTime();
+        try {
+            delegate.update(jobExecution);
+        } finally {
+            monitor.record(RepositoryOperation.UPDATE_JOB_EXECUTION, jobName(jobExecution), null,
+                    System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateExecutionContext(jobExecution);
+        } finally {
+            monitor.record(RepositoryOperation.UPDATE_JOB_CONTEXT, jobName(jobExecution), null,
+                    System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        long start = System.nanoTime();
+        try {
+            delegate.add(stepExecution);
+        } finally {
+            monitor.record(RepositoryOperation.ADD_STEP_EXECUTION, jobName(stepExecution.getJobExecution()),
+                    stepExecution.getStepName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        long start = System.nanoTime();
+        try {
+            delegate.addAll(stepExecutions);
+        } finally {
+            // Partition workers, added together by the manager step
+            if (!stepExecutions.isEmpty()) {
+                StepExecution first = stepExecutions.iterator().next();
+                monitor.record(RepositoryOperation.ADD_STEP_EXECUTION, jobName(first.getJobExecution()), null,
+                        System.nanoTime() - start);
+            }
+        }
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        long start = System.nanoTime();
+        try {
+            delegate.update(stepExecution);
+        } finally {
+            monitor.record(RepositoryOperation.UPDATE_STEP_EXECUTION, jobName(stepExecution.getJobExecution()),
+                    stepExecution.getStepName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        long start = System.nanoTime();
+        try {
+            delegate.updateExecutionContext(stepExecution);
+        } finally {
+            monitor.record(RepositoryOperation.UPDATE_STEP_CONTEXT, jobName(stepExecution.getJobExecution()),
+                    stepExecution.getStepName(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getLastStepExecution(jobInstance, stepName);
+        } finally {
+            monitor.record(RepositoryOperation.GET_LAST_STEP_EXECUTION, jobInstance.getJobName(), stepName,
+                    System.nanoTime() - start);
+        }
+    }
+
+    //=============================================================
+    // DELEGATED OPERATIONS
+    // ===========================================================
+    @Override
+    public List<String> getJobNames() {
+        return delegate.getJobNames();
+    }
+
+    @Override
+    public List<JobInstance> findJobInstancesByName(String jobName, int start, int count) {
+        return delegate.findJobInstancesByName(jobName, start, count);
+    }
+
+    @Override
+    public List<JobExecution> findJobExecutions(JobInstance jobInstance) {
+        return delegate.findJobExecutions(jobInstance);
+    }
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance getJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.getJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public long getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void deleteStepExecution(StepExecution stepExecution) {
+        delegate.deleteStepExecution(stepExecution);
+    }
+
+    @Override
+    public void deleteJobExecution(JobExecution jobExecution) {
+        delegate.deleteJobExecution(jobExecution);
+    }
+
+    @Override
+    public void deleteJobInstance(JobInstance jobInstance) {
+        delegate.deleteJobInstance(jobInstance);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private static String jobName(JobExecution jobExecution) {
+        JobInstance jobInstance = jobExecution.getJobInstance();
+        return jobInstance != null ? jobInstance.getJobName() : JobRepositoryMonitor.UNKNOWN_JOB;
+    }
+}
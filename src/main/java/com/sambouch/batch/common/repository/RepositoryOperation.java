@@ -0,0 +1,26 @@
+package com.sambouch.batch.common.repository;
+
+/**
+ * Job repository operations timed by the {@link JobRepositoryMonitor}, with the value of
+ * their {@code operation} tag.
+ */
+public enum RepositoryOperation {
+
+    CREATE_JOB_EXECUTION("create_job_execution"),
+    UPDATE_JOB_EXECUTION("update_job_execution"),
+    UPDATE_JOB_CONTEXT("update_job_context"),
+    ADD_STEP_EXECUTION("add_step_execution"),
+    UPDATE_STEP_EXECUTION("update_step_execution"),
+    UPDATE_STEP_CONTEXT("update_step_context"),
+    GET_LAST_STEP_EXECUTION("get_last_step_execution");
+
+    private final String tagValue;
+
+    RepositoryOperation(String tagValue) {
+        this.tagValue = tagValue;
+    }
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
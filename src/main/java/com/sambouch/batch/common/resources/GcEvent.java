@@ -0,0 +1,16 @@
+package com.sambouch.batch.common.resources;
+
+/**
+ * A completed garbage collection.
+ *
+ * @param collector      name of the collector, e.g. {@code G1 Young Generation}
+ * @param major          whether it collected the old generation
+ * @param concurrent     whether it ran concurrently with the application (ZGC or
+ *                       Shenandoah cycles, G1 concurrent marking) rather than pausing it
+ * @param durationMillis duration in milliseconds
+ * @param oldGenBefore   old generation occupancy in bytes before the collection, -1 when unknown
+ * @param oldGenAfter    old generation occupancy in bytes after the collection, -1 when unknown
+ */
+public record GcEvent(String collector, boolean major, boolean concurrent, long durationMillis,
+                      long oldGenBefore, long oldGenAfter) {
+}
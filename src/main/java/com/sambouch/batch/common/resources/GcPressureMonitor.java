@@ -0,0 +1,317 @@
+package com.sambouch.batch.common.resources;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes garbage collection pauses and old generation occupancy to the running steps.
+ *
+ * <p>Subscribes to the notifications of the {@link GarbageCollectorMXBean}s: each
+ * completed collection is added to every step running at that time. Collections are
+ * JVM-wide, so steps running side by side share them: the meters tell how much a step
+ * was slowed down by the collector, not how much garbage it made (see
+ * {@link StepResourceMonitor} for the allocations). Notifications are delivered on a JMX
+ * thread after each collection and cost nothing on the batch threads.</p>
+ *
+ * <p>Recorded in {@code afterStep}, tagged by {@code job.name} and {@code step.name}:</p>
+ * <ul>
+ *   <li>{@code batch.step.gc.pause}: time the step was paused by collections</li>
+ *   <li>{@code batch.step.gc.collections}: collections, by {@code generation}
+ *       ({@code minor} or {@code major})</li>
+ *   <li>{@code batch.step.heap.peak}: highest old generation occupancy seen before or
+ *       after a collection, or at the step start and end</li>
+ *   <li>{@code batch.step.gc.share}: fraction of the step time of the last execution
+ *       spent in collection pauses</li>
+ * </ul>
+ *
+ * <p>Concurrent phases (ZGC and Shenandoah cycles, G1 concurrent marking) add no pause
+ * time. ZGC and Shenandoah cycles are counted as major collections; their pauses are
+ * reported separately by the JVM and only add pause time.</p>
+ */
+public class GcPressureMonitor implements StepExecutionListener, NotificationListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(GcPressureMonitor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final List<MemoryPoolMXBean> oldGenPools = new ArrayList<>();
+
+    // Collections of the running steps, by step execution id
+    private final Map<Long, StepCollections> runningSteps = new ConcurrentHashMap<>();
+
+    // GC share of the last execution, by job and step tags
+    private final Map<Tags, LastShare> lastShares = new ConcurrentHashMap<>();
+
+    public GcPressureMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        this(meterRegistry, stepNames, ManagementFactory.getGarbageCollectorMXBeans());
+    }
+
+    /**
+     * @param collectors collectors whose notifications are listened to, empty to only
+     *                   record the collections passed to {@link #gcCompleted(GcEvent)}
+     */
+    public GcPressureMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames,
+                             List<GarbageCollectorMXBean> collectors) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (isOldGen(pool.getName())) {
+                oldGenPools.add(pool);
+            }
+        }
+        for (GarbageCollectorMXBean collector : collectors) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    /**
+     * Stops listening to the collectors.
+     */
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                log.debug("GC notification listener already removed", e);
+            }
+        }
+        emitters.clear();
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            StepCollections collections = new StepCollections(stepExecution.getStepName(), System.nanoTime());
+            collections.heapPeak(oldGenUsed());
+            runningSteps.put(stepExecution.getId(), collections);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        measure(stepExecution);
+        return null;
+    }
+
+    /**
+     * Sums the collections seen while a step was running and records the step meters.
+     *
+     * @return the usage, or {@code null} if the step start was not seen
+     */
+    public StepGcUsage measure(StepExecution stepExecution) {
+        StepCollections collections = stepExecution.getId() != null ? runningSteps.remove(stepExecution.getId()) : null;
+        if (collections == null || !collections.stepName.equals(stepExecution.getStepName())) {
+            return null;
+        }
+        collections.heapPeak(oldGenUsed());
+        String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+        StepGcUsage usage = new StepGcUsage(jobName, collections.stepName,
+                Duration.ofNanos(System.nanoTime() - collections.startNanos),
+                Duration.ofMillis(collections.pauseMillis.sum()), collections.minor.sum(), collections.major.sum(),
+                collections.heapPeak.get());
+        record(stepNames.tags(jobName, collections.stepName), usage);
+        if (log.isDebugEnabled()) {
+            log.debug("Step {}: GC pauses {} ms ({}% of step time), {} minor / {} major collections, old gen peak {} bytes",
+                    usage.stepName(), usage.pauseTime().toMillis(), String.format("%.1f", usage.gcShare() * 100),
+                    usage.minorCollections(), usage.majorCollections(), usage.heapPeak());
+        }
+        return usage;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // GC NOTIFICATIONS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (runningSteps.isEmpty()
+                || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        GcInfo gcInfo = info.getGcInfo();
+        String name = info.getGcName();
+        gcCompleted(new GcEvent(name, isMajor(name, info.getGcAction()), isConcurrent(name, info.getGcCause()),
+                gcInfo.getDuration(), oldGenUsed(gcInfo.getMemoryUsageBeforeGc()),
+                oldGenUsed(gcInfo.getMemoryUsageAfterGc())));
+    }
+
+    /**
+     * Adds a collection to the running steps. Called for each notification of the
+     * collectors.
+     */
+    public void gcCompleted(GcEvent event) {
+        for (StepCollections collections : runningSteps.values()) {
+            collections.add(event);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private void record(Tags tags, StepGcUsage usage) {
+        Timer.builder("batch.step.gc.pause")
+                .tags(tags)
+                .description("Time the step was paused by garbage collections")
+                .register(meterRegistry)
+                .record(usage.pauseTime());
+        collections(tags, "minor").increment(usage.minorCollections());
+        collections(tags, "major").increment(usage.majorCollections());
+        if (usage.heapPeak() >= 0) {
+            DistributionSummary.builder("batch.step.heap.peak")
+                    .tags(tags)
+                    .description("Highest old generation occupancy seen while the step was running")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(usage.heapPeak());
+        }
+        lastShares.compute(tags, (key, last) -> {
+            if (last == null) {
+                return new LastShare(key, usage.gcShare());
+            }
+            last.share = usage.gcShare();
+            return last;
+        });
+    }
+
+    private Counter collections(Tags tags, String generation) {
+        return Counter.builder("batch.step.gc.collections")
+                .tags(tags)
+                .tag("generation", generation)
+                .description("Garbage collections while the step was running")
+                .register(meterRegistry);
+    }
+
+    private long oldGenUsed() {
+        if (oldGenPools.isEmpty()) {
+            return -1;
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : oldGenPools) {
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static long oldGenUsed(Map<String, MemoryUsage> pools) {
+        long used = -1;
+        for (Map.Entry<String, MemoryUsage> pool : pools.entrySet()) {
+            if (isOldGen(pool.getKey())) {
+                used = Math.max(0, used) + pool.getValue().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Same pools as the {@code jvm.memory.*} meters of Micrometer count as old generation.
+     */
+    private static boolean isOldGen(String pool) {
+        return pool.endsWith("Old Gen") || pool.endsWith("Tenured Gen") || "Shenandoah".equals(pool)
+                || "ZHeap".equals(pool) || "ZGC Old Generation".equals(pool);
+    }
+
+    private static boolean isMajor(String collector, String action) {
+        if (collector.contains("Minor") || collector.contains("Young")) {
+            return false;
+        }
+        return action.contains("major") || collector.contains("Major") || collector.contains("Old")
+                || collector.endsWith("Cycles");
+    }
+
+    private static boolean isConcurrent(String collector, String cause) {
+        return "No GC".equals(cause) || collector.endsWith("Cycles") || "G1 Concurrent GC".equals(collector)
+                || (collector.startsWith("GPGC") && !collector.endsWith("Pauses"));
+    }
+
+    /**
+     * Collections seen while a step is running.
+     */
+    private static final class StepCollections {
+
+        private final String stepName;
+        private final long startNanos;
+        private final LongAdder pauseMillis = new LongAdder();
+        private final LongAdder minor = new LongAdder();
+        private final LongAdder major = new LongAdder();
+        private final AtomicLong heapPeak = new AtomicLong(-1);
+
+        StepCollections(String stepName, long startNanos) {
+            this.stepName = stepName;
+            this.startNanos = startNanos;
+        }
+
+        void add(GcEvent event) {
+            if (!event.concurrent()) {
+                pauseMillis.add(event.durationMillis());
+            }
+            // The pauses of a concurrent cycle are reported by a separate collector
+            if (!event.collector().endsWith("Pauses") && !"G1 Concurrent GC".equals(event.collector())) {
+                (event.major() ? major : minor).increment();
+            }
+            heapPeak(Math.max(event.oldGenBefore(), event.oldGenAfter()));
+        }
+
+        void heapPeak(long used) {
+            if (used >= 0) {
+                heapPeak.accumulateAndGet(used, Math::max);
+            }
+        }
+    }
+
+    /**
+     * GC share of the last execution of a step, read by the gauge.
+     */
+    private final class LastShare {
+
+        private volatile double share;
+
+        LastShare(Tags tags, double share) {
+            this.share = share;
+            Gauge.builder("batch.step.gc.share", this, last -> last.share)
+                    .tags(tags)
+                    .description("Fraction of the step time of the last execution spent in GC pauses")
+                    .register(meterRegistry);
+        }
+    }
+}
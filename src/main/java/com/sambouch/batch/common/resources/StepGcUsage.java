@@ -0,0 +1,25 @@
+package com.sambouch.batch.common.resources;
+
+import java.time.Duration;
+
+/**
+ * Garbage collections that happened while a step execution was running.
+ *
+ * @param jobName          name of the job
+ * @param stepName         name of the step execution
+ * @param wallTime         elapsed time of the step
+ * @param pauseTime        time the application was paused by collections
+ * @param minorCollections young generation collections
+ * @param majorCollections collections of the old generation
+ * @param heapPeak         highest old generation occupancy seen, in bytes, -1 when unknown
+ */
+public record StepGcUsage(String jobName, String stepName, Duration wallTime, Duration pauseTime,
+                          long minorCollections, long majorCollections, long heapPeak) {
+
+    /**
+     * @return the fraction of the step time spent in collection pauses
+     */
+    public double gcShare() {
+        return wallTime.isZero() ? 0 : Math.min(1.0, (double) pauseTime.toNanos() / wallTime.toNanos());
+    }
+}
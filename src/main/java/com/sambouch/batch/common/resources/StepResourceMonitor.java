@@ -0,0 +1,258 @@
+package com.sambouch.batch.common.resources;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes CPU time and heap allocation to steps and chunks.
+ *
+ * <p>The CPU time and allocated bytes of the current thread are read from the
+ * {@code ThreadMXBean} around each chunk and around the step. The thread running the
+ * step is measured from {@code beforeStep} to {@code afterStep}, which covers its own
+ * chunks; the chunks run by other threads (multi-threaded steps) are added to it. The
+ * workers of a partitioned step are step executions of their own: with
+ * {@code monitoring.partition.normalize-worker-names}, they share the series of the
+ * worker step, which sums them. Recorded meters, tagged by {@code job.name} and
+ * {@code step.name}:</p>
+ *
+ * <ul>
+ *   <li>{@code batch.step.cpu}: CPU time of each step execution</li>
+ *   <li>{@code batch.step.allocated.bytes}: bytes allocated by each step execution</li>
+ *   <li>{@code batch.step.allocated.bytes.per.item}: bytes allocated per item read</li>
+ *   <li>{@code batch.chunk.cpu}, {@code batch.chunk.allocated.bytes}: the same, per chunk</li>
+ * </ul>
+ *
+ * <p>Measurements the JVM does not support (or that are disabled, see
+ * {@code ThreadMXBean#setThreadCpuTimeEnabled}) are not recorded.</p>
+ */
+public class StepResourceMonitor implements StepExecutionListener, ChunkListener {
+
+    private static final Logger log = LoggerFactory.getLogger(StepResourceMonitor.class);
+
+    private static final String CHUNK_START_ATTRIBUTE = StepResourceMonitor.class.getName() + ".CHUNK_START";
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+
+    // Resources of the running steps, by step execution id
+    private final Map<Long, StepResources> runningSteps = new ConcurrentHashMap<>();
+
+    public StepResourceMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            runningSteps.put(stepExecution.getId(), new StepResources(stepExecution, System.nanoTime(),
+                    ThreadUsage.cpuNanos(), ThreadUsage.allocatedBytes()));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        measure(stepExecution);
+        return null;
+    }
+
+    /**
+     * Sums the resources used by a completed step and records the step meters. To be
+     * called on the thread that ran {@code beforeStep}.
+     *
+     * @return the usage, or {@code null} if the step start was not seen
+     */
+    public StepResourceUsage measure(StepExecution stepExecution) {
+        StepResources resources = stepExecution.getId() != null ? runningSteps.remove(stepExecution.getId()) : null;
+        if (resources == null || !resources.stepName.equals(stepExecution.getStepName())) {
+            return null;
+        }
+        long cpuNanos = resources.total(resources.startCpuNanos, ThreadUsage.cpuNanos(), resources.workerCpuNanos);
+        long bytes = resources.total(resources.startBytes, ThreadUsage.allocatedBytes(), resources.workerBytes);
+        StepResourceUsage usage = new StepResourceUsage(resources.jobName, resources.stepName,
+                Duration.ofNanos(System.nanoTime() - resources.startNanos),
+                cpuNanos >= 0 ? Duration.ofNanos(cpuNanos) : null, bytes,
+                stepExecution.getReadCount(), resources.chunks.sum());
+        record(resources.tags, usage);
+        if (log.isDebugEnabled()) {
+            log.debug("Step {}: CPU {} ms ({} of elapsed time), allocated {} bytes ({} per item)",
+                    usage.stepName(), cpuNanos >= 0 ? usage.cpuTime().toMillis() : "n/a",
+                    String.format("%.2f", usage.cpuShare()), bytes >= 0 ? bytes : "n/a",
+                    String.format("%.0f", usage.bytesPerItem()));
+        }
+        return usage;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        StepResources resources = stepExecution.getId() != null ? runningSteps.get(stepExecution.getId()) : null;
+        if (resources != null && resources.stepName.equals(stepExecution.getStepName())) {
+            context.setAttribute(CHUNK_START_ATTRIBUTE,
+                    new ChunkStart(resources, ThreadUsage.cpuNanos(), ThreadUsage.allocatedBytes()));
+        }
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    private void chunkCompleted(ChunkContext context) {
+        if (!(context.removeAttribute(CHUNK_START_ATTRIBUTE) instanceof ChunkStart start)) {
+            return;
+        }
+        StepResources resources = start.resources();
+        long cpuNanos = delta(start.cpuNanos(), ThreadUsage.cpuNanos());
+        long bytes = delta(start.bytes(), ThreadUsage.allocatedBytes());
+        resources.chunks.increment();
+        // The thread of the step is measured as a whole in afterStep
+        boolean worker = Thread.currentThread() != resources.stepThread;
+        if (cpuNanos >= 0) {
+            resources.chunkCpu().record(cpuNanos, TimeUnit.NANOSECONDS);
+            if (worker) {
+                resources.workerCpuNanos.add(cpuNanos);
+            }
+        }
+        if (bytes >= 0) {
+            resources.chunkBytes().record(bytes);
+            if (worker) {
+                resources.workerBytes.add(bytes);
+            }
+        }
+    }
+
+    private static long delta(long start, long end) {
+        return start >= 0 && end >= start ? end - start : -1;
+    }
+
+    private void record(Tags tags, StepResourceUsage usage) {
+        if (usage.cpuTime() != null) {
+            Timer.builder("batch.step.cpu")
+                    .tags(tags)
+                    .description("CPU time of the step, summed over its threads")
+                    .register(meterRegistry)
+                    .record(usage.cpuTime());
+        }
+        if (usage.allocatedBytes() >= 0) {
+            DistributionSummary.builder("batch.step.allocated.bytes")
+                    .tags(tags)
+                    .description("Bytes allocated on the heap by the step, summed over its threads")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(usage.allocatedBytes());
+        }
+        double bytesPerItem = usage.bytesPerItem();
+        if (!Double.isNaN(bytesPerItem)) {
+            DistributionSummary.builder("batch.step.allocated.bytes.per.item")
+                    .tags(tags)
+                    .description("Bytes allocated on the heap by the step per item read")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(bytesPerItem);
+        }
+    }
+
+    /**
+     * Resources of a running step: start values on its thread and totals of the chunks
+     * run by other threads.
+     */
+    private final class StepResources {
+
+        private final String jobName;
+        private final String stepName;
+        private final Tags tags;
+        private final Thread stepThread;
+        private final long startNanos;
+        private final long startCpuNanos;
+        private final long startBytes;
+        private final LongAdder workerCpuNanos = new LongAdder();
+        private final LongAdder workerBytes = new LongAdder();
+        private final LongAdder chunks = new LongAdder();
+        // Resolved on the first chunk: steps without chunks publish no chunk series
+        private volatile Timer chunkCpu;
+        private volatile DistributionSummary chunkBytes;
+
+        StepResources(StepExecution stepExecution, long startNanos, long startCpuNanos, long startBytes) {
+            this.jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            this.stepName = stepExecution.getStepName();
+            this.tags = stepNames.tags(jobName, stepName);
+            this.stepThread = Thread.currentThread();
+            this.startNanos = startNanos;
+            this.startCpuNanos = startCpuNanos;
+            this.startBytes = startBytes;
+        }
+
+        Timer chunkCpu() {
+            Timer timer = chunkCpu;
+            if (timer == null) {
+                timer = Timer.builder("batch.chunk.cpu")
+                        .tags(tags)
+                        .description("CPU time of each chunk")
+                        .register(meterRegistry);
+                chunkCpu = timer;
+            }
+            return timer;
+        }
+
+        DistributionSummary chunkBytes() {
+            DistributionSummary summary = chunkBytes;
+            if (summary == null) {
+                summary = DistributionSummary.builder("batch.chunk.allocated.bytes")
+                        .tags(tags)
+                        .description("Bytes allocated on the heap by each chunk")
+                        .baseUnit("bytes")
+                        .register(meterRegistry);
+                chunkBytes = summary;
+            }
+            return summary;
+        }
+
+        /**
+         * @return the step thread delta plus the worker total, or -1 when the step
+         * thread could not be measured
+         */
+        long total(long start, long end, LongAdder workers) {
+            long delta = delta(start, end);
+            return delta >= 0 ? delta + workers.sum() : -1;
+        }
+    }
+
+    /**
+     * Values of the running thread at the start of a chunk, kept on its {@link ChunkContext}.
+     */
+    private record ChunkStart(StepResources resources, long cpuNanos, long bytes) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.sambouch.batch.common.resources;
+
+import java.time.Duration;
+
+/**
+ * CPU time and heap allocation of a completed step execution, summed over the threads
+ * that ran it.
+ *
+ * @param jobName        name of the job
+ * @param stepName       name of the step execution
+ * @param wallTime       elapsed time of the step
+ * @param cpuTime        CPU time, {@code null} when the JVM cannot measure it
+ * @param allocatedBytes bytes allocated on the heap, -1 when the JVM cannot measure it
+ * @param items          items read by the step
+ * @param chunks         chunks run by the step, including rolled back ones
+ */
+public record StepResourceUsage(String jobName, String stepName, Duration wallTime, Duration cpuTime,
+                                long allocatedBytes, long items, long chunks) {
+
+    /**
+     * @return the bytes allocated per item read, NaN when unknown or without items
+     */
+    public double bytesPerItem() {
+        return allocatedBytes >= 0 && items > 0 ? (double) allocatedBytes / items : Double.NaN;
+    }
+
+    /**
+     * @return the CPU time over the elapsed time: above 1 when several threads were busy,
+     * NaN when unknown
+     */
+    public double cpuShare() {
+        return cpuTime != null && !wallTime.isZero() ? (double) cpuTime.toNanos() / wallTime.toNanos() : Double.NaN;
+    }
+}
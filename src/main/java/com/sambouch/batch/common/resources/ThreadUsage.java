@@ -0,0 +1,42 @@
+package com.sambouch.batch.common.resources;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * CPU time and allocated bytes of the current thread, from the platform
+ * {@link ThreadMXBean}.
+ *
+ * <p>Both reads are cheap on HotSpot (a clock read and a thread-local counter), so they
+ * are taken at every chunk. When the JVM does not support or has disabled a
+ * measurement, or for threads it cannot measure (virtual threads), the value is
+ * {@code -1}.</p>
+ */
+final class ThreadUsage {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean allocations
+                    && allocations.isThreadAllocatedMemorySupported() ? allocations : null;
+
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private ThreadUsage() {
+    }
+
+    /**
+     * @return the CPU time of the current thread in nanoseconds, or -1
+     */
+    static long cpuNanos() {
+        return CPU_TIME_SUPPORTED && THREADS.isThreadCpuTimeEnabled() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread since it started, or -1
+     */
+    static long allocatedBytes() {
+        return ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemoryEnabled()
+                ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : -1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.sambouch.batch.common.transaction;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+
+/**
+ * {@link PlatformTransactionManager} timing the begin, commit and rollback of the
+ * transactions of a step for the {@link TransactionMonitor}.
+ *
+ * <p>Set on the chunk-oriented steps in place of their transaction manager, so only
+ * the chunk transactions are timed, not those of the job repository.</p>
+ */
+public class MonitoredTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager delegate;
+    private final TransactionMonitor monitor;
+
+    public MonitoredTransactionManager(PlatformTransactionManager delegate, TransactionMonitor monitor) {
+        this.delegate = delegate;
+        this.monitor = monitor;
+    }
+
+    /**
+     * @return the decorated transaction manager
+     */
+    public PlatformTransactionManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) throws TransactionException {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTransaction(definition);
+        } finally {
+            monitor.begun(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void commit(TransactionStatus status) throws TransactionException {
+        long start = System.nanoTime();
+        try {
+            delegate.commit(status);
+        } finally {
+            monitor.committed(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) throws TransactionException {
+        long start = System.nanoTime();
+        try {
+            delegate.rollback(status);
+        } finally {
+            monitor.rolledBack(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.sambouch.batch.common.transaction;
+
+import java.time.Duration;
+
+/**
+ * Chunk transactions of a step execution.
+ *
+ * @param jobName    name of the job
+ * @param stepName   name of the step execution
+ * @param chunks     chunks completed, successfully or not
+ * @param chunkTime  summed duration of the chunks, from {@code beforeChunk} to
+ *                   {@code afterChunk}, commit included
+ * @param beginTime  time spent starting the chunk transactions
+ * @param commitTime time spent committing the chunk transactions
+ * @param rollbacks  chunk transactions rolled back
+ */
+public record StepTransactionUsage(String jobName, String stepName, long chunks, Duration chunkTime,
+                                   Duration beginTime, Duration commitTime, long rollbacks) {
+
+    /**
+     * @return the fraction of the chunk time spent committing
+     */
+    public double commitShare() {
+        return chunkTime.isZero() ? 0 : Math.min(1.0, (double) commitTime.toNanos() / chunkTime.toNanos());
+    }
+}
@@ -0,0 +1,254 @@
+package com.sambouch.batch.common.transaction;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times the chunk transactions of the steps, and reports the commit time as a fraction
+ * of the chunk time.
+ *
+ * <p>The transaction manager of each chunk-oriented step is replaced by a
+ * {@link MonitoredTransactionManager} (see {@link #decorate}). Its calls are attributed
+ * to the step Spring Batch registers for the current thread, on the thread of the step
+ * and on the threads running its chunks. Recorded meters, tagged by {@code job.name} and
+ * {@code step.name}:</p>
+ * <ul>
+ *   <li>{@code batch.transaction.begin}: time to start a chunk transaction, e.g. to
+ *       acquire its connection</li>
+ *   <li>{@code batch.transaction.commit}: time to commit a chunk transaction (flush,
+ *       fsync, replication)</li>
+ *   <li>{@code batch.transaction.rollback}: time to roll back a chunk transaction</li>
+ *   <li>{@code batch.step.commit.share}: fraction of the chunk time of the last execution
+ *       spent committing, the chunk time being measured as {@code batch.chunk.duration}</li>
+ * </ul>
+ *
+ * <p>A high commit share favors larger chunks, which commit less often; a high commit
+ * time with a low share points to the storage rather than to the chunk size.</p>
+ */
+public class TransactionMonitor implements StepExecutionListener, ChunkListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionMonitor.class);
+
+    // Start of the chunk, in nanoseconds, carried by the ChunkContext of the running chunk
+    private static final String CHUNK_START_ATTRIBUTE = TransactionMonitor.class.getName() + ".CHUNK_START";
+
+    private final MeterRegistry meterRegistry;
+    private final StepNameNormalizer stepNames;
+
+    // Transactions of the running steps, by step execution id
+    private final Map<Long, StepTransactions> runningSteps = new ConcurrentHashMap<>();
+
+    // Commit share of the last execution, by job and step tags
+    private final Map<Tags, LastShare> lastShares = new ConcurrentHashMap<>();
+
+    public TransactionMonitor(MeterRegistry meterRegistry, StepNameNormalizer stepNames) {
+        this.meterRegistry = meterRegistry;
+        this.stepNames = stepNames;
+    }
+
+    /**
+     * @return the transaction manager timed by this monitor
+     */
+    public PlatformTransactionManager decorate(PlatformTransactionManager transactionManager) {
+        if (transactionManager instanceof MonitoredTransactionManager) {
+            return transactionManager;
+        }
+        return new MonitoredTransactionManager(transactionManager, this);
+    }
+
+    //=============================================================
+    // STEP LISTENERS
+    // ===========================================================
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getId() != null) {
+            String jobName = stepExecution.getJobExecution().getJobInstance().getJobName();
+            runningSteps.put(stepExecution.getId(), new StepTransactions(jobName, stepExecution.getStepName(),
+                    stepNames.tags(jobName, stepExecution.getStepName())));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        measure(stepExecution);
+        return null;
+    }
+
+    /**
+     * Sums the chunk transactions of a completed step and records its commit share.
+     *
+     * @return the usage, or {@code null} if the step start was not seen
+     */
+    public StepTransactionUsage measure(StepExecution stepExecution) {
+        StepTransactions transactions = stepExecution.getId() != null ? runningSteps.remove(stepExecution.getId()) : null;
+        if (transactions == null || !transactions.stepName.equals(stepExecution.getStepName())) {
+            return null;
+        }
+        StepTransactionUsage usage = new StepTransactionUsage(transactions.jobName, transactions.stepName,
+                transactions.chunks.sum(), Duration.ofNanos(transactions.chunkNanos.sum()),
+                Duration.ofNanos(transactions.beginNanos.sum()), Duration.ofNanos(transactions.commitNanos.sum()),
+                transactions.rollbacks.sum());
+        if (usage.chunks() > 0) {
+            lastShares.compute(transactions.tags, (key, last) -> {
+                if (last == null) {
+                    return new LastShare(key, usage.commitShare());
+                }
+                last.share = usage.commitShare();
+                return last;
+            });
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Step {}: {} chunks, commits {} ms ({}% of chunk time), begins {} ms, {} rollbacks",
+                    usage.stepName(), usage.chunks(), usage.commitTime().toMillis(),
+                    String.format("%.1f", usage.commitShare() * 100), usage.beginTime().toMillis(), usage.rollbacks());
+        }
+        return usage;
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // CHUNK LISTENERS
+    // ═══════════════════════════════════════════════════════════
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        context.setAttribute(CHUNK_START_ATTRIBUTE, System.nanoTime());
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkCompleted(context);
+    }
+
+    private void chunkCompleted(ChunkContext context) {
+        Object start = context.removeAttribute(CHUNK_START_ATTRIBUTE);
+        Long id = context.getStepContext().getStepExecution().getId();
+        StepTransactions transactions = id != null ? runningSteps.get(id) : null;
+        if (start instanceof Long startNanos && transactions != null) {
+            transactions.chunkNanos.add(System.nanoTime() - startNanos);
+            transactions.chunks.increment();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // TRANSACTION MANAGER CALLBACKS
+    // ═══════════════════════════════════════════════════════════
+
+    void begun(long nanos) {
+        StepTransactions transactions = current();
+        if (transactions != null) {
+            transactions.begin.record(nanos, TimeUnit.NANOSECONDS);
+            transactions.beginNanos.add(nanos);
+        }
+    }
+
+    void committed(long nanos) {
+        StepTransactions transactions = current();
+        if (transactions != null) {
+            transactions.commit.record(nanos, TimeUnit.NANOSECONDS);
+            transactions.commitNanos.add(nanos);
+        }
+    }
+
+    void rolledBack(long nanos) {
+        StepTransactions transactions = current();
+        if (transactions != null) {
+            transactions.rollback().record(nanos, TimeUnit.NANOSECONDS);
+            transactions.rollbacks.increment();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════
+    // PRIVATE HELPERS
+    // ═══════════════════════════════════════════════════════════
+
+    /**
+     * @return the transactions of the step running on the current thread, or {@code null}
+     */
+    private StepTransactions current() {
+        StepContext context = StepSynchronizationManager.getContext();
+        Long id = context != null ? context.getStepExecution().getId() : null;
+        return id != null ? runningSteps.get(id) : null;
+    }
+
+    /**
+     * Chunk transactions of a running step, with its timers.
+     */
+    private final class StepTransactions {
+
+        private final String jobName;
+        private final String stepName;
+        private final Tags tags;
+        private final Timer begin;
+        private final Timer commit;
+        private volatile Timer rollback;
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder chunkNanos = new LongAdder();
+        private final LongAdder beginNanos = new LongAdder();
+        private final LongAdder commitNanos = new LongAdder();
+        private final LongAdder rollbacks = new LongAdder();
+
+        StepTransactions(String jobName, String stepName, Tags tags) {
+            this.jobName = jobName;
+            this.stepName = stepName;
+            this.tags = tags;
+            this.begin = timer("batch.transaction.begin", "Time to start a chunk transaction");
+            this.commit = timer("batch.transaction.commit", "Time to commit a chunk transaction");
+        }
+
+        Timer rollback() {
+            Timer timer = rollback;
+            if (timer == null) {
+                timer = timer("batch.transaction.rollback", "Time to roll back a chunk transaction");
+                rollback = timer;
+            }
+            return timer;
+        }
+
+        private Timer timer(String name, String description) {
+            return Timer.builder(name)
+                    .tags(tags)
+                    .description(description)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Commit share of the last execution of a step, read by the gauge.
+     */
+    private final class LastShare {
+
+        private volatile double share;
+
+        LastShare(Tags tags, double share) {
+            this.share = share;
+            Gauge.builder("batch.step.commit.share", this, last -> last.share)
+                    .tags(tags)
+                    .description("Fraction of the chunk time of the last execution spent committing")
+                    .register(meterRegistry);
+        }
+    }
+}
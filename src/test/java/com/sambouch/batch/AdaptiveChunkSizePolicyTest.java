@@ -0,0 +1,88 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.chunk.AdaptiveChunkSizePolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatContext;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AdaptiveChunkSizePolicy Tests")
+class AdaptiveChunkSizePolicyTest {
+
+    private MockClock clock;
+    private MeterRegistry registry;
+    private ChunkContext chunkContext;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "adaptiveJob"), 1L, new JobParameters());
+        chunkContext = new ChunkContext(new StepContext(new StepExecution("adaptiveStep", jobExecution, 2L)));
+    }
+
+    @Test
+    @DisplayName("Should grow the commit interval towards the target latency")
+    void shouldConvergeToTargetLatency() {
+        AdaptiveChunkSizePolicy policy = AdaptiveChunkSizePolicy.forTargetLatency(registry, Duration.ofMillis(40), 2, 500);
+
+        for (int i = 0; i < 30; i++) {
+            int items = runChunk(policy);
+            assertThat(items).isBetween(2, 500);
+        }
+
+        // 1 ms per item: 40 items per chunk
+        assertThat(policy.getChunkSize()).isEqualTo(40);
+        assertThat(registry.find("batch.chunk.commit.interval").tag("step.name", "adaptiveStep").gauge().value())
+                .isEqualTo(policy.getChunkSize());
+        assertThat(registry.find("batch.chunk.commit.interval.decisions").tag("decision", "increase").counter().count())
+                .isPositive();
+    }
+
+    @Test
+    @DisplayName("Should halve the commit interval after a chunk error")
+    void shouldBackOffAfterChunkError() {
+        AdaptiveChunkSizePolicy policy = new AdaptiveChunkSizePolicy(registry,
+                AdaptiveChunkSizePolicy.Goal.THROUGHPUT, null, 100, 10, 1000, 3, 1.5);
+
+        policy.beforeChunk(chunkContext);
+        policy.start(null);
+        policy.afterChunkError(chunkContext);
+
+        assertThat(policy.getChunkSize()).isEqualTo(50);
+        Counter backoff = registry.find("batch.chunk.commit.interval.decisions").tag("decision", "backoff").counter();
+        assertThat(backoff).isNotNull();
+        assertThat(backoff.count()).isEqualTo(1.0);
+    }
+
+    /**
+     * Reads items until the policy completes the chunk, 1 ms per item.
+     */
+    private int runChunk(AdaptiveChunkSizePolicy policy) {
+        policy.beforeChunk(chunkContext);
+        RepeatContext context = policy.start(null);
+        int items = 0;
+        while (!policy.isComplete(context)) {
+            policy.update(context);
+            items++;
+        }
+        clock.add(Duration.ofMillis(items));
+        policy.afterChunk(chunkContext);
+        return items;
+    }
+}
@@ -0,0 +1,110 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.pushgateway.AsyncPushGatewayExporter;
+import com.sambouch.batch.common.pushgateway.PushGatewayClient;
+import com.sambouch.batch.common.pushgateway.PushPayloadFilter;
+import com.sambouch.batch.common.pushgateway.PushRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AsyncPushGatewayExporter Tests")
+class AsyncPushGatewayExporterTest {
+
+    private StubPushGateway gateway;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = new StubPushGateway();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    @DisplayName("Should coalesce pushes to the same group and flush them on close")
+    void shouldCoalescePushesToTheSameGroup() {
+        AsyncPushGatewayExporter exporter = exporter(Duration.ofSeconds(5), 0);
+
+        exporter.export(new PushRequest("testJob", Map.of("job_execution_id", "1")));
+        exporter.export(new PushRequest("testJob", Map.of("job_execution_id", "1")));
+        exporter.export(new PushRequest("testJob", Map.of("job_execution_id", "2")));
+        exporter.close();
+
+        assertThat(gateway.requests())
+                .extracting(StubPushGateway.Request::path)
+                .containsExactly("/metrics/job/testJob/job_execution_id/1",
+                        "/metrics/job/testJob/job_execution_id/2");
+        assertThat(registry.get("batch.push.coalesced").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("batch.push.duration").tag("outcome", "success").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should keep a push following the deletion of its group")
+    void shouldNotCoalescePushAcrossDelete() {
+        AsyncPushGatewayExporter exporter = exporter(Duration.ofSeconds(5), 0);
+        Map<String, String> group = Map.of("job_execution_id", "1");
+
+        exporter.export(new PushRequest("testJob", group));
+        exporter.export(PushRequest.delete("testJob", group));
+        exporter.export(new PushRequest("testJob", group));
+        exporter.close();
+
+        assertThat(gateway.requests())
+                .extracting(StubPushGateway.Request::method)
+                .containsExactly("PUT", "DELETE", "PUT");
+        assertThat(registry.get("batch.push.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should retry failed pushes and count them as dropped once retries are exhausted")
+    void shouldDropAfterRetries() {
+        gateway.respondWith(500);
+        AsyncPushGatewayExporter exporter = exporter(Duration.ZERO, 2);
+
+        exporter.export(new PushRequest("testJob", Map.of("job_execution_id", "1")));
+        exporter.close();
+
+        assertThat(gateway.requests()).hasSize(3);
+        assertThat(registry.get("batch.push.dropped").tag("reason", "retries_exhausted").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should gzip request bodies when compression is enabled")
+    void shouldGzipRequestBodies() throws Exception {
+        CollectorRegistry collectorRegistry = new CollectorRegistry();
+        Counter.build("test_total", "help").register(collectorRegistry).inc();
+        PushGatewayClient client = new PushGatewayClient(gateway.url(), Duration.ofSeconds(1), Duration.ofSeconds(1), true);
+
+        client.push(collectorRegistry.metricFamilySamples(), "testJob", Map.of());
+
+        byte[] body = gateway.requests().get(0).body();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("test_total 1.0");
+        }
+    }
+
+    private AsyncPushGatewayExporter exporter(Duration coalesceWindow, int maxRetries) {
+        PushGatewayClient client = new PushGatewayClient(gateway.url(), Duration.ofSeconds(1), Duration.ofSeconds(1));
+        return new AsyncPushGatewayExporter(client, new CollectorRegistry(), PushPayloadFilter.none(), registry,
+                10, coalesceWindow, maxRetries, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5));
+    }
+}
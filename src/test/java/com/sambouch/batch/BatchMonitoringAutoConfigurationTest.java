@@ -0,0 +1,59 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.BatchMonitoringAutoConfiguration;
+import com.sambouch.batch.common.regression.RegressionDetector;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BatchMonitoringAutoConfiguration Tests")
+@ExtendWith(OutputCaptureExtension.class)
+class BatchMonitoringAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(MetricsAutoConfiguration.class,
+                    SimpleMetricsExportAutoConfiguration.class, BatchMonitoringAutoConfiguration.class));
+
+    @Test
+    @DisplayName("Should leave the meter registry to be configured by Spring Boot")
+    void shouldApplyMetricDetailProfileAndCommonTags(CapturedOutput output) {
+        contextRunner
+                .withPropertyValues("management.metrics.tags.app=x", "monitoring.metrics.profile=MINIMAL")
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    MeterRegistry registry = context.getBean(MeterRegistry.class);
+                    Timer stepDuration = Timer.builder("batch.step.duration")
+                            .serviceLevelObjectives(Duration.ofSeconds(1))
+                            .register(registry);
+                    Timer other = Timer.builder("other.duration")
+                            .serviceLevelObjectives(Duration.ofSeconds(1))
+                            .register(registry);
+
+                    assertThat(stepDuration.getId().getTag("app")).isEqualTo("x");
+                    // The MINIMAL profile publishes no bucket for the meters of the library
+                    assertThat(stepDuration.takeSnapshot().histogramCounts()).isEmpty();
+                    assertThat(other.takeSnapshot().histogramCounts()).hasSize(1);
+                });
+        assertThat(output).doesNotContain("not eligible for getting processed by all BeanPostProcessors");
+    }
+
+    @Test
+    @DisplayName("Should only detect step regressions when enabled")
+    void shouldMakeRegressionDetectionOptIn() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(RegressionDetector.class));
+        contextRunner.withPropertyValues("monitoring.regression.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(RegressionDetector.class));
+    }
+}
@@ -0,0 +1,97 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.history.BatchPerformanceEndpoint;
+import com.sambouch.batch.common.history.ExecutionHistory;
+import com.sambouch.batch.common.history.JobExecutionSummary;
+import com.sambouch.batch.common.progress.ExecutionContextTotalEstimator;
+import com.sambouch.batch.common.progress.StepProgressTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BatchPerformanceEndpoint Tests")
+class BatchPerformanceEndpointTest {
+
+    private ExecutionHistory history;
+    private StepProgressTracker tracker;
+    private BatchPerformanceEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        history = new ExecutionHistory(3);
+        tracker = new StepProgressTracker(new SimpleMeterRegistry(),
+                new ExecutionContextTotalEstimator(StepProgressTracker.DEFAULT_EXPECTED_TOTAL_KEY), 0.3);
+        endpoint = new BatchPerformanceEndpoint(history, tracker);
+    }
+
+    @Test
+    @DisplayName("Should show running jobs with their running steps")
+    void shouldShowRunningJobsAndSteps() {
+        JobExecution jobExecution = jobExecution("runningJob", 1L);
+        StepExecution stepExecution = jobExecution.createStepExecution("runningStep");
+        stepExecution.setId(10L);
+        stepExecution.getExecutionContext().putLong(StepProgressTracker.DEFAULT_EXPECTED_TOTAL_KEY, 200);
+
+        history.beforeJob(jobExecution);
+        tracker.stepStarted(stepExecution);
+        stepExecution.setReadCount(50);
+        tracker.chunkCompleted(stepExecution);
+
+        BatchPerformanceEndpoint.BatchPerformance performance = endpoint.performance();
+
+        assertThat(performance.running()).hasSize(1);
+        BatchPerformanceEndpoint.RunningJobDescriptor job = performance.running().get(0);
+        assertThat(job.jobName()).isEqualTo("runningJob");
+        assertThat(job.steps()).singleElement().satisfies(step -> {
+            assertThat(step.stepName()).isEqualTo("runningStep");
+            assertThat(step.items()).isEqualTo(50);
+            assertThat(step.chunks()).isEqualTo(1);
+            assertThat(step.ratio()).isEqualTo(0.25);
+            assertThat(step.currentChunkAge()).isNotNull();
+        });
+        assertThat(performance.recent()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep the summaries of the last completed executions, newest first")
+    void shouldKeepLastCompletedExecutions() {
+        for (long id = 1; id <= 5; id++) {
+            JobExecution jobExecution = jobExecution(id % 2 == 0 ? "evenJob" : "oddJob", id);
+            StepExecution stepExecution = jobExecution.createStepExecution("step");
+            stepExecution.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+            stepExecution.setEndTime(stepExecution.getStartTime().plusSeconds(10));
+            stepExecution.setWriteCount(1000);
+            stepExecution.setRollbackCount(2);
+            history.beforeJob(jobExecution);
+            jobExecution.setStatus(BatchStatus.COMPLETED);
+            history.afterJob(jobExecution);
+        }
+
+        BatchPerformanceEndpoint.BatchPerformance performance = endpoint.performance();
+
+        assertThat(performance.running()).isEmpty();
+        assertThat(performance.recent()).extracting(JobExecutionSummary::jobExecutionId)
+                .containsExactly(5L, 4L, 3L);
+        JobExecutionSummary.StepExecutionSummary step = performance.recent().get(0).steps().get(0);
+        assertThat(step.throughput()).isEqualTo(100.0);
+        assertThat(step.rollbackCount()).isEqualTo(2);
+        assertThat(endpoint.jobPerformance("evenJob").recent()).extracting(JobExecutionSummary::jobExecutionId)
+                .containsExactly(4L);
+    }
+
+    private JobExecution jobExecution(String jobName, long id) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(id, jobName), id, new JobParameters());
+        jobExecution.setStartTime(LocalDateTime.now());
+        return jobExecution;
+    }
+}
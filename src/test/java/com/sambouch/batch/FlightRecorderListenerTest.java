@@ -0,0 +1,163 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.jfr.FlightRecorderListener;
+import com.sambouch.batch.common.jfr.SlowStepRecorder;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("FlightRecorderListener Tests")
+class FlightRecorderListenerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FlightRecorderListener listener;
+    private JobExecution jobExecution;
+    private StepExecution stepExecution;
+
+    @BeforeEach
+    void setUp() {
+        listener = new FlightRecorderListener();
+        jobExecution = new JobExecution(new JobInstance(1L, "jfrJob"), 7L, new JobParameters());
+        stepExecution = new StepExecution("jfrStep", jobExecution, 8L);
+    }
+
+    @Test
+    @DisplayName("Should emit job, step and chunk events with names and execution ids")
+    void shouldEmitBatchEvents() throws Exception {
+        Path file = tempDir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.sambouch.batch.BatchJob");
+            recording.enable("com.sambouch.batch.BatchStep");
+            recording.enable("com.sambouch.batch.BatchChunk");
+            recording.start();
+
+            runJob();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).extracting(event -> event.getEventType().getName())
+                .containsOnly("com.sambouch.batch.BatchJob", "com.sambouch.batch.BatchStep",
+                        "com.sambouch.batch.BatchChunk");
+
+        RecordedEvent job = event(events, "com.sambouch.batch.BatchJob").get(0);
+        assertThat(job.getString("jobName")).isEqualTo("jfrJob");
+        assertThat(job.getLong("jobExecutionId")).isEqualTo(7L);
+        assertThat(job.getString("status")).isEqualTo("COMPLETED");
+
+        RecordedEvent step = event(events, "com.sambouch.batch.BatchStep").get(0);
+        assertThat(step.getString("stepName")).isEqualTo("jfrStep");
+        assertThat(step.getLong("jobExecutionId")).isEqualTo(7L);
+        assertThat(step.getLong("stepExecutionId")).isEqualTo(8L);
+        assertThat(step.getLong("writeCount")).isEqualTo(20L);
+
+        List<RecordedEvent> chunks = event(events, "com.sambouch.batch.BatchChunk");
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.getString("jobName")).isEqualTo("jfrJob");
+            assertThat(chunk.getLong("stepExecutionId")).isEqualTo(8L);
+            assertThat(chunk.getLong("writeCount")).isEqualTo(10L);
+        });
+        assertThat(chunks).extracting(chunk -> chunk.getBoolean("failed")).containsExactlyInAnyOrder(false, true);
+    }
+
+    @Test
+    @DisplayName("Should not emit anything without a recording")
+    void shouldDoNothingWithoutRecording() throws Exception {
+        runJob();
+
+        // Events enabled afterwards do not see the executions started before
+        Path file = tempDir.resolve("empty.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.sambouch.batch.BatchJob");
+            recording.enable("com.sambouch.batch.BatchStep");
+            recording.start();
+            listener.afterStep(stepExecution);
+            listener.afterJob(jobExecution);
+            recording.stop();
+            recording.dump(file);
+        }
+        assertThat(RecordingFile.readAllEvents(file))
+                .noneMatch(event -> event.getEventType().getName().startsWith("com.sambouch.batch"));
+    }
+
+    @Test
+    @DisplayName("Should write a recording of a step running longer than the threshold")
+    void shouldRecordSlowStep() throws Exception {
+        Path directory = tempDir.resolve("recordings");
+        try (SlowStepRecorder recorder = new SlowStepRecorder(Duration.ofMillis(50), directory,
+                Duration.ofMinutes(1), 10L * 1024 * 1024, "default", Duration.ofMillis(10))) {
+            StepExecution fastStep = new StepExecution("fastStep", jobExecution, 9L);
+            recorder.beforeStep(fastStep);
+            recorder.afterStep(fastStep);
+
+            recorder.beforeStep(stepExecution);
+            await().atMost(Duration.ofSeconds(10))
+                    .until(() -> FlightRecorder.getFlightRecorder().getRecordings().stream()
+                            .anyMatch(recording -> recording.getName().equals("slow-step-8")));
+            // Recording started: run a bit so that it holds some samples
+            Thread.sleep(200);
+            recorder.afterStep(stepExecution);
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> recordings = files.toList();
+            assertThat(recordings).hasSize(1);
+            assertThat(recordings.get(0).getFileName().toString()).startsWith("jfrJob-jfrStep-8-").endsWith(".jfr");
+            assertThat(RecordingFile.readAllEvents(recordings.get(0))).isNotEmpty();
+        }
+    }
+
+    /**
+     * Runs a job with one step of two chunks of 10 items, the second one failing.
+     */
+    private void runJob() {
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        listener.beforeJob(jobExecution);
+        listener.beforeStep(stepExecution);
+
+        listener.beforeChunk(chunkContext);
+        stepExecution.setReadCount(10);
+        stepExecution.setWriteCount(10);
+        listener.afterChunk(chunkContext);
+
+        listener.beforeChunk(chunkContext);
+        stepExecution.setReadCount(20);
+        stepExecution.setWriteCount(20);
+        listener.afterChunkError(chunkContext);
+
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        listener.afterStep(stepExecution);
+        jobExecution.setStatus(BatchStatus.COMPLETED);
+        listener.afterJob(jobExecution);
+    }
+
+    private static List<RecordedEvent> event(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+}
@@ -0,0 +1,103 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.resources.GcEvent;
+import com.sambouch.batch.common.resources.GcPressureMonitor;
+import com.sambouch.batch.common.resources.StepGcUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("GcPressureMonitor Tests")
+class GcPressureMonitorTest {
+
+    private MeterRegistry registry;
+    private GcPressureMonitor monitor;
+    private JobExecution jobExecution;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // Only the collections of the test, not those of the JVM
+        monitor = new GcPressureMonitor(registry, StepNameNormalizer.NONE, List.of());
+        jobExecution = new JobExecution(new JobInstance(1L, "gcJob"), 1L, new JobParameters());
+    }
+
+    @AfterEach
+    void tearDown() {
+        monitor.close();
+    }
+
+    @Test
+    @DisplayName("Should attribute pauses, collections and old generation peak to the running steps")
+    void shouldAttributeCollectionsToRunningSteps() throws InterruptedException {
+        StepExecution first = new StepExecution("firstStep", jobExecution, 2L);
+        StepExecution second = new StepExecution("secondStep", jobExecution, 3L);
+
+        monitor.beforeStep(first);
+        monitor.gcCompleted(new GcEvent("G1 Young Generation", false, false, 20, 100, 50));
+        monitor.beforeStep(second);
+        monitor.gcCompleted(new GcEvent("G1 Old Generation", true, false, 30, 1L << 40, 200));
+        monitor.gcCompleted(new GcEvent("ZGC Cycles", true, true, 500, 300, 100));
+        monitor.gcCompleted(new GcEvent("ZGC Pauses", false, false, 1, -1, -1));
+        Thread.sleep(100);
+        StepGcUsage firstUsage = monitor.measure(first);
+        StepGcUsage secondUsage = monitor.measure(second);
+
+        assertThat(firstUsage.pauseTime()).isEqualTo(Duration.ofMillis(51));
+        assertThat(firstUsage.minorCollections()).isEqualTo(1);
+        assertThat(firstUsage.majorCollections()).isEqualTo(2);
+        assertThat(firstUsage.heapPeak()).isEqualTo(1L << 40);
+        assertThat(firstUsage.gcShare()).isBetween(0.0, 0.51);
+        assertThat(secondUsage.pauseTime()).isEqualTo(Duration.ofMillis(31));
+        assertThat(secondUsage.minorCollections()).isZero();
+
+        Timer pause = registry.find("batch.step.gc.pause").tag("step.name", "firstStep").timer();
+        assertThat(pause).isNotNull();
+        assertThat(pause.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(51.0);
+        assertThat(registry.find("batch.step.gc.collections").tag("step.name", "firstStep")
+                .tag("generation", "major").counter().count()).isEqualTo(2.0);
+        assertThat(registry.find("batch.step.heap.peak").tag("step.name", "firstStep").summary().max())
+                .isEqualTo(1L << 40);
+        assertThat(registry.find("batch.step.gc.share").tag("step.name", "firstStep").gauge().value())
+                .isEqualTo(firstUsage.gcShare());
+    }
+
+    @Test
+    @DisplayName("Should receive the notifications of the JVM collectors")
+    void shouldListenToJvmCollectors() throws InterruptedException {
+        CountDownLatch notified = new CountDownLatch(1);
+        monitor = new GcPressureMonitor(registry, StepNameNormalizer.NONE) {
+            @Override
+            public void gcCompleted(GcEvent event) {
+                super.gcCompleted(event);
+                notified.countDown();
+            }
+        };
+        StepExecution stepExecution = new StepExecution("gcStep", jobExecution, 4L);
+
+        monitor.beforeStep(stepExecution);
+        System.gc();
+        // Notifications are delivered asynchronously after the collection
+        assertThat(notified.await(10, TimeUnit.SECONDS)).isTrue();
+        StepGcUsage usage = monitor.measure(stepExecution);
+
+        assertThat(usage.minorCollections() + usage.majorCollections()).isPositive();
+        assertThat(usage.heapPeak()).isPositive();
+    }
+}
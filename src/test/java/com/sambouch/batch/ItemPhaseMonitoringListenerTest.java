@@ -0,0 +1,94 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.MonitoringProperties;
+import com.sambouch.batch.common.listeners.ItemPhaseMonitoringListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.*;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.Chunk;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ItemPhaseMonitoringListener Tests")
+class ItemPhaseMonitoringListenerTest {
+
+    private MeterRegistry registry;
+    private MonitoringProperties.ItemTiming properties;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new MonitoringProperties.ItemTiming();
+    }
+
+    @Test
+    @DisplayName("Should record read, process and write phases of a chunk")
+    void shouldRecordChunkPhases() {
+        properties.setSampleRate(1);
+        ItemPhaseMonitoringListener listener = new ItemPhaseMonitoringListener(registry, properties);
+
+        runChunk(listener, 10);
+
+        for (String phase : List.of("read", "process", "write")) {
+            Timer timer = registry.find("batch.chunk.phase.duration")
+                    .tag("job.name", "testJob")
+                    .tag("step.name", "testStep")
+                    .tag("phase", phase)
+                    .timer();
+
+            assertThat(timer).as(phase).isNotNull();
+            assertThat(timer.count()).as(phase).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should extrapolate item phases to the chunks without sampled item")
+    void shouldExtrapolateUnsampledChunks() {
+        properties.setSampleRate(100);
+        ItemPhaseMonitoringListener listener = new ItemPhaseMonitoringListener(registry, properties);
+
+        // 20 chunks of 10 items: the first item and 2 more are sampled, in 3 chunks
+        runChunks(listener, 20, 10);
+
+        for (String phase : List.of("read", "process", "write")) {
+            Timer timer = registry.find("batch.chunk.phase.duration").tag("phase", phase).timer();
+            assertThat(timer.count()).as(phase).isEqualTo(20);
+        }
+    }
+
+    private void runChunk(ItemPhaseMonitoringListener listener, int items) {
+        runChunks(listener, 1, items);
+    }
+
+    private void runChunks(ItemPhaseMonitoringListener listener, int chunks, int items) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "testJob"), 1L, new JobParameters());
+        StepExecution stepExecution = new StepExecution("testStep", jobExecution);
+        stepExecution.setId(1L);
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        listener.beforeStep(stepExecution);
+        for (int c = 0; c < chunks; c++) {
+            listener.beforeChunk(chunkContext);
+            Chunk<Object> chunk = new Chunk<>();
+            for (int i = 0; i < items; i++) {
+                listener.beforeRead();
+                listener.afterRead(i);
+                listener.beforeProcess(i);
+                listener.afterProcess(i, i);
+                chunk.add(i);
+            }
+            listener.beforeWrite(chunk);
+            listener.afterWrite(chunk);
+            listener.afterChunk(chunkContext);
+        }
+        listener.afterStep(stepExecution);
+    }
+}
@@ -0,0 +1,81 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.regression.JdbcStepExecutionHistory;
+import com.sambouch.batch.common.regression.StepExecutionHistory.CompletedStep;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("JdbcStepExecutionHistory Tests")
+class JdbcStepExecutionHistoryTest {
+
+    private EmbeddedDatabase database;
+    private JobRepository jobRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(new DataSourceTransactionManager(database));
+        factory.afterPropertiesSet();
+        jobRepository = factory.getObject();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should read the completed steps of the last job instances, newest first")
+    void shouldReadCompletedStepsOfLastInstances() throws Exception {
+        for (int run = 1; run <= 3; run++) {
+            JobExecution jobExecution = jobRepository.createJobExecution("nightlyJob",
+                    new JobParametersBuilder().addLong("run", (long) run).toJobParameters());
+            step(jobExecution, "loadStep", run, BatchStatus.COMPLETED);
+            step(jobExecution, "exportStep", 100, run == 3 ? BatchStatus.FAILED : BatchStatus.COMPLETED);
+        }
+        JobExecution other = jobRepository.createJobExecution("otherJob", new JobParametersBuilder().toJobParameters());
+        step(other, "loadStep", 50, BatchStatus.COMPLETED);
+
+        List<CompletedStep> steps = new JdbcStepExecutionHistory(database, "BATCH_", 2).completedSteps("nightlyJob");
+
+        assertThat(steps).extracting(CompletedStep::stepName)
+                .containsExactly("loadStep", "exportStep", "loadStep");
+        assertThat(steps).extracting(CompletedStep::duration)
+                .containsExactly(Duration.ofSeconds(3), Duration.ofSeconds(100), Duration.ofSeconds(2));
+        assertThat(steps).extracting(CompletedStep::writeCount).containsOnly(10L);
+    }
+
+    private void step(JobExecution jobExecution, String stepName, long seconds, BatchStatus status) {
+        StepExecution stepExecution = jobExecution.createStepExecution(stepName);
+        stepExecution.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+        jobRepository.add(stepExecution);
+        stepExecution.setEndTime(stepExecution.getStartTime().plusSeconds(seconds));
+        stepExecution.setWriteCount(10);
+        stepExecution.setStatus(status);
+        jobRepository.update(stepExecution);
+    }
+}
@@ -0,0 +1,139 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.MonitoredJobRepositoryPostProcessor;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.repository.JobRepositoryMonitor;
+import com.sambouch.batch.common.repository.MonitoredJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("JobRepositoryMonitor Tests")
+class JobRepositoryMonitorTest {
+
+    private EmbeddedDatabase database;
+    private DataSourceTransactionManager transactionManager;
+    private JobRepository metadataRepository;
+    private JobRepository jobRepository;
+    private MeterRegistry registry;
+    private JobRepositoryMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        transactionManager = new DataSourceTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        metadataRepository = factory.getObject();
+        registry = new SimpleMeterRegistry();
+        monitor = new JobRepositoryMonitor(registry, StepNameNormalizer.NONE);
+        jobRepository = (JobRepository) new MonitoredJobRepositoryPostProcessor(monitor)
+                .postProcessAfterInitialization(metadataRepository, "jobRepository");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should time the repository operations of a step and its metadata overhead per chunk")
+    void shouldTimeStepOperations() throws Exception {
+        assertThat(jobRepository).isInstanceOf(MonitoredJobRepository.class);
+        TaskletStep step = new StepBuilder("repoStep", jobRepository)
+                .<Integer, Integer>chunk(10, transactionManager)
+                .reader(new ListItemReader<>(IntStream.range(0, 35).boxed().toList()))
+                .writer(chunk -> { })
+                .build();
+        step.registerChunkListener(monitor);
+
+        JobExecution jobExecution = jobRepository.createJobExecution("repoJob",
+                new JobParametersBuilder().addLong("run", System.nanoTime()).toJobParameters());
+        StepExecution stepExecution = jobExecution.createStepExecution("repoStep");
+        jobRepository.add(stepExecution);
+        step.execute(stepExecution);
+
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(operation("none", "create_job_execution").count()).isEqualTo(1);
+        assertThat(operation("repoStep", "add_step_execution").count()).isEqualTo(1);
+        // One update per chunk, plus those of the step start and end
+        assertThat(operation("repoStep", "update_step_execution").count()).isGreaterThanOrEqualTo(4);
+        assertThat(operation("repoStep", "update_step_context").count()).isGreaterThanOrEqualTo(4);
+        // Chunks of 10, 10, 10 and 5 items, each updating the step in its transaction
+        Timer chunk = registry.find("batch.chunk.repository").tags("job.name", "repoJob", "step.name", "repoStep").timer();
+        assertThat(chunk.count()).isEqualTo(4);
+        assertThat(chunk.totalTime(TimeUnit.NANOSECONDS)).isPositive();
+        assertThat(chunk.totalTime(TimeUnit.NANOSECONDS))
+                .isLessThanOrEqualTo(operation("repoStep", "update_step_execution")
+                        .totalTime(TimeUnit.NANOSECONDS)
+                        + operation("repoStep", "update_step_context")
+                        .totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    @DisplayName("Should time the lookup of the last step execution on restart")
+    void shouldTimeLastStepExecutionLookup() throws Exception {
+        JobExecution jobExecution = jobRepository.createJobExecution("repoJob", new JobParametersBuilder()
+                .addLong("run", 1L).toJobParameters());
+        StepExecution stepExecution = jobExecution.createStepExecution("repoStep");
+        jobRepository.add(stepExecution);
+
+        StepExecution last = jobRepository.getLastStepExecution(jobExecution.getJobInstance(), "repoStep");
+
+        assertThat(last.getId()).isEqualTo(stepExecution.getId());
+        assertThat(operation("repoStep", "get_last_step_execution").count()).isEqualTo(1);
+        // Outside of a chunk, no overhead is recorded
+        assertThat(registry.find("batch.chunk.repository").timer()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should share the timers of the partition workers folded into one step name")
+    void shouldShareTimersOfFoldedWorkers() throws Exception {
+        JobRepository foldingRepository = new JobRepositoryMonitor(registry, new StepNameNormalizer(true, false))
+                .decorate(metadataRepository);
+        JobExecution jobExecution = foldingRepository.createJobExecution("repoJob", new JobParametersBuilder()
+                .addLong("run", 1L).toJobParameters());
+
+        for (int partition = 0; partition < 3; partition++) {
+            foldingRepository.add(jobExecution.createStepExecution("repoStep:partition" + partition));
+        }
+
+        assertThat(operation("repoStep", "add_step_execution").count()).isEqualTo(3);
+        assertThat(registry.find("batch.repository.operation").tag("operation", "add_step_execution").timers())
+                .hasSize(1);
+    }
+
+    private Timer operation(String stepName, String operation) {
+        return registry.find("batch.repository.operation")
+                .tags("job.name", "repoJob", "step.name", stepName, "operation", operation)
+                .timer();
+    }
+}
@@ -0,0 +1,89 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.MonitoringProperties;
+import com.sambouch.batch.common.metrics.MeterFamily;
+import com.sambouch.batch.common.metrics.MetricDetailFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("MetricDetailFilter Tests")
+class MetricDetailFilterTest {
+
+    private MonitoringProperties.Metrics properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new MonitoringProperties.Metrics();
+    }
+
+    @Test
+    @DisplayName("Minimal profile should drop the histogram requested by the meter builder")
+    void minimalProfile_shouldDropHistograms() {
+        properties.setProfile(MonitoringProperties.Metrics.Profile.MINIMAL);
+
+        HistogramSnapshot snapshot = stepDuration(registry()).takeSnapshot();
+
+        assertThat(snapshot.histogramCounts()).isEmpty();
+        assertThat(snapshot.percentileValues()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Standard profile should keep histograms of step durations only")
+    void standardProfile_shouldKeepStepHistograms() {
+        MeterRegistry registry = registry();
+
+        assertThat(stepDuration(registry).takeSnapshot().histogramCounts()).isNotEmpty();
+        DistributionSummary throughput = DistributionSummary.builder("batch.step.throughput").register(registry);
+        throughput.record(100);
+        assertThat(throughput.takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Family overrides should publish SLO buckets or percentiles")
+    void overrides_shouldSelectSlosOrPercentiles() {
+        MonitoringProperties.Distribution slo = new MonitoringProperties.Distribution();
+        slo.setMode(MonitoringProperties.Distribution.Mode.SLO);
+        slo.setSlos(List.of(1.0, 10.0));
+        properties.getDistributions().put(MeterFamily.STEP_DURATION, slo);
+        MonitoringProperties.Distribution percentiles = new MonitoringProperties.Distribution();
+        percentiles.setMode(MonitoringProperties.Distribution.Mode.PERCENTILES);
+        properties.getDistributions().put(MeterFamily.CHUNK_DURATION, percentiles);
+        MeterRegistry registry = registry();
+
+        HistogramSnapshot step = stepDuration(registry).takeSnapshot();
+        assertThat(step.histogramCounts()).hasSize(2);
+        assertThat(step.histogramCounts()[0].bucket()).isEqualTo(Duration.ofSeconds(1).toNanos());
+
+        Timer chunk = Timer.builder("batch.chunk.duration").register(registry);
+        chunk.record(Duration.ofMillis(20));
+        assertThat(chunk.takeSnapshot().percentileValues()).hasSize(3);
+    }
+
+    private MeterRegistry registry() {
+        // Percentile histogram buckets are only materialized by registries supporting them
+        MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config().meterFilter(new MetricDetailFilter(properties));
+        return registry;
+    }
+
+    private static Timer stepDuration(MeterRegistry registry) {
+        Timer timer = Timer.builder("batch.step.duration")
+                .tag("step.name", "testStep")
+                .publishPercentileHistogram(true)
+                .register(registry);
+        timer.record(Duration.ofSeconds(2));
+        return timer;
+    }
+}
@@ -0,0 +1,104 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.jdbc.MonitoredDataSource;
+import com.sambouch.batch.common.jdbc.StepJdbcMetrics;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("MonitoredDataSource Tests")
+class MonitoredDataSourceTest {
+
+    private EmbeddedDatabase database;
+    private MeterRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+    private StepExecution stepExecution;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        registry = new SimpleMeterRegistry();
+        jdbcTemplate = new JdbcTemplate(new MonitoredDataSource(database,
+                new StepJdbcMetrics(registry, StepNameNormalizer.NONE)));
+        jdbcTemplate.execute("CREATE TABLE item (id INT PRIMARY KEY, name VARCHAR(20))");
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "jdbcJob"), 1L, new JobParameters());
+        stepExecution = new StepExecution("jdbcStep", jobExecution, 2L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StepSynchronizationManager.close();
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should attribute batched inserts, queries, rows and fetches to the running step")
+    void shouldRecordStepStatements() {
+        StepSynchronizationManager.register(stepExecution);
+        List<Object[]> items = new ArrayList<>();
+        for (int i = 0; i < 35; i++) {
+            items.add(new Object[]{i, "item-" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO item (id, name) VALUES (?, ?)", items);
+        jdbcTemplate.setFetchSize(10);
+        List<String> names = jdbcTemplate.queryForList("SELECT name FROM item ORDER BY id", String.class);
+
+        assertThat(names).hasSize(35);
+        DistributionSummary batchSize = registry.find("batch.jdbc.batch.size")
+                .tags("job.name", "jdbcJob", "step.name", "jdbcStep")
+                .summary();
+        assertThat(batchSize).isNotNull();
+        assertThat(batchSize.count()).isEqualTo(1);
+        assertThat(batchSize.totalAmount()).isEqualTo(35);
+        assertThat(statementCount("batch")).isEqualTo(1);
+        assertThat(statementCount("query")).isEqualTo(1);
+        assertThat(registry.find("batch.jdbc.rows").counter().count()).isEqualTo(35);
+        // Blocks of 10 rows: the first comes with the query, then 3 round-trips
+        assertThat(registry.find("batch.jdbc.fetch").timer().count()).isEqualTo(3);
+        assertThat(registry.find("batch.jdbc.connection.acquire").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should not record anything outside of a step")
+    void shouldIgnoreStatementsOutsideSteps() {
+        jdbcTemplate.update("INSERT INTO item (id, name) VALUES (1, 'one')");
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM item", String.class)).containsExactly("one");
+
+        assertThat(registry.find("batch.jdbc.statement").timers()).isEmpty();
+        assertThat(registry.find("batch.jdbc.rows").counters()).isEmpty();
+
+        StepSynchronizationManager.register(stepExecution);
+        jdbcTemplate.update("UPDATE item SET name = 'uno' WHERE id = 1");
+        assertThat(statementCount("update")).isEqualTo(1);
+    }
+
+    private long statementCount(String operation) {
+        Timer timer = registry.find("batch.jdbc.statement")
+                .tags("step.name", "jdbcStep", "operation", operation)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.partition.PartitionMonitor;
+import com.sambouch.batch.common.partition.PartitionSkewReport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.PartitionHandler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DisplayName("PartitionMonitor Tests")
+class PartitionMonitorTest {
+
+    private MeterRegistry registry;
+    private PartitionMonitor monitor;
+    private JobExecution jobExecution;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        monitor = new PartitionMonitor(registry, 2.0);
+        jobExecution = new JobExecution(new JobInstance(1L, "partitionedJob"), 1L, new JobParameters());
+    }
+
+    @Test
+    @DisplayName("Should compute imbalance and flag stragglers from the handler's worker executions")
+    void shouldDetectStragglers() throws Exception {
+        StepExecution manager = stepExecution("managerStep", 1L);
+        List<StepExecution> workers = new ArrayList<>();
+        long[] seconds = {10, 10, 12, 40};
+        for (int i = 0; i < seconds.length; i++) {
+            StepExecution worker = stepExecution("workerStep:partition" + i, 10L + i);
+            worker.setStartTime(LocalDateTime.of(2024, 1, 1, 0, 0));
+            worker.setEndTime(worker.getStartTime().plusSeconds(seconds[i]));
+            worker.setReadCount(100);
+            workers.add(worker);
+        }
+        PartitionHandler handler = monitor.monitor((splitter, stepExecution) -> workers);
+
+        handler.handle(null, manager);
+        PartitionSkewReport report = monitor.analyze(manager);
+
+        assertThat(report.medianDuration()).isEqualTo(Duration.ofSeconds(11));
+        assertThat(report.durationImbalance()).isCloseTo(40 / 11.0, within(0.001));
+        assertThat(report.itemImbalance()).isEqualTo(1.0);
+        assertThat(report.stragglers()).extracting(PartitionSkewReport.Partition::stepName)
+                .containsExactly("workerStep:partition3");
+
+        assertThat(registry.get("batch.partition.duration").tag("step.name", "managerStep").timer().count()).isEqualTo(4);
+        assertThat(registry.get("batch.partition.stragglers").tag("step.name", "managerStep").counter().count()).isEqualTo(1);
+        assertThat(registry.get("batch.partition.imbalance").tag("basis", "duration").gauge().value())
+                .isCloseTo(40 / 11.0, within(0.001));
+    }
+
+    @Test
+    @DisplayName("Should skip steps whose partitions were not captured")
+    void shouldIgnoreUnmonitoredSteps() {
+        assertThat(monitor.analyze(stepExecution("managerStep", 1L))).isNull();
+        assertThat(registry.find("batch.partition.duration").timer()).isNull();
+    }
+
+    private StepExecution stepExecution(String name, long id) {
+        StepExecution stepExecution = new StepExecution(name, jobExecution);
+        stepExecution.setId(id);
+        return stepExecution;
+    }
+}
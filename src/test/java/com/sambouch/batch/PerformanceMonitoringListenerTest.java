@@ -1,12 +1,24 @@
 package com.sambouch.batch;
 
 
+import com.sambouch.batch.common.history.SlowChunk;
+import com.sambouch.batch.common.history.SlowChunkRecorder;
 import com.sambouch.batch.common.listeners.PerformanceMonitoringListener;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.listeners.WarmupDetector;
+import com.sambouch.batch.common.metrics.SlowChunkExemplarSampler;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,20 +26,24 @@ import org.springframework.batch.core.*;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.scope.context.StepContext;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 @DisplayName("PerformanceMonitoringListener Tests")
 class PerformanceMonitoringListenerTest {
 
+    private static final AtomicLong EXECUTION_IDS = new AtomicLong();
+
     private MeterRegistry registry;
     private PerformanceMonitoringListener listener;
 
@@ -489,6 +505,146 @@ class PerformanceMonitoringListenerTest {
         assertThat(timer.count()).isEqualTo(1);
     }
 
+    @Test
+    @DisplayName("Should record every chunk of a step on the same chunk timer")
+    void shouldRecordChunksOfAStepOnTheSameTimer() {
+        ChunkContext chunkContext = buildChunkContext("testJob", "testStep");
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+
+        listener.beforeStep(stepExecution);
+        for (int i = 0; i < 3; i++) {
+            listener.beforeChunk(chunkContext);
+            listener.afterChunk(chunkContext);
+        }
+        listener.afterStep(stepExecution);
+
+        Timer timer = registry.find("batch.chunk.duration")
+                .tag("job.name", "testJob")
+                .tag("step.name", "testStep")
+                .timer();
+
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(3);
+        assertThat(registry.find("batch.chunk.duration").timers()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should record the throughput of each chunk")
+    void shouldRecordChunkThroughput() {
+        MockClock clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        listener = new PerformanceMonitoringListener(registry);
+        ChunkContext chunkContext = buildChunkContext("testJob", "testStep");
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+
+        listener.beforeStep(stepExecution);
+        runChunk(chunkContext, clock, 50, 500);
+        runChunk(chunkContext, clock, 50, 250);
+        listener.afterStep(stepExecution);
+
+        DistributionSummary throughput = registry.find("batch.chunk.throughput")
+                .tag("step.name", "testStep")
+                .summary();
+        assertThat(throughput).isNotNull();
+        assertThat(throughput.count()).isEqualTo(2);
+        assertThat(throughput.max()).isEqualTo(200.0);
+        assertThat(throughput.totalAmount()).isEqualTo(300.0);
+    }
+
+    @Test
+    @DisplayName("Should record the chunks slower than the rolling quantile of their step")
+    void shouldRecordSlowChunksAboveRollingQuantile() {
+        MockClock clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        SlowChunkRecorder recorder = new SlowChunkRecorder(StepNameNormalizer.NONE, 10, null, 0.99, 20, 1000);
+        listener = new PerformanceMonitoringListener(registry, null, StepNameNormalizer.NONE,
+                WarmupDetector.DEFAULT, recorder);
+        ChunkContext chunkContext = buildChunkContext("testJob", "testStep");
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+
+        listener.beforeStep(stepExecution);
+        for (int i = 0; i < 30; i++) {
+            runChunk(chunkContext, clock, 10, 100);
+        }
+        assertThat(recorder.slowChunks()).isEmpty();
+        runChunk(chunkContext, clock, 10, 500);
+        runChunk(chunkContext, clock, 10, 100);
+        listener.afterStep(stepExecution);
+
+        assertThat(recorder.slowChunks()).singleElement().satisfies(chunk -> {
+            assertThat(chunk.stepName()).isEqualTo("testStep");
+            assertThat(chunk.stepExecutionId()).isEqualTo(stepExecution.getId());
+            assertThat(chunk.chunkSequence()).isEqualTo(31);
+            assertThat(chunk.itemsWritten()).isEqualTo(10);
+            assertThat(chunk.thread()).isEqualTo(Thread.currentThread().getName());
+            assertThat(chunk.duration()).isEqualTo(Duration.ofMillis(500));
+            assertThat(chunk.threshold()).isBetween(Duration.ofMillis(100), Duration.ofMillis(125));
+        });
+        assertThat(registry.find("batch.chunk.slow").tag("step.name", "testStep").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should attach the chunks slower than the SLO as exemplars of the chunk timer")
+    void shouldAttachSlowChunksAsExemplars() {
+        MockClock clock = new MockClock();
+        PrometheusMeterRegistry prometheus = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT,
+                new CollectorRegistry(), clock, new SlowChunkExemplarSampler(null));
+        SlowChunkRecorder recorder = new SlowChunkRecorder(StepNameNormalizer.NONE, 10, Duration.ofMillis(100),
+                0.99, 20, 1000);
+        registry = prometheus;
+        listener = new PerformanceMonitoringListener(registry, null, StepNameNormalizer.NONE,
+                WarmupDetector.DEFAULT, recorder);
+        ChunkContext chunkContext = buildChunkContext("testJob", "testStep");
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+
+        listener.beforeStep(stepExecution);
+        runChunk(chunkContext, clock, 10, 50);
+        runChunk(chunkContext, clock, 10, 200);
+        runChunk(chunkContext, clock, 10, 50);
+
+        SlowChunk slow = recorder.slowChunks().get(0);
+        assertThat(slow.chunkSequence()).isEqualTo(2);
+        assertThat(prometheus.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100))
+                .contains("# {chunk=\"2\",step=\"testStep\",step_execution_id=\"" + stepExecution.getId() + "\"}");
+    }
+
+    @Test
+    @DisplayName("Should separate warm-up and steady-state throughput")
+    void shouldSeparateWarmupFromSteadyState() {
+        MockClock clock = new MockClock();
+        registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+        listener = new PerformanceMonitoringListener(registry, null, StepNameNormalizer.NONE,
+                new WarmupDetector(10, 3, 0.1));
+        ChunkContext chunkContext = buildChunkContext("testJob", "testStep");
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+
+        listener.beforeStep(stepExecution);
+        runChunk(chunkContext, clock, 100, 1000);
+        runChunk(chunkContext, clock, 100, 500);
+        // Stable from the 3rd chunk: the warm-up ends with the 5th
+        for (int i = 0; i < 8; i++) {
+            runChunk(chunkContext, clock, 100, 100);
+        }
+        listener.afterStep(stepExecution);
+
+        Timer firstChunk = registry.find("batch.step.first.chunk.time").timer();
+        assertThat(firstChunk).isNotNull();
+        assertThat(firstChunk.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(1000.0);
+
+        Timer warmupDuration = registry.find("batch.step.warmup.duration").timer();
+        assertThat(warmupDuration).isNotNull();
+        assertThat(warmupDuration.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(1800.0);
+
+        DistributionSummary warmup = registry.find("batch.step.warmup.throughput").summary();
+        assertThat(warmup).isNotNull();
+        assertThat(warmup.totalAmount()).isCloseTo(500 / 1.8, within(0.001));
+
+        DistributionSummary steady = registry.find("batch.step.steady.throughput").summary();
+        assertThat(steady).isNotNull();
+        assertThat(steady.totalAmount()).isCloseTo(1000.0, within(0.001));
+    }
+
     @Test
     @DisplayName("Parallel partitioned steps should not interfere with each other")
     void parallelSteps_shouldBeThreadSafe() throws InterruptedException {
@@ -533,6 +689,98 @@ class PerformanceMonitoringListenerTest {
         }
     }
 
+    @Test
+    @DisplayName("Partition workers should be folded into the worker step name when normalized")
+    void partitionWorkers_shouldShareNormalizedSeries() {
+        listener = new PerformanceMonitoringListener(registry, null, new StepNameNormalizer(true, true));
+        JobExecution jobExecution = createJobExecution("partitionedJob", BatchStatus.COMPLETED);
+
+        for (int i = 0; i < 3; i++) {
+            StepExecution worker = createStepExecution(jobExecution, "loadStep:partition" + i);
+            worker.setReadCount(10);
+            listener.beforeStep(worker);
+            listener.afterStep(worker);
+        }
+
+        assertThat(registry.find("batch.step.duration").timers()).hasSize(1);
+        Counter itemsRead = registry.find("batch.step.items.read")
+                .tag("step.name", "loadStep")
+                .tag("partition.group", "partition")
+                .counter();
+        assertThat(itemsRead).isNotNull();
+        assertThat(itemsRead.count()).isEqualTo(30.0);
+    }
+
+    @Test
+    @DisplayName("Step names containing a colon should be kept when they are not partition workers")
+    void nonPartitionStepWithColon_shouldKeepItsName() {
+        StepNameNormalizer normalizer = new StepNameNormalizer(true, true);
+        listener = new PerformanceMonitoringListener(registry, null, normalizer);
+        JobExecution jobExecution = createJobExecution("importJob", BatchStatus.COMPLETED);
+
+        for (String stepName : List.of("import:customers", "import:orders")) {
+            StepExecution step = createStepExecution(jobExecution, stepName);
+            listener.beforeStep(step);
+            listener.afterStep(step);
+        }
+
+        assertThat(registry.find("batch.step.duration").timers())
+                .extracting(timer -> timer.getId().getTag("step.name"))
+                .containsExactlyInAnyOrder("import:customers", "import:orders");
+        assertThat(registry.find("batch.step.duration").tag("partition.group", "none").timers()).hasSize(2);
+        assertThat(normalizer.tags("importJob", "loadStep:partition12"))
+                .containsExactlyInAnyOrder(Tag.of("job.name", "importJob"), Tag.of("step.name", "loadStep"),
+                        Tag.of("partition.group", "partition"));
+        assertThat(normalizer.tags("importJob", "loadStep:region-eu-3"))
+                .containsExactlyInAnyOrder(Tag.of("job.name", "importJob"), Tag.of("step.name", "loadStep"),
+                        Tag.of("partition.group", "region-eu"));
+    }
+
+    @Test
+    @DisplayName("Nested job on the same thread should not overwrite the parent job timing")
+    void nestedJob_shouldKeepParentTiming() {
+        JobExecution parent = createJobExecution("parentJob", BatchStatus.COMPLETED);
+        JobExecution child = createJobExecution("childJob", BatchStatus.COMPLETED);
+
+        listener.beforeJob(parent);
+        simulateDelay(20);
+        listener.beforeJob(child);
+        listener.afterJob(child);
+        listener.afterJob(parent);
+
+        Timer parentTimer = registry.find("batch.job.duration").tag("job.name", "parentJob").timer();
+        Timer childTimer = registry.find("batch.job.duration").tag("job.name", "childJob").timer();
+
+        assertThat(parentTimer).isNotNull();
+        assertThat(childTimer).isNotNull();
+        assertThat(parentTimer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+        assertThat(childTimer.totalTime(TimeUnit.MILLISECONDS)).isLessThan(parentTimer.totalTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("Step and chunk ending on another thread than they started should be timed")
+    void callbacksOnDifferentThreads_shouldBeTimed() throws Exception {
+        StepExecution stepExecution = createStepExecution(
+                createJobExecution("testJob", BatchStatus.COMPLETED), "testStep");
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        listener.beforeStep(stepExecution);
+        listener.beforeChunk(chunkContext);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                listener.afterChunk(chunkContext);
+                listener.afterStep(stepExecution);
+            }).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(registry.find("batch.chunk.duration").tag("step.name", "testStep").timer().count()).isEqualTo(1);
+        assertThat(registry.find("batch.step.duration").tag("step.name", "testStep").timer().count()).isEqualTo(1);
+    }
+
     // ========================================
     // CHUNK TESTS
     // ========================================
@@ -573,7 +821,7 @@ class PerformanceMonitoringListenerTest {
     private JobExecution createJobExecution(String jobName, BatchStatus status) {
         JobInstance jobInstance = new JobInstance(1L, jobName);
         JobParameters jobParameters = new JobParameters();
-        JobExecution jobExecution = new JobExecution(jobInstance, 1L, jobParameters);
+        JobExecution jobExecution = new JobExecution(jobInstance, EXECUTION_IDS.incrementAndGet(), jobParameters);
         jobExecution.setStatus(status);
         jobExecution.setStartTime(LocalDateTime.now());
         jobExecution.setEndTime(LocalDateTime.now());
@@ -582,7 +830,7 @@ class PerformanceMonitoringListenerTest {
 
     private StepExecution createStepExecution(JobExecution jobExecution, String stepName) {
         StepExecution stepExecution = new StepExecution(stepName, jobExecution);
-        stepExecution.setId(1L);
+        stepExecution.setId(EXECUTION_IDS.incrementAndGet());
         stepExecution.setStartTime(LocalDateTime.now());
         stepExecution.setEndTime(LocalDateTime.now());
         stepExecution.setExitStatus(ExitStatus.COMPLETED);
@@ -598,13 +846,19 @@ class PerformanceMonitoringListenerTest {
         }
     }
 
+    private void runChunk(ChunkContext chunkContext, MockClock clock, int items, long millis) {
+        StepExecution stepExecution = chunkContext.getStepContext().getStepExecution();
+        listener.beforeChunk(chunkContext);
+        clock.add(millis, TimeUnit.MILLISECONDS);
+        stepExecution.setWriteCount(stepExecution.getWriteCount() + items);
+        listener.afterChunk(chunkContext);
+    }
+
     private ChunkContext buildChunkContext(String jobName, String stepName) {
         StepExecution stepExecution = createStepExecution(
                 createJobExecution(jobName, BatchStatus.COMPLETED), stepName
         );
         StepContext stepContext = new StepContext(stepExecution);
-        ChunkContext chunkContext = mock(ChunkContext.class);
-        when(chunkContext.getStepContext()).thenReturn(stepContext);
-        return chunkContext;
+        return new ChunkContext(stepContext);
     }
 }
\ No newline at end of file
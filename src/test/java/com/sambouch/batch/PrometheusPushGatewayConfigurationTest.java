@@ -0,0 +1,128 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.BatchMonitoringAutoConfiguration;
+import com.sambouch.batch.common.config.PrometheusPushGatewayConfiguration;
+import com.sambouch.batch.common.pushgateway.PushGatewayGroupLifecycle;
+import com.sambouch.batch.common.pushgateway.PushGatewayJobListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.batch.BatchAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PrometheusPushGatewayConfiguration Tests")
+@ExtendWith(OutputCaptureExtension.class)
+class PrometheusPushGatewayConfigurationTest {
+
+    private StubPushGateway gateway;
+    private ApplicationContextRunner contextRunner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = new StubPushGateway();
+        contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class,
+                        DataSourceTransactionManagerAutoConfiguration.class, BatchAutoConfiguration.class,
+                        MetricsAutoConfiguration.class, PrometheusMetricsExportAutoConfiguration.class,
+                        BatchMonitoringAutoConfiguration.class, PrometheusPushGatewayConfiguration.class))
+                .withUserConfiguration(JobConfiguration.class)
+                .withPropertyValues("spring.datasource.generate-unique-name=true",
+                        "monitoring.application-name=app",
+                        "monitoring.prometheus.pushgateway.enabled=true",
+                        "monitoring.prometheus.pushgateway.url=" + gateway.url());
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    @DisplayName("Should push the metrics of a job run in the auto-configured context")
+    void shouldPushCompletedJob() {
+        contextRunner.run(context -> {
+            assertThat(context).hasNotFailed();
+            JobExecution jobExecution = context.getBean(JobLauncher.class).run(context.getBean(Job.class),
+                    new JobParametersBuilder().addLong("run", 1L).toJobParameters());
+
+            assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+            // The cleanup of past executions may also list the groups
+            assertThat(gateway.requests())
+                    .filteredOn(request -> request.method().equals("PUT"))
+                    .singleElement().satisfies(request -> {
+                assertThat(request.path()).startsWith("/metrics/job/pushJob/")
+                        .contains("/instance/app", "/status/COMPLETED");
+                assertThat(new String(request.body())).contains("batch_job_duration");
+            });
+        });
+    }
+
+    @Test
+    @DisplayName("Should push without Jackson and warn that the groups are not cleaned up")
+    void shouldPushWithoutJackson(CapturedOutput output) {
+        contextRunner.withClassLoader(new FilteredClassLoader("com.fasterxml.jackson"))
+                .run(context -> {
+                    assertThat(context).hasNotFailed()
+                            .hasSingleBean(PushGatewayJobListener.class)
+                            .doesNotHaveBean(PushGatewayGroupLifecycle.class);
+                    JobExecution jobExecution = context.getBean(JobLauncher.class).run(context.getBean(Job.class),
+                            new JobParametersBuilder().addLong("run", 1L).toJobParameters());
+
+                    assertThat(jobExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+                    assertThat(gateway.requests()).extracting(StubPushGateway.Request::method).containsExactly("PUT");
+                });
+        assertThat(output).contains("Jackson is not on the classpath");
+    }
+
+    @Test
+    @DisplayName("Should create the group lifecycle only when a lifecycle policy is active")
+    void shouldCreateLifecycleForActivePolicy() {
+        contextRunner.run(context -> assertThat(context).hasSingleBean(PushGatewayGroupLifecycle.class));
+        contextRunner.withPropertyValues("monitoring.prometheus.pushgateway.lifecycle.delete-previous-on-success=false")
+                .run(context -> assertThat(context).hasNotFailed()
+                        .doesNotHaveBean(PushGatewayGroupLifecycle.class));
+        contextRunner.withPropertyValues("monitoring.prometheus.pushgateway.lifecycle.delete-previous-on-success=false",
+                        "monitoring.prometheus.pushgateway.lifecycle.keep-last=3")
+                .run(context -> assertThat(context).hasSingleBean(PushGatewayGroupLifecycle.class));
+        contextRunner.withPropertyValues("monitoring.prometheus.pushgateway.lifecycle.delete-previous-on-success=false",
+                        "monitoring.prometheus.pushgateway.lifecycle.ttl=24h")
+                .run(context -> assertThat(context).hasSingleBean(PushGatewayGroupLifecycle.class));
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class JobConfiguration {
+
+        @Bean
+        Job pushJob(JobRepository jobRepository, PlatformTransactionManager transactionManager) {
+            Step step = new StepBuilder("pushStep", jobRepository)
+                    .tasklet((contribution, chunkContext) -> RepeatStatus.FINISHED, transactionManager)
+                    .build();
+            return new JobBuilder("pushJob", jobRepository).start(step).build();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.pushgateway.PushGatewayClient;
+import com.sambouch.batch.common.pushgateway.PushGatewayGroupLifecycle;
+import com.sambouch.batch.common.pushgateway.PushPayloadFilter;
+import com.sambouch.batch.common.pushgateway.SynchronousPushGatewayExporter;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("PushGatewayGroupLifecycle Tests")
+class PushGatewayGroupLifecycleTest {
+
+    private StubPushGateway gateway;
+    private PushGatewayClient client;
+    private SynchronousPushGatewayExporter exporter;
+    private PushGatewayGroupLifecycle lifecycle;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = new StubPushGateway();
+        client = new PushGatewayClient(gateway.url(), Duration.ofSeconds(1), Duration.ofSeconds(1));
+        exporter = new SynchronousPushGatewayExporter(client, new CollectorRegistry(), PushPayloadFilter.none());
+
+        long now = System.currentTimeMillis() / 1000;
+        gateway.holdGroups(List.of(
+                        group("testJob", "app", 39),
+                        group("testJob", "app", 40),
+                        group("testJob", "app", 41),
+                        group("testJob", "otherApp", 30),
+                        group("otherJob", "app", 20)),
+                List.of(now - 7200, now - 3600, now, now - 7200, now - 7200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (lifecycle != null) {
+            lifecycle.close();
+        }
+        gateway.close();
+    }
+
+    @Test
+    @DisplayName("Should delete the groups of the previous executions of a successful job")
+    void shouldDeletePreviousExecutionsOnSuccess() {
+        lifecycle = new PushGatewayGroupLifecycle(client, exporter, "app", true, 0, null, Duration.ofMinutes(1));
+
+        lifecycle.jobCompleted("testJob", 42L, BatchStatus.COMPLETED);
+
+        assertThat(awaitDeletions(3)).containsExactlyInAnyOrder(
+                "testJob#39",
+                "testJob#40",
+                "testJob#41");
+    }
+
+    @Test
+    @DisplayName("Should keep the groups of the last N executions of a failed job")
+    void shouldKeepLastExecutions() {
+        lifecycle = new PushGatewayGroupLifecycle(client, exporter, "app", true, 2, null, Duration.ofMinutes(1));
+
+        lifecycle.jobCompleted("testJob", 42L, BatchStatus.FAILED);
+
+        assertThat(awaitDeletions(2)).containsExactlyInAnyOrder(
+                "testJob#39",
+                "testJob#40");
+    }
+
+    @Test
+    @DisplayName("Should keep the groups of previous executions still running")
+    void shouldKeepRunningExecutions() {
+        long now = System.currentTimeMillis() / 1000;
+        gateway.holdGroups(List.of(
+                        group("testJob", "app", 39, "COMPLETED"),
+                        group("testJob", "app", 40, "STARTED"),
+                        group("testJob", "app", 41, "COMPLETED")),
+                List.of(now - 7200, now, now - 3600));
+        lifecycle = new PushGatewayGroupLifecycle(client, exporter, "app", true, 1, null, Duration.ofMinutes(1));
+
+        lifecycle.jobCompleted("testJob", 42L, BatchStatus.COMPLETED);
+
+        assertThat(awaitDeletions(2)).containsExactlyInAnyOrder(
+                "testJob#39",
+                "testJob#41");
+    }
+
+    @Test
+    @DisplayName("Should sweep the groups of the application not pushed within the TTL")
+    void shouldSweepExpiredGroups() {
+        lifecycle = new PushGatewayGroupLifecycle(client, exporter, "app", false, 0,
+                Duration.ofMinutes(30), Duration.ofMillis(50));
+
+        assertThat(awaitDeletions(3)).containsExactlyInAnyOrder(
+                "testJob#39",
+                "testJob#40",
+                "otherJob#20");
+    }
+
+    private List<String> awaitDeletions(int expected) {
+        await().atMost(Duration.ofSeconds(10)).until(() -> deletions().size() >= expected);
+        // No unexpected extra deletion
+        await().during(Duration.ofMillis(100)).atMost(Duration.ofSeconds(10))
+                .until(() -> deletions().size() == expected);
+        return deletions();
+    }
+
+    /**
+     * @return the deleted groups, as {@code job#executionId}
+     */
+    private List<String> deletions() {
+        return gateway.requests().stream()
+                .filter(request -> request.method().equals("DELETE"))
+                .map(StubPushGateway.Request::path)
+                .peek(path -> assertThat(path).contains("/instance/app"))
+                .map(path -> path.split("/")[3] + "#" + path.replaceAll(".*/job_execution_id/(\\d+).*", "$1"))
+                .distinct()
+                .toList();
+    }
+
+    private static String group(String job, String instance, long executionId) {
+        return group(job, instance, executionId, "COMPLETED");
+    }
+
+    private static String group(String job, String instance, long executionId, String status) {
+        return "{\"job\":\"" + job + "\",\"instance\":\"" + instance + "\",\"job_execution_id\":\"" + executionId
+                + "\",\"status\":\"" + status + "\"}";
+    }
+}
@@ -0,0 +1,95 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.pushgateway.PushGatewayClient;
+import com.sambouch.batch.common.pushgateway.PushGatewayJobListener;
+import com.sambouch.batch.common.pushgateway.PushPayloadFilter;
+import com.sambouch.batch.common.pushgateway.SynchronousPushGatewayExporter;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("PushGatewayJobListener Tests")
+class PushGatewayJobListenerTest {
+
+    private StubPushGateway gateway;
+    private SynchronousPushGatewayExporter exporter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = new StubPushGateway();
+        PushGatewayClient client = new PushGatewayClient(gateway.url(), Duration.ofSeconds(1), Duration.ofSeconds(1));
+        exporter = new SynchronousPushGatewayExporter(client, new CollectorRegistry(), PushPayloadFilter.none());
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.close();
+    }
+
+    @Test
+    @DisplayName("Should push only at completion without push interval")
+    void shouldPushAtCompletion() {
+        PushGatewayJobListener listener = new PushGatewayJobListener(exporter, "app", null);
+        JobExecution jobExecution = createJobExecution();
+
+        listener.beforeJob(jobExecution);
+        jobExecution.setStatus(BatchStatus.COMPLETED);
+        listener.afterJob(jobExecution);
+
+        assertThat(gateway.requests()).singleElement().satisfies(request -> {
+            assertThat(request.method()).isEqualTo("PUT");
+            assertThat(request.path()).startsWith("/metrics/job/testJob/")
+                    .contains("/instance/app", "/job_execution_id/42", "/status/COMPLETED");
+        });
+        listener.close();
+    }
+
+    @Test
+    @DisplayName("Should push running jobs periodically and delete the in-flight group at completion")
+    void shouldPushPeriodicallyWhileRunning() {
+        PushGatewayJobListener listener = new PushGatewayJobListener(exporter, "app", Duration.ofMillis(50));
+        JobExecution jobExecution = createJobExecution();
+
+        listener.beforeJob(jobExecution);
+        await().atMost(Duration.ofSeconds(10)).until(() -> gateway.requests().size() >= 2);
+        jobExecution.setStatus(BatchStatus.COMPLETED);
+        listener.afterJob(jobExecution);
+        int requestsAtCompletion = gateway.requests().size();
+        // No periodic push once the job has completed
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(10))
+                .until(() -> gateway.requests().size() == requestsAtCompletion);
+        listener.close();
+
+        List<StubPushGateway.Request> requests = gateway.requests();
+        assertThat(requests).hasSize(requestsAtCompletion);
+        assertThat(requests.subList(0, requests.size() - 2))
+                .isNotEmpty()
+                .allSatisfy(request -> {
+                    assertThat(request.method()).isEqualTo("PUT");
+                    assertThat(request.path()).contains("/status/STARTED");
+                });
+        assertThat(requests.get(requests.size() - 2).path()).contains("/status/COMPLETED");
+        assertThat(requests.get(requests.size() - 1)).satisfies(request -> {
+            assertThat(request.method()).isEqualTo("DELETE");
+            assertThat(request.path()).contains("/status/STARTED");
+        });
+    }
+
+    private JobExecution createJobExecution() {
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "testJob"), 42L, new JobParameters());
+        jobExecution.setStatus(BatchStatus.STARTED);
+        return jobExecution;
+    }
+}
@@ -0,0 +1,73 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.pushgateway.PushPayloadFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("PushPayloadFilter Tests")
+class PushPayloadFilterTest {
+
+    private PrometheusMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        Counter.builder("batch.step.items.read").tag("job.name", "jobA").tag("step.name", "step1").register(registry);
+        Counter.builder("batch.step.items.read").tag("job.name", "jobB").tag("step.name", "step1").register(registry);
+        Gauge.builder("jvm.memory.used", () -> 1.0).register(registry);
+        Gauge.builder("tomcat.sessions.active", () -> 1.0).register(registry);
+    }
+
+    @Test
+    @DisplayName("Should send the whole registry by default")
+    void shouldSendWholeRegistryByDefault() {
+        List<MetricFamilySamples> families = select(PushPayloadFilter.none(), "jobA");
+
+        assertThat(families).extracting(f -> f.name)
+                .contains("batch_step_items_read", "jvm_memory_used", "tomcat_sessions_active");
+    }
+
+    @Test
+    @DisplayName("Should keep only the series of the pushed job plus the included metrics")
+    void shouldKeepOnlyJobSeriesAndIncludedMetrics() {
+        PushPayloadFilter filter = new PushPayloadFilter(true, "job_name", List.of("jvm_"), List.of());
+
+        List<MetricFamilySamples> families = select(filter, "jobA");
+
+        assertThat(families).extracting(f -> f.name)
+                .containsExactlyInAnyOrder("batch_step_items_read", "jvm_memory_used");
+        MetricFamilySamples readFamily = families.stream()
+                .filter(f -> f.name.equals("batch_step_items_read"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(readFamily.samples)
+                .allSatisfy(sample -> assertThat(sample.labelValues).contains("jobA"));
+    }
+
+    @Test
+    @DisplayName("Should never send excluded metrics")
+    void shouldDropExcludedMetrics() {
+        PushPayloadFilter filter = new PushPayloadFilter(false, "job_name", List.of(), List.of("tomcat_"));
+
+        List<MetricFamilySamples> families = select(filter, "jobA");
+
+        assertThat(families).extracting(f -> f.name)
+                .contains("batch_step_items_read", "jvm_memory_used")
+                .doesNotContain("tomcat_sessions_active");
+    }
+
+    private List<MetricFamilySamples> select(PushPayloadFilter filter, String jobName) {
+        return Collections.list(filter.select(registry.getPrometheusRegistry(), jobName));
+    }
+}
@@ -0,0 +1,169 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.regression.RegressionDetector;
+import com.sambouch.batch.common.regression.StepExecutionHistory;
+import com.sambouch.batch.common.regression.StepExecutionHistory.CompletedStep;
+import com.sambouch.batch.common.regression.StepRegression;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("RegressionDetector Tests")
+class RegressionDetectorTest {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should seed the baseline from the history and flag a slower execution")
+    void shouldSeedFromHistoryAndDetectRegression() {
+        StepExecutionHistory history = jobName -> List.of(
+                completed("loadStep", 10), completed("loadStep", 11), completed("loadStep", 9),
+                completed("loadStep", 10));
+        RegressionDetector detector = new RegressionDetector(registry, history, StepNameNormalizer.NONE,
+                3, 3, 3.0, Duration.ofSeconds(1), Runnable::run);
+
+        StepExecution current = stepExecution(jobExecution(), 30, 1000, BatchStatus.COMPLETED);
+        current.setEndTime(null);
+        StepRegression regression = detector.evaluate(current);
+
+        assertThat(regression.samples()).isEqualTo(3);
+        assertThat(regression.baselineDuration()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(regression.score()).isGreaterThan(3.0);
+        assertThat(registry.find("batch.step.regressions").tag("step.name", "loadStep").counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.find("batch.step.regression.score").tag("basis", "duration").gauge().value())
+                .isEqualTo(regression.durationScore());
+    }
+
+    @Test
+    @DisplayName("Should seed the baselines of all the steps of a job from a single read")
+    void shouldSeedAllStepsFromOneRead() {
+        AtomicInteger reads = new AtomicInteger();
+        StepExecutionHistory history = jobName -> {
+            reads.incrementAndGet();
+            return List.of(completed("exportStep", 20), completed("loadStep", 10));
+        };
+        RegressionDetector detector = new RegressionDetector(registry, history, StepNameNormalizer.NONE,
+                3, 1, 3.0, Duration.ofSeconds(1), Runnable::run);
+
+        JobExecution current = jobExecution();
+        StepRegression load = detector.evaluate(stepExecution(current, "loadStep", 10, 1000, BatchStatus.COMPLETED));
+        StepRegression export = detector.evaluate(stepExecution(current, "exportStep", 20, 1000, BatchStatus.COMPLETED));
+
+        assertThat(reads).hasValue(1);
+        assertThat(load.baselineDuration()).isEqualTo(Duration.ofSeconds(10));
+        assertThat(export.baselineDuration()).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    @DisplayName("Should score against the executions of this JVM until the history is read")
+    void shouldReadHistoryInTheBackground() {
+        List<Runnable> reads = new ArrayList<>();
+        List<CompletedStep> past = new ArrayList<>(List.of(completed("loadStep", 10), completed("loadStep", 10)));
+        RegressionDetector detector = new RegressionDetector(registry, jobName -> past, StepNameNormalizer.NONE,
+                10, 1, 3.0, Duration.ofSeconds(1), reads::add);
+
+        StepExecution first = stepExecution(jobExecution(), 12, 1000, BatchStatus.COMPLETED);
+        assertThat(detector.evaluate(first).samples()).isZero();
+        assertThat(detector.evaluate(stepExecution(jobExecution(), 12, 1000, BatchStatus.COMPLETED)).samples())
+                .isEqualTo(1);
+        // The history also holds the first execution, now committed
+        past.add(0, new CompletedStep(first.getId(), "loadStep", Duration.ofSeconds(12), 1000));
+        assertThat(reads).hasSize(1);
+        reads.get(0).run();
+
+        StepRegression regression = detector.evaluate(stepExecution(jobExecution(), 12, 1000, BatchStatus.COMPLETED));
+        assertThat(regression.samples()).isEqualTo(4);
+        assertThat(regression.baselineDuration()).isEqualTo(Duration.ofSeconds(11));
+        assertThat(reads).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should not score steps shorter than the minimum duration")
+    void shouldNotScoreShortSteps() {
+        RegressionDetector detector = new RegressionDetector(registry, null, StepNameNormalizer.NONE,
+                30, 3, 3.0, Duration.ofSeconds(1), Runnable::run);
+
+        for (int i = 0; i < 5; i++) {
+            detector.evaluate(stepExecution(jobExecution(), "taskletStep", Duration.ofMillis(20), 0,
+                    BatchStatus.COMPLETED));
+        }
+        StepRegression jitter = detector.evaluate(stepExecution(jobExecution(), "taskletStep", Duration.ofMillis(40), 0,
+                BatchStatus.COMPLETED));
+
+        assertThat(jitter.samples()).isEqualTo(5);
+        assertThat(jitter.score()).isNaN();
+        assertThat(registry.find("batch.step.regressions").counter()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should build the baseline incrementally and wait for enough samples")
+    void shouldBuildBaselineIncrementally() {
+        RegressionDetector detector = new RegressionDetector(registry, null, StepNameNormalizer.NONE,
+                30, 3, 3.0, Duration.ofSeconds(1), Runnable::run);
+
+        assertThat(detector.evaluate(stepExecution(jobExecution(), 10, 1000, BatchStatus.COMPLETED)).score()).isNaN();
+        detector.evaluate(stepExecution(jobExecution(), 10, 1000, BatchStatus.COMPLETED));
+        detector.evaluate(stepExecution(jobExecution(), 10, 1000, BatchStatus.COMPLETED));
+        assertThat(detector.evaluate(stepExecution(jobExecution(), 10, 900, BatchStatus.COMPLETED)).score())
+                .isLessThan(3.0);
+        assertThat(detector.evaluate(stepExecution(jobExecution(), 10, 1000, BatchStatus.FAILED))).isNull();
+
+        StepRegression slower = detector.evaluate(stepExecution(jobExecution(), 10, 500, BatchStatus.COMPLETED));
+        assertThat(slower.samples()).isEqualTo(4);
+        assertThat(slower.throughputScore()).isGreaterThan(3.0);
+    }
+
+    private JobExecution jobExecution() {
+        return new JobExecution(new JobInstance(IDS.incrementAndGet(), "nightlyJob"), IDS.incrementAndGet(),
+                new JobParameters());
+    }
+
+    private static CompletedStep completed(String stepName, long seconds) {
+        return new CompletedStep(IDS.incrementAndGet(), stepName, Duration.ofSeconds(seconds), 1000);
+    }
+
+    private StepExecution stepExecution(JobExecution jobExecution, long seconds, long written, BatchStatus status) {
+        return stepExecution(jobExecution, "loadStep", seconds, written, status);
+    }
+
+    private StepExecution stepExecution(JobExecution jobExecution, String stepName, long seconds, long written,
+                                        BatchStatus status) {
+        return stepExecution(jobExecution, stepName, Duration.ofSeconds(seconds), written, status);
+    }
+
+    private StepExecution stepExecution(JobExecution jobExecution, String stepName, Duration duration, long written,
+                                        BatchStatus status) {
+        StepExecution stepExecution = jobExecution.createStepExecution(stepName);
+        stepExecution.setId(IDS.incrementAndGet());
+        stepExecution.setStartTime(LocalDateTime.now().minus(duration));
+        stepExecution.setEndTime(stepExecution.getStartTime().plus(duration));
+        stepExecution.setWriteCount(written);
+        stepExecution.setStatus(status);
+        return stepExecution;
+    }
+}
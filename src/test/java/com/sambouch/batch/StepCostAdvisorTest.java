@@ -0,0 +1,104 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.advisor.StepCostAdvisor;
+import com.sambouch.batch.common.advisor.StepCostReport;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.item.Chunk;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StepCostAdvisor Tests")
+class StepCostAdvisorTest {
+
+    private MeterRegistry registry;
+    private StepCostAdvisor advisor;
+    private StepExecution stepExecution;
+    private ChunkContext chunkContext;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        advisor = new StepCostAdvisor(registry, StepNameNormalizer.NONE, 0.05, 1, 1000, 5, 0.1);
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "costJob"), 1L, new JobParameters());
+        stepExecution = new StepExecution("costStep", jobExecution, 2L);
+        chunkContext = new ChunkContext(new StepContext(stepExecution));
+    }
+
+    @Test
+    @DisplayName("Should advise a larger chunk size when commits dominate")
+    void shouldAdviseLargerChunksWhenCommitsDominate() {
+        advisor.beforeStep(stepExecution);
+        for (int i = 0; i < 5; i++) {
+            runChunk(10, 2, 2, 20, false);
+        }
+        StepCostReport report = advisor.analyze(stepExecution);
+
+        assertThat(report.dominantCost()).isEqualTo(StepCostReport.Cost.COMMIT);
+        assertThat(report.chunks()).isEqualTo(5);
+        assertThat(report.chunkSize()).isEqualTo(10.0);
+        assertThat(report.recommendedChunkSize()).isGreaterThan(10);
+        assertThat(report.expectedSaving()).isPositive();
+        assertThat(report.summary()).startsWith("commit overhead is").contains("at chunk=10");
+
+        Gauge recommended = registry.find("batch.step.chunk.size.recommended")
+                .tag("step.name", "costStep")
+                .gauge();
+        assertThat(recommended).isNotNull();
+        assertThat(recommended.value()).isEqualTo(report.recommendedChunkSize());
+        assertThat(registry.find("batch.step.cost.share").tag("cost", "commit").gauge().value())
+                .isGreaterThan(0.5);
+    }
+
+    @Test
+    @DisplayName("Should advise a smaller chunk size when rolled back chunks dominate")
+    void shouldAdviseSmallerChunksWhenRetriesDominate() {
+        advisor.beforeStep(stepExecution);
+        for (int i = 0; i < 5; i++) {
+            runChunk(0, 1, 1, 1, true);
+            runChunk(0, 1, 1, 1, true);
+            runChunk(100, 1, 1, 1, false);
+        }
+        StepCostReport report = advisor.analyze(stepExecution);
+
+        assertThat(report.dominantCost()).isEqualTo(StepCostReport.Cost.RETRIES);
+        assertThat(report.recommendedChunkSize()).isEqualTo(50);
+    }
+
+    private void runChunk(int items, long readMillis, long writeMillis, long commitMillis, boolean fail) {
+        advisor.beforeChunk(chunkContext);
+        sleep(readMillis);
+        advisor.beforeWrite(new Chunk<>());
+        sleep(writeMillis);
+        if (fail) {
+            advisor.onWriteError(new IllegalStateException("write failed"), new Chunk<>());
+            sleep(commitMillis * 20);
+            advisor.afterChunkError(chunkContext);
+            return;
+        }
+        advisor.afterWrite(new Chunk<>());
+        sleep(commitMillis);
+        stepExecution.setWriteCount(stepExecution.getWriteCount() + items);
+        advisor.afterChunk(chunkContext);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Test interrupted", e);
+        }
+    }
+}
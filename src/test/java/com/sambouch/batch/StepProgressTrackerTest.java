@@ -0,0 +1,104 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.progress.ExecutionContextTotalEstimator;
+import com.sambouch.batch.common.progress.StepProgress;
+import com.sambouch.batch.common.progress.StepProgressTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StepProgressTracker Tests")
+class StepProgressTrackerTest {
+
+    private MeterRegistry registry;
+    private StepProgressTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        tracker = new StepProgressTracker(registry,
+                new ExecutionContextTotalEstimator(StepProgressTracker.DEFAULT_EXPECTED_TOTAL_KEY), 0.5);
+    }
+
+    @Test
+    @DisplayName("Should expose items, rate, ratio and ETA once the expected total is known")
+    void shouldEstimateProgress() throws InterruptedException {
+        StepExecution stepExecution = createStepExecution(1L);
+        stepExecution.getExecutionContext().putLong(StepProgressTracker.DEFAULT_EXPECTED_TOTAL_KEY, 100);
+
+        tracker.stepStarted(stepExecution);
+        Thread.sleep(5);
+        stepExecution.setReadCount(25);
+        tracker.chunkCompleted(stepExecution);
+
+        StepProgress progress = tracker.progress(stepExecution);
+        assertThat(progress.getItems()).isEqualTo(25);
+        assertThat(progress.getRate()).isPositive();
+        assertThat(progress.getRatio()).isEqualTo(0.25);
+        assertThat(progress.getEta()).isNotNull();
+
+        assertThat(gauge("batch.step.progress.items").value()).isEqualTo(25);
+        assertThat(gauge("batch.step.progress.ratio").value()).isEqualTo(0.25);
+        assertThat(gauge("batch.step.progress.eta").value()).isPositive();
+        assertThat(gauge("batch.step.progress.completion.time").value())
+                .isGreaterThan(System.currentTimeMillis() / 1000.0 - 1);
+    }
+
+    @Test
+    @DisplayName("Should report an unknown ETA without expected total")
+    void shouldReportUnknownEtaWithoutTotal() {
+        StepExecution stepExecution = createStepExecution(1L);
+
+        tracker.stepStarted(stepExecution);
+        stepExecution.setReadCount(10);
+        tracker.chunkCompleted(stepExecution);
+
+        assertThat(gauge("batch.step.progress.items").value()).isEqualTo(10);
+        assertThat(gauge("batch.step.progress.ratio").value()).isNaN();
+        assertThat(gauge("batch.step.progress.eta").value()).isNaN();
+    }
+
+    @Test
+    @DisplayName("Should aggregate concurrent executions and remove the gauges after the last one")
+    void shouldRemoveGaugesWhenLastExecutionEnds() {
+        StepExecution first = createStepExecution(1L);
+        StepExecution second = createStepExecution(2L);
+
+        tracker.stepStarted(first);
+        tracker.stepStarted(second);
+        first.setReadCount(10);
+        second.setReadCount(5);
+        tracker.chunkCompleted(first);
+        tracker.chunkCompleted(second);
+
+        assertThat(gauge("batch.step.progress.items").value()).isEqualTo(15);
+
+        tracker.stepCompleted(first);
+        assertThat(gauge("batch.step.progress.items").value()).isEqualTo(5);
+        assertThat(tracker.runningSteps()).hasSize(1);
+
+        tracker.stepCompleted(second);
+        assertThat(registry.find("batch.step.progress.items").gauge()).isNull();
+        assertThat(tracker.runningSteps()).isEmpty();
+    }
+
+    private Gauge gauge(String name) {
+        return registry.get(name).tag("job.name", "testJob").tag("step.name", "testStep").gauge();
+    }
+
+    private StepExecution createStepExecution(long id) {
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "testJob"), 1L, new JobParameters());
+        StepExecution stepExecution = new StepExecution("testStep", jobExecution);
+        stepExecution.setId(id);
+        return stepExecution;
+    }
+}
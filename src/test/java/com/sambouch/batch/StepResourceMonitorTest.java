@@ -0,0 +1,112 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.resources.StepResourceMonitor;
+import com.sambouch.batch.common.resources.StepResourceUsage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StepResourceMonitor Tests")
+class StepResourceMonitorTest {
+
+    private static final int MB = 1024 * 1024;
+
+    // Keeps the allocations reachable so that they are not optimized away
+    private static volatile Object sink;
+
+    private MeterRegistry registry;
+    private StepResourceMonitor monitor;
+    private StepExecution stepExecution;
+    private ChunkContext chunkContext;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        monitor = new StepResourceMonitor(registry, StepNameNormalizer.NONE);
+        JobExecution jobExecution = new JobExecution(new JobInstance(1L, "resourceJob"), 1L, new JobParameters());
+        stepExecution = new StepExecution("resourceStep", jobExecution, 2L);
+        chunkContext = new ChunkContext(new StepContext(stepExecution));
+    }
+
+    @Test
+    @DisplayName("Should record the CPU time and allocated bytes of the step and of each chunk")
+    void shouldRecordStepAndChunkUsage() {
+        monitor.beforeStep(stepExecution);
+        for (int i = 0; i < 4; i++) {
+            runChunk(MB);
+        }
+        stepExecution.setReadCount(100);
+        StepResourceUsage usage = monitor.measure(stepExecution);
+
+        assertThat(usage.chunks()).isEqualTo(4);
+        assertThat(usage.allocatedBytes()).isGreaterThanOrEqualTo(4L * MB);
+        assertThat(usage.bytesPerItem()).isGreaterThanOrEqualTo(4.0 * MB / 100);
+        assertThat(usage.cpuTime()).isPositive();
+
+        DistributionSummary chunkBytes = registry.find("batch.chunk.allocated.bytes")
+                .tag("step.name", "resourceStep")
+                .summary();
+        assertThat(chunkBytes).isNotNull();
+        assertThat(chunkBytes.count()).isEqualTo(4);
+        assertThat(chunkBytes.max()).isGreaterThanOrEqualTo(MB);
+        assertThat(registry.find("batch.step.allocated.bytes").summary().totalAmount())
+                .isEqualTo(usage.allocatedBytes());
+        assertThat(registry.find("batch.step.allocated.bytes.per.item").summary().totalAmount())
+                .isEqualTo(usage.bytesPerItem());
+        Timer cpu = registry.find("batch.step.cpu").tag("job.name", "resourceJob").timer();
+        assertThat(cpu).isNotNull();
+        assertThat(cpu.totalTime(TimeUnit.NANOSECONDS)).isEqualTo(usage.cpuTime().toNanos());
+    }
+
+    @Test
+    @DisplayName("Should add the chunks run by other threads to the step")
+    void shouldAggregateWorkerThreads() throws Exception {
+        monitor.beforeStep(stepExecution);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 4; i++) {
+                workers.submit(() -> runChunk(2 * MB)).get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            workers.shutdown();
+        }
+        StepResourceUsage usage = monitor.measure(stepExecution);
+
+        assertThat(usage.chunks()).isEqualTo(4);
+        assertThat(usage.allocatedBytes()).isGreaterThanOrEqualTo(8L * MB);
+        assertThat(usage.cpuTime()).isGreaterThanOrEqualTo(Duration.ofMillis(1));
+    }
+
+    /**
+     * Runs a chunk allocating the given bytes and spinning for about 5 ms of CPU time.
+     */
+    private void runChunk(int bytes) {
+        monitor.beforeChunk(chunkContext);
+        sink = new byte[bytes];
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5);
+        long spins = 0;
+        while (System.nanoTime() < end) {
+            spins++;
+        }
+        sink = spins;
+        monitor.afterChunk(chunkContext);
+    }
+}
@@ -0,0 +1,114 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.profiling.StepProfile;
+import com.sambouch.batch.common.profiling.StepStackSampler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("StepStackSampler Tests")
+class StepStackSamplerTest {
+
+    @TempDir
+    Path tempDir;
+
+    // Keeps the spin results reachable so that the loops are not optimized away
+    private static volatile long sink;
+
+    private StepStackSampler sampler;
+    private JobExecution jobExecution;
+
+    @BeforeEach
+    void setUp() {
+        sampler = new StepStackSampler(List.of("import*"), Duration.ofMillis(2), 0.5, 64, 1000, tempDir);
+        jobExecution = new JobExecution(new JobInstance(1L, "profiledJob"), 1L, new JobParameters());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sampler.close();
+    }
+
+    @Test
+    @DisplayName("Should sample the step thread and the chunk threads, and write the collapsed stacks")
+    void shouldSampleStepAndChunkThreads() throws Exception {
+        StepExecution stepExecution = new StepExecution("importStep", jobExecution, 2L);
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+
+        sampler.beforeStep(stepExecution);
+        stepSpin(200);
+        Thread worker = new Thread(() -> {
+            sampler.beforeChunk(chunkContext);
+            workerSpin(200);
+            sampler.afterChunk(chunkContext);
+        });
+        worker.start();
+        worker.join();
+        sampler.afterStep(stepExecution);
+
+        Path file = tempDir.resolve("profiledJob-importStep-2.collapsed");
+        assertThat(file).exists();
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).isNotEmpty().allMatch(line -> line.matches(".+ \\d+"));
+        String stepFrame = StepStackSamplerTest.class.getName() + ".stepSpin";
+        String workerFrame = StepStackSamplerTest.class.getName() + ".workerSpin";
+        assertThat(lines).anyMatch(line -> line.contains(stepFrame));
+        assertThat(lines).anyMatch(line -> line.contains(workerFrame) && line.startsWith("java.lang.Thread.run"));
+        long samples = lines.stream().mapToLong(line -> Long.parseLong(line.substring(line.lastIndexOf(' ') + 1))).sum();
+        assertThat(samples).isGreaterThan(10);
+    }
+
+    @Test
+    @DisplayName("Should not sample the steps outside the allow-list, and bound the stacks kept")
+    void shouldSampleAllowListedStepsOnly() {
+        sampler.close();
+        sampler = new StepStackSampler(List.of("importStep"), Duration.ofMillis(2), 0.5, 64, 1, null);
+        StepExecution other = new StepExecution("exportStep", jobExecution, 3L);
+        StepExecution sampled = new StepExecution("importStep", jobExecution, 4L);
+
+        sampler.beforeStep(other);
+        sampler.beforeStep(sampled);
+        stepSpin(100);
+        workerSpin(100);
+        assertThat(sampler.collect(other)).isNull();
+        StepProfile profile = sampler.collect(sampled);
+
+        assertThat(profile.samples()).isPositive();
+        assertThat(profile.stacks().size()).isLessThanOrEqualTo(2);
+        assertThat(profile.stacks().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(profile.samples());
+        assertThat(profile.stacks()).containsKey("[truncated]");
+    }
+
+    private static void stepSpin(long millis) {
+        sink += spin(millis);
+    }
+
+    private static void workerSpin(long millis) {
+        sink += spin(millis);
+    }
+
+    private static long spin(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long spins = 0;
+        while (System.nanoTime() < end) {
+            spins++;
+        }
+        return spins;
+    }
+}
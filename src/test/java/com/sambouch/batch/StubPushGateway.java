@@ -0,0 +1,79 @@
+package com.sambouch.batch;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process Pushgateway stub recording the requests it receives.
+ */
+class StubPushGateway implements AutoCloseable {
+
+    record Request(String method, String path, byte[] body) {
+    }
+
+    private final HttpServer server;
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private volatile String groups = "{\"status\":\"success\",\"data\":[]}";
+
+    StubPushGateway() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                requests.add(new Request(exchange.getRequestMethod(),
+                        exchange.getRequestURI().getRawPath(), in.readAllBytes()));
+            }
+            if (exchange.getRequestURI().getRawPath().equals("/api/v1/metrics")) {
+                byte[] body = groups.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } else {
+                exchange.sendResponseHeaders(status, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    List<Request> requests() {
+        return requests;
+    }
+
+    void respondWith(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Sets the groups listed by {@code /api/v1/metrics}.
+     *
+     * @param groups JSON labels of each group, e.g. {@code {"job":"a","instance":"b"}}
+     * @param pushTimes push time of each group, in epoch seconds
+     */
+    void holdGroups(List<String> groups, List<Long> pushTimes) {
+        StringBuilder json = new StringBuilder("{\"status\":\"success\",\"data\":[");
+        for (int i = 0; i < groups.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"labels\":").append(groups.get(i))
+                    .append(",\"push_time_seconds\":{\"metrics\":[{\"value\":\"")
+                    .append(pushTimes.get(i)).append("\"}]}}");
+        }
+        this.groups = json.append("]}").toString();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.sambouch.batch;
+
+import com.sambouch.batch.common.config.MonitoredTransactionManagerPostProcessor;
+import com.sambouch.batch.common.listeners.StepNameNormalizer;
+import com.sambouch.batch.common.transaction.MonitoredTransactionManager;
+import com.sambouch.batch.common.transaction.TransactionMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TransactionMonitor Tests")
+class TransactionMonitorTest {
+
+    private EmbeddedDatabase database;
+    private DataSourceTransactionManager transactionManager;
+    private JobRepository jobRepository;
+    private JdbcTemplate jdbcTemplate;
+    private MeterRegistry registry;
+    private TransactionMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("/org/springframework/batch/core/schema-h2.sql")
+                .build();
+        transactionManager = new DataSourceTransactionManager(database);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(database);
+        factory.setTransactionManager(transactionManager);
+        factory.afterPropertiesSet();
+        jobRepository = factory.getObject();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE item (id INT PRIMARY KEY)");
+        registry = new SimpleMeterRegistry();
+        monitor = new TransactionMonitor(registry, StepNameNormalizer.NONE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should time the begin and commit of each chunk and report the commit share")
+    void shouldTimeChunkCommits() throws Exception {
+        TaskletStep step = step(List.of());
+        assertThat(new DirectFieldAccessor(step).getPropertyValue("transactionManager"))
+                .isInstanceOf(MonitoredTransactionManager.class);
+
+        StepExecution stepExecution = execute(step);
+
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM item", Integer.class)).isEqualTo(35);
+        // Chunks of 10, 10, 10 and 5 items, the last one ending the step
+        assertThat(timer("batch.transaction.commit").count()).isEqualTo(4);
+        assertThat(timer("batch.transaction.begin").count()).isEqualTo(4);
+        assertThat(registry.find("batch.transaction.rollback").timer()).isNull();
+        Double share = registry.find("batch.step.commit.share").tag("step.name", "txStep").gauge().value();
+        assertThat(share).isGreaterThan(0.0).isLessThanOrEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should time the rollback of a failed chunk")
+    void shouldTimeRollbacks() throws Exception {
+        TaskletStep step = step(List.of(25));
+
+        StepExecution stepExecution = execute(step);
+
+        assertThat(stepExecution.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM item", Integer.class)).isEqualTo(20);
+        assertThat(timer("batch.transaction.commit").count()).isEqualTo(2);
+        assertThat(timer("batch.transaction.rollback").count()).isEqualTo(1);
+    }
+
+    /**
+     * Builds a step of 35 items in chunks of 10, failing when writing the given items.
+     */
+    private TaskletStep step(List<Integer> failing) {
+        TaskletStep step = new StepBuilder("txStep", jobRepository)
+                .<Integer, Integer>chunk(10, transactionManager)
+                .reader(new ListItemReader<>(IntStream.range(0, 35).boxed().toList()))
+                .writer((Chunk<? extends Integer> chunk) -> {
+                    for (Integer item : chunk) {
+                        if (failing.contains(item)) {
+                            throw new IllegalStateException("Failing item " + item);
+                        }
+                        jdbcTemplate.update("INSERT INTO item (id) VALUES (?)", item);
+                    }
+                })
+                .build();
+        step.registerStepExecutionListener(monitor);
+        step.registerChunkListener(monitor);
+        return (TaskletStep) new MonitoredTransactionManagerPostProcessor(monitor)
+                .postProcessAfterInitialization(step, "txStep");
+    }
+
+    private StepExecution execute(TaskletStep step) throws Exception {
+        JobExecution jobExecution = jobRepository.createJobExecution("txJob", parameters());
+        StepExecution stepExecution = jobExecution.createStepExecution("txStep");
+        jobRepository.add(stepExecution);
+        step.execute(stepExecution);
+        return stepExecution;
+    }
+
+    private JobParameters parameters() {
+        return new JobParametersBuilder().addLong("run", System.nanoTime()).toJobParameters();
+    }
+
+    private Timer timer(String name) {
+        return registry.find(name).tags("job.name", "txJob", "step.name", "txStep").timer();
+    }
+}